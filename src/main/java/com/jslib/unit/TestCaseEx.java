@@ -8,8 +8,10 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
+import com.jslib.unit.db.SqlCapture;
 import com.jslib.unit.util.Classes;
 import com.jslib.unit.util.Files;
 
@@ -165,4 +167,63 @@ public class TestCaseEx extends TestCase {
 				fail(s);
 		}
 	}
+
+	/**
+	 * Assert the number of SQL statements executed through capturing connections. On failure, message lists most frequent
+	 * statements, useful to spot N+1 query patterns.
+	 * 
+	 * @param expected expected executions count,
+	 * @param capture SQL capture.
+	 */
+	protected static void assertQueryCount(int expected, SqlCapture capture) {
+		if (capture.getCount() != expected) {
+			fail(String.format("Expected %d SQL executions but was %d. %s", expected, capture.getCount(), capture));
+		}
+	}
+
+	/**
+	 * Assert the number of executed SQL statements matching pattern, a regular expression searched into SQL statement, case
+	 * insensitive.
+	 * 
+	 * @param expected expected executions count,
+	 * @param capture SQL capture,
+	 * @param pattern SQL statement pattern.
+	 */
+	protected static void assertQueryCount(int expected, SqlCapture capture, String pattern) {
+		int count = capture.count(pattern);
+		if (count != expected) {
+			fail(String.format("Expected %d SQL executions matching |%s| but was %d. %s", expected, pattern, count, capture));
+		}
+	}
+
+	/**
+	 * Assert no executed SQL statement matches pattern, a regular expression searched into SQL statement, case insensitive.
+	 * 
+	 * @param capture SQL capture,
+	 * @param pattern SQL statement pattern.
+	 */
+	protected static void assertNoQueriesMatching(SqlCapture capture, String pattern) {
+		List<SqlCapture.Entry> entries = capture.getEntries(pattern);
+		if (!entries.isEmpty()) {
+			fail(String.format("Unexpected %d SQL executions matching |%s|, first: %s", entries.size(), pattern, entries.get(0)));
+		}
+		if (capture.isOverflowed()) {
+			fail("SQL capture overflow. Increase capture capacity.");
+		}
+	}
+
+	/**
+	 * Assert that 99th percentile of execution time for SQL statements matching pattern does not exceed given limit. Only
+	 * executions retained by capture ring buffer are considered.
+	 * 
+	 * @param capture SQL capture,
+	 * @param pattern SQL statement pattern, regular expression searched into SQL statement, case insensitive,
+	 * @param maxMillis execution time limit, in milliseconds.
+	 */
+	protected static void assertP99Latency(SqlCapture capture, String pattern, double maxMillis) {
+		double p99 = capture.getLatencyPercentile(pattern, 0.99) / 1000000.0;
+		if (p99 > maxMillis) {
+			fail(String.format("SQL executions matching |%s| p99 latency is %.3f ms, exceeding %.3f ms limit.", pattern, p99, maxMillis));
+		}
+	}
 }
@@ -0,0 +1,374 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.AssertionFailedError;
+
+/**
+ * Assert that database content matches expected data set. Only tables and columns present in expected data set are
+ * compared; expected table should contain exactly expected rows. Values are compared in canonical form, driven by
+ * columns SQL types, e.g. numbers by numeric value and booleans as <code>1</code> or <code>0</code>.
+ * <p>
+ * Every table is first checked with an order independent hash of its rows, computed while streaming table content, so
+ * that matching tables are confirmed without keeping database rows in memory. Only if hashes differ table is streamed
+ * again, ordered by primary key, and rows are matched by key against expected rows, collecting differences. Tables
+ * without primary key are matched by entire row content. Assertion fails with the first differences, limited to
+ * configured maximum.
+ */
+class AssertDB extends Work
+{
+  /** Canonical form of SQL null; data set empty value stands for null. */
+  private static final String NULL = "\u0000null";
+  /** Separator for canonical values concatenated into row and key strings. */
+  private static final char SEPARATOR = '\u0000';
+
+  private final Iterator<RowDescriptor> rows;
+  private final int maxDifferences;
+  private final List<String> differences = new ArrayList<>();
+
+  public AssertDB(Iterator<RowDescriptor> rows, int maxDifferences)
+  {
+    this.rows = rows;
+    this.maxDifferences = maxDifferences;
+  }
+
+  @Override
+  public Object execute(Connection connection) throws SQLException
+  {
+    TableGraph graph = TableGraph.getInstance(connection, driver, listener);
+
+    Map<String, List<RowDescriptor>> dataSet = new LinkedHashMap<>();
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      String tableName = driver.getIdentifier(row.getTableName());
+      List<RowDescriptor> tableRows = dataSet.get(tableName);
+      if(tableRows == null) {
+        tableRows = new ArrayList<>();
+        dataSet.put(tableName, tableRows);
+      }
+      tableRows.add(row);
+    }
+
+    for(Map.Entry<String, List<RowDescriptor>> entry : dataSet.entrySet()) {
+      if(differences.size() >= maxDifferences) {
+        break;
+      }
+      if(!graph.getLoadOrder().contains(entry.getKey())) {
+        differences.add(String.format("%s: table not found", entry.getKey()));
+        continue;
+      }
+      assertTable(connection, graph, entry.getKey(), entry.getValue());
+    }
+
+    if(!differences.isEmpty()) {
+      StringBuilder message = new StringBuilder("Database content does not match expected data set:");
+      for(String difference : differences) {
+        message.append("\r\n\t- ");
+        message.append(difference);
+      }
+      throw new AssertionFailedError(message.toString());
+    }
+    return null;
+  }
+
+  private void assertTable(Connection connection, TableGraph graph, String tableName, List<RowDescriptor> expectedRows) throws SQLException
+  {
+    Map<String, Integer> types = graph.getColumnTypes(connection, driver, tableName, listener);
+    List<String> primaryKey = graph.getPrimaryKey(connection, driver, tableName, listener);
+
+    // columns of the first row are hashed; rows with different columns disable hash fast path
+    List<String> columns = new ArrayList<>();
+    boolean uniform = true;
+    List<Map<String, String>> expected = new ArrayList<>();
+    for(RowDescriptor row : expectedRows) {
+      Map<String, String> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      Iterator<ColumnDescriptor> it = row.getColumns();
+      while(it.hasNext()) {
+        ColumnDescriptor column = it.next();
+        if(!types.containsKey(column.getName())) {
+          differences.add(String.format("%s: column %s not found", tableName, column.getName()));
+          return;
+        }
+        if(column.getExternal() != null) {
+          differences.add(String.format("%s: external value of column %s cannot be compared", tableName, column.getName()));
+          return;
+        }
+        values.put(column.getName(), canonical(column.getValue(), types.get(column.getName())));
+      }
+      if(expected.isEmpty()) {
+        columns.addAll(values.keySet());
+      }
+      else if(uniform && !columns.equals(new ArrayList<>(values.keySet()))) {
+        uniform = false;
+      }
+      expected.add(values);
+    }
+
+    if(uniform && matchesHash(connection, tableName, columns, types, expected)) {
+      return;
+    }
+    compareRows(connection, tableName, primaryKey, types, expected);
+  }
+
+  private boolean matchesHash(Connection connection, String tableName, List<String> columns, Map<String, Integer> types, List<Map<String, String>> expected) throws SQLException
+  {
+    long expectedHash = 0;
+    for(Map<String, String> values : expected) {
+      expectedHash += hash(rowString(columns, values));
+    }
+
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for(int i = 0; i < columns.size(); ++i) {
+      if(i > 0) {
+        sql.append(',');
+      }
+      sql.append(driver.getQualifiedColumnName(columns.get(i)));
+    }
+    sql.append(" FROM ");
+    sql.append(driver.getQualifiedTableName(tableName));
+    print(sql);
+
+    long hash = 0;
+    long rowsCount = 0;
+    Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      statement.setFetchSize(driver.getFetchSize());
+      ResultSet rs = statement.executeQuery(sql.toString());
+      StringBuilder row = new StringBuilder();
+      while(rs.next()) {
+        row.setLength(0);
+        for(int i = 0; i < columns.size(); ++i) {
+          Integer type = types.get(columns.get(i));
+          row.append(canonical(Values.getValue(rs, i + 1, type), type)).append(SEPARATOR);
+        }
+        hash += hash(row.toString());
+        ++rowsCount;
+      }
+      rs.close();
+    }
+    finally {
+      statement.close();
+    }
+    return rowsCount == expected.size() && hash == expectedHash;
+  }
+
+  private void compareRows(Connection connection, String tableName, List<String> primaryKey, Map<String, Integer> types, List<Map<String, String>> expected) throws SQLException
+  {
+    // expected rows by key; for tables without primary key, key is entire row and value is a list of equal rows
+    Map<String, List<Map<String, String>>> expectedRows = new LinkedHashMap<>();
+    for(Map<String, String> values : expected) {
+      String key = rowString(primaryKey.isEmpty() ? values.keySet() : primaryKey, values);
+      List<Map<String, String>> keyRows = expectedRows.get(key);
+      if(keyRows == null) {
+        keyRows = new ArrayList<>(1);
+        expectedRows.put(key, keyRows);
+      }
+      keyRows.add(values);
+    }
+
+    StringBuilder sql = new StringBuilder("SELECT * FROM ");
+    sql.append(driver.getQualifiedTableName(tableName));
+    for(int i = 0; i < primaryKey.size(); ++i) {
+      sql.append(i == 0 ? " ORDER BY " : ",");
+      sql.append(driver.getQualifiedColumnName(primaryKey.get(i)));
+    }
+    print(sql);
+
+    Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      statement.setFetchSize(driver.getFetchSize());
+      ResultSet rs = statement.executeQuery(sql.toString());
+      ResultSetMetaData meta = rs.getMetaData();
+      while(rs.next() && differences.size() < maxDifferences) {
+        Map<String, String> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for(int i = 1; i <= meta.getColumnCount(); ++i) {
+          Integer type = types.get(meta.getColumnLabel(i));
+          values.put(meta.getColumnLabel(i), canonical(Values.getValue(rs, i, type != null ? type : meta.getColumnType(i)), type));
+        }
+
+        if(primaryKey.isEmpty()) {
+          String key = rowString(expected.isEmpty() ? values.keySet() : expected.get(0).keySet(), values);
+          List<Map<String, String>> keyRows = expectedRows.get(key);
+          if(keyRows == null) {
+            differences.add(String.format("%s: unexpected row %s", tableName, display(values)));
+            continue;
+          }
+          remove(expectedRows, key, keyRows);
+          continue;
+        }
+
+        String key = rowString(primaryKey, values);
+        List<Map<String, String>> keyRows = expectedRows.remove(key);
+        if(keyRows == null) {
+          differences.add(String.format("%s: unexpected row with key %s", tableName, displayKey(primaryKey, values)));
+          continue;
+        }
+        for(Map.Entry<String, String> column : keyRows.get(0).entrySet()) {
+          String value = values.get(column.getKey());
+          if(!column.getValue().equals(value)) {
+            differences.add(String.format("%s: row with key %s, column %s expected <%s> but was <%s>", tableName, displayKey(primaryKey, values), column.getKey(), display(column.getValue()), display(value)));
+            break;
+          }
+        }
+      }
+      rs.close();
+    }
+    finally {
+      statement.close();
+    }
+
+    for(List<Map<String, String>> keyRows : expectedRows.values()) {
+      for(Map<String, String> values : keyRows) {
+        if(differences.size() >= maxDifferences) {
+          return;
+        }
+        if(primaryKey.isEmpty()) {
+          differences.add(String.format("%s: missing row %s", tableName, display(values)));
+        }
+        else {
+          differences.add(String.format("%s: missing row with key %s", tableName, displayKey(primaryKey, values)));
+        }
+      }
+    }
+  }
+
+  private static void remove(Map<String, List<Map<String, String>>> expectedRows, String key, List<Map<String, String>> keyRows)
+  {
+    keyRows.remove(keyRows.size() - 1);
+    if(keyRows.isEmpty()) {
+      expectedRows.remove(key);
+    }
+  }
+
+  private void print(CharSequence sql)
+  {
+    if(verbose) {
+      System.out.println(sql);
+    }
+  }
+
+  /**
+   * Convert data set value to canonical form for column SQL type. Empty value stands for SQL null, since data set has no
+   * distinct representation for empty string.
+   * 
+   * @param value data set value,
+   * @param sqlType column SQL type, possible null.
+   * @return canonical value.
+   */
+  private static String canonical(String value, Integer sqlType)
+  {
+    return value == null || value.isEmpty() ? NULL : canonicalString(value, sqlType);
+  }
+
+  /**
+   * Convert database value to canonical form for column SQL type. As for data set values, empty string is null, so that
+   * an empty data set value matches both SQL null and empty string, the way databases like Oracle store it anyway.
+   * 
+   * @param value database value, possible null,
+   * @param sqlType column SQL type, possible null.
+   * @return canonical value.
+   */
+  private static String canonical(Object value, Integer sqlType)
+  {
+    return canonical(Values.toString(value), sqlType);
+  }
+
+  private static String canonicalString(String value, Integer sqlType)
+  {
+    if(sqlType == null) {
+      return value;
+    }
+    switch(sqlType) {
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.INTEGER:
+    case Types.BIGINT:
+    case Types.DECIMAL:
+    case Types.NUMERIC:
+    case Types.REAL:
+    case Types.FLOAT:
+    case Types.DOUBLE:
+      return Values.key(value.trim());
+
+    case Types.BIT:
+    case Types.BOOLEAN:
+      return value.equals("1") || value.equalsIgnoreCase("true") ? "1" : "0";
+
+    case Types.TIMESTAMP:
+      try {
+        return Values.toString(InsertTableValues.parseTimestamp(value));
+      }
+      catch(IllegalArgumentException unused) {
+        return value;
+      }
+
+    default:
+      return value;
+    }
+  }
+
+  private static String rowString(Iterable<String> columns, Map<String, String> values)
+  {
+    StringBuilder row = new StringBuilder();
+    for(String column : columns) {
+      String value = values.get(column);
+      row.append(value != null ? value : NULL).append(SEPARATOR);
+    }
+    return row.toString();
+  }
+
+  private static String displayKey(List<String> primaryKey, Map<String, String> values)
+  {
+    StringBuilder key = new StringBuilder("[");
+    for(int i = 0; i < primaryKey.size(); ++i) {
+      if(i > 0) {
+        key.append(", ");
+      }
+      key.append(display(values.get(primaryKey.get(i))));
+    }
+    return key.append(']').toString();
+  }
+
+  private static String display(Map<String, String> values)
+  {
+    StringBuilder row = new StringBuilder("{");
+    for(Map.Entry<String, String> value : values.entrySet()) {
+      if(row.length() > 1) {
+        row.append(", ");
+      }
+      row.append(value.getKey()).append('=').append(display(value.getValue()));
+    }
+    return row.append('}').toString();
+  }
+
+  private static String display(String value)
+  {
+    return value == null || value.equals(NULL) ? "null" : value;
+  }
+
+  /** 64 bits FNV-1a hash, finalized with a mixer so that hashes can be summed into an order independent table hash. */
+  private static long hash(String value)
+  {
+    long hash = 0xCBF29CE484222325L;
+    for(int i = 0; i < value.length(); ++i) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,59 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Insert data set rows using driver native bulk path, see {@link Driver#bulkInsert(Connection, List, Integer[])}.
+ * Consecutive rows with the same shape are grouped into bulks, limited to configured bulk size; a change of shape
+ * flushes current bulk. Every bulk is counted as a batch on load report.
+ */
+class BulkInsert extends Work
+{
+  private final Iterator<RowDescriptor> rows;
+  private final int bulkSize;
+  private final LoadReport report;
+
+  public BulkInsert(Iterator<RowDescriptor> rows, int bulkSize, LoadReport report)
+  {
+    this.rows = rows;
+    this.bulkSize = bulkSize;
+    this.report = report;
+  }
+
+  @Override
+  public Object execute(Connection connection) throws SQLException
+  {
+    List<RowDescriptor> bulk = new ArrayList<>();
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      if(row.isEmpty()) {
+        continue;
+      }
+      if(!bulk.isEmpty() && (bulk.size() == bulkSize || !bulk.get(0).hasSameShape(row))) {
+        executeBulk(connection, bulk);
+        bulk.clear();
+      }
+      bulk.add(row);
+    }
+    if(!bulk.isEmpty()) {
+      executeBulk(connection, bulk);
+    }
+    return null;
+  }
+
+  private void executeBulk(Connection connection, List<RowDescriptor> bulk) throws SQLException
+  {
+    String tableName = bulk.get(0).getTableName();
+    if(verbose) {
+      System.out.println(String.format("Bulk insert of %d rows into %s", bulk.size(), driver.getQualifiedTableName(tableName)));
+    }
+    long start = System.nanoTime();
+    driver.bulkInsert(connection, bulk, statements.getColumnTypes(driver, bulk.get(0)));
+    report.addBatch(tableName, bulk.size());
+    listener.onBatch(driver.getIdentifier(tableName), bulk.size(), System.nanoTime() - start);
+  }
+}
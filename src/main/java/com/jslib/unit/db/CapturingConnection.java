@@ -0,0 +1,288 @@
+package com.jslib.unit.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection recording executed SQL statements into a {@link SqlCapture}. Statements created by this connection are
+ * wrapped so that every execution is timed and recorded, together with bound parameters count and batch size; result
+ * sets count fetched rows. Batches of SQL statements added with {@link Statement#addBatch(String)} are recorded one
+ * entry per statement, batch execution time being evenly split among them. Result sets, including generated keys,
+ * return the capturing statement. All other operations are delegated to wrapped connection.
+ */
+class CapturingConnection implements InvocationHandler
+{
+  static Connection newInstance(Connection connection, SqlCapture capture)
+  {
+    return (Connection)Proxy.newProxyInstance(CapturingConnection.class.getClassLoader(), new Class<?>[]
+    {
+        Connection.class
+    }, new CapturingConnection(connection, capture));
+  }
+
+  private final Connection connection;
+  private final SqlCapture capture;
+
+  private CapturingConnection(Connection connection, SqlCapture capture)
+  {
+    this.connection = connection;
+    this.capture = capture;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+  {
+    switch(method.getName()) {
+    case "equals":
+      return proxy == args[0];
+
+    case "hashCode":
+      return System.identityHashCode(proxy);
+    }
+
+    Object value;
+    try {
+      value = method.invoke(connection, args);
+    }
+    catch(InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+
+    switch(method.getName()) {
+    case "createStatement":
+      return statement(Statement.class, value, null, proxy);
+
+    case "prepareStatement":
+      return statement(PreparedStatement.class, value, (String)args[0], proxy);
+
+    case "prepareCall":
+      return statement(CallableStatement.class, value, (String)args[0], proxy);
+
+    case "toString":
+      return "Capturing " + value;
+    }
+    return value;
+  }
+
+  private Object statement(Class<? extends Statement> interfaceClass, Object statement, String sql, Object connectionProxy)
+  {
+    return Proxy.newProxyInstance(CapturingConnection.class.getClassLoader(), new Class<?>[]
+    {
+        interfaceClass
+    }, new CapturingStatement((Statement)statement, sql, (Connection)connectionProxy));
+  }
+
+  /** Statement recording its executions. Bound parameters and batch counters are reset after every execution. */
+  private class CapturingStatement implements InvocationHandler
+  {
+    private final Statement statement;
+    /** Prepared statement SQL, null for plain statements. */
+    private final String sql;
+    private final Connection connectionProxy;
+    /** SQL statements added to batch with {@link Statement#addBatch(String)}, in addition order. */
+    private final List<String> batchSQL = new ArrayList<>();
+    private int bindCount;
+    private int batchSize;
+    /** Last execution, updated with fetched rows by result set returned by {@link Statement#getResultSet()}. */
+    private SqlCapture.Entry lastEntry;
+
+    CapturingStatement(Statement statement, String sql, Connection connectionProxy)
+    {
+      this.statement = statement;
+      this.sql = sql;
+      this.connectionProxy = connectionProxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+      String name = method.getName();
+      switch(name) {
+      case "execute":
+      case "executeQuery":
+      case "executeUpdate":
+      case "executeLargeUpdate":
+        return execute(method, args, proxy);
+
+      case "executeBatch":
+      case "executeLargeBatch":
+        return batchSQL.isEmpty() ? execute(method, args, proxy) : executeBatch(method, args);
+
+      case "addBatch":
+        if(args != null) {
+          batchSQL.add((String)args[0]);
+        }
+        ++batchSize;
+        break;
+
+      case "clearBatch":
+        batchSQL.clear();
+        batchSize = 0;
+        bindCount = 0;
+        break;
+
+      case "clearParameters":
+        bindCount = 0;
+        break;
+
+      case "getResultSet":
+        ResultSet rs = (ResultSet)delegate(method, args);
+        return rs != null ? resultSet(rs, lastEntry, (Statement)proxy) : rs;
+
+      case "getGeneratedKeys":
+        // generated keys are not counted as fetched rows
+        rs = (ResultSet)delegate(method, args);
+        return rs != null ? resultSet(rs, null, (Statement)proxy) : rs;
+
+      case "getConnection":
+        return connectionProxy;
+
+      case "toString":
+        return "Capturing " + statement;
+
+      case "equals":
+        return proxy == args[0];
+
+      case "hashCode":
+        return System.identityHashCode(proxy);
+
+      default:
+        // parameter setters have index or name and value; statement own setters have a single argument
+        if(name.startsWith("set") && args != null && args.length > 1) {
+          ++bindCount;
+        }
+      }
+      return delegate(method, args);
+    }
+
+    private Object execute(Method method, Object[] args, Object proxy) throws Throwable
+    {
+      String executedSQL = args != null && args.length > 0 && args[0] instanceof String ? (String)args[0] : sql;
+      Object value;
+      long start = System.nanoTime();
+      try {
+        value = delegate(method, args);
+      }
+      finally {
+        lastEntry = capture.record(executedSQL, bindCount, batchSize, System.nanoTime() - start);
+        bindCount = 0;
+        batchSize = 0;
+      }
+
+      if(value instanceof ResultSet) {
+        return resultSet((ResultSet)value, lastEntry, (Statement)proxy);
+      }
+      if(value instanceof Integer || value instanceof Long) {
+        lastEntry.setRows(((Number)value).longValue());
+      }
+      else if(value instanceof int[]) {
+        long rows = 0;
+        for(int count : (int[])value) {
+          rows += Math.max(count, 0);
+        }
+        lastEntry.setRows(rows);
+      }
+      else if(value instanceof long[]) {
+        long rows = 0;
+        for(long count : (long[])value) {
+          rows += Math.max(count, 0);
+        }
+        lastEntry.setRows(rows);
+      }
+      return value;
+    }
+
+    /**
+     * Execute batch of SQL statements and record an entry for every statement, with its own updated rows count, if
+     * reported by driver. Batch execution time is evenly split among statements.
+     */
+    private Object executeBatch(Method method, Object[] args) throws Throwable
+    {
+      List<String> statements = new ArrayList<>(batchSQL);
+      int size = batchSize;
+      Object value = null;
+      long start = System.nanoTime();
+      try {
+        value = delegate(method, args);
+      }
+      finally {
+        long nanos = (System.nanoTime() - start) / statements.size();
+        for(int i = 0; i < statements.size(); ++i) {
+          lastEntry = capture.record(statements.get(i), 0, size, nanos);
+          if(value instanceof int[] && i < ((int[])value).length) {
+            lastEntry.setRows(Math.max(((int[])value)[i], 0));
+          }
+          else if(value instanceof long[] && i < ((long[])value).length) {
+            lastEntry.setRows(Math.max(((long[])value)[i], 0));
+          }
+        }
+        bindCount = 0;
+        batchSize = 0;
+        batchSQL.clear();
+      }
+      return value;
+    }
+
+    private Object delegate(Method method, Object[] args) throws Throwable
+    {
+      try {
+        return method.invoke(statement, args);
+      }
+      catch(InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    }
+  }
+
+  /**
+   * Wrap result set so that fetched rows are counted on given execution and {@link ResultSet#getStatement()} returns
+   * capturing statement.
+   *
+   * @param rs result set to wrap,
+   * @param entry execution updated with fetched rows, null if rows are not counted,
+   * @param statementProxy capturing statement that created result set.
+   */
+  private static ResultSet resultSet(final ResultSet rs, final SqlCapture.Entry entry, final Statement statementProxy)
+  {
+    return (ResultSet)Proxy.newProxyInstance(CapturingConnection.class.getClassLoader(), new Class<?>[]
+    {
+        ResultSet.class
+    }, new InvocationHandler()
+    {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+      {
+        switch(method.getName()) {
+        case "getStatement":
+          return statementProxy;
+
+        case "equals":
+          return proxy == args[0];
+
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        }
+        Object value;
+        try {
+          value = method.invoke(rs, args);
+        }
+        catch(InvocationTargetException e) {
+          throw e.getTargetException();
+        }
+        if(entry != null && Boolean.TRUE.equals(value) && method.getName().equals("next")) {
+          entry.incrementRows();
+        }
+        return value;
+      }
+    });
+  }
+}
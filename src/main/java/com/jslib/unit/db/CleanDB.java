@@ -1,95 +1,65 @@
 package com.jslib.unit.db;
 
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-
-import com.jslib.unit.db.Database.Table;
 
 class CleanDB extends Work
 {
+  private final ClearStrategy strategy;
+
+  public CleanDB()
+  {
+    this(ClearStrategy.DELETE);
+  }
+
+  public CleanDB(ClearStrategy strategy)
+  {
+    this.strategy = strategy;
+  }
+
   @Override
   public Object execute(Connection connection) throws SQLException
   {
-    DatabaseMetaData meta = connection.getMetaData();
-    ResultSet rs = meta.getTables(driver.getCatalog(), driver.getSchema(), null, new String[]
-    {
-        "TABLE"
-    });
-
-    Map<String, Table> tablesMap = new HashMap<String, Table>();
-    while(rs.next()) {
-      final String tableName = rs.getString(3);
-      tablesMap.put(tableName, new Table(tableName));
+    TableGraph graph = TableGraph.getInstance(connection, driver, listener);
+    if(verbose && !graph.getCyclicTables().isEmpty()) {
+      System.out.println("Foreign keys cycle between tables: " + graph.getCyclicTables());
     }
 
-    for(Table table : tablesMap.values()) {
-      rs = meta.getImportedKeys(driver.getCatalog(), driver.getSchema(), table.name);
-      while(rs.next()) {
-        String foreignKeyTableName = rs.getString(3);
-        // avoid self-referencing foreign keys
-        if(foreignKeyTableName.equals(table.name)) {
-          continue;
-        }
-        Table foreignTable = tablesMap.get(foreignKeyTableName);
-        if(foreignTable == null) {
-          throw new IllegalStateException(String.format("Foreign key constrain to not existing table:\r\n\t- referencing table: %s\r\n\t- foreign table: %s",
-              table.name, foreignKeyTableName));
+    List<String> restoreStatements = Collections.emptyList();
+    Statement stm = connection.createStatement();
+    try {
+      if(strategy == ClearStrategy.TRUNCATE) {
+        restoreStatements = driver.disableForeignKeys(connection);
+      }
+
+      for(String tableName : graph.getDeleteOrder()) {
+        boolean truncate = strategy == ClearStrategy.TRUNCATE && driver.supportsTruncate(graph.isReferenced(tableName));
+        String sql = (truncate ? "TRUNCATE TABLE " : "DELETE FROM ") + driver.getQualifiedTableName(tableName);
+        if(verbose) {
+          System.out.println(sql);
         }
-        table.addForeignKey(tablesMap.get(foreignKeyTableName));
+        long start = System.nanoTime();
+        stm.execute(sql);
+        listener.onTableClear(tableName, System.nanoTime() - start);
       }
     }
-
-    List<Table> tablesToDrop = new ArrayList<Table>();
-    collect(tablesToDrop, tablesMap.values());
-    for(Table table : tablesToDrop) {
-      Statement stm = connection.createStatement();
-      StringBuilder sql = new StringBuilder();
-      sql.append("DELETE FROM ");
-
-      if(driver.hasSchema()) {
-        sql.append(driver.getTableQuotationMark());
-        sql.append(driver.getSchema());
-        sql.append(driver.getTableQuotationMark());
-        sql.append('.');
+    finally {
+      try {
+        for(String sql : restoreStatements) {
+          if(verbose) {
+            System.out.println(sql);
+          }
+          stm.execute(sql);
+        }
       }
-
-      sql.append(driver.getTableQuotationMark());
-      sql.append(table.name);
-      sql.append(driver.getTableQuotationMark());
-
-      if(verbose) {
-        System.out.println(sql);
+      finally {
+        stm.close();
       }
-      stm.execute(sql.toString());
     }
 
     return null;
   }
-
-  private void collect(Collection<Table> tablesToDrop, Collection<Table> tablesHierarchy, int... guardArgument)
-  {
-    int guard = guardArgument.length == 1 ? guardArgument[0] : 0;
-    if(++guard == 8) {
-      return;
-    }
-
-    Iterator<Table> it = tablesHierarchy.iterator();
-    while(it.hasNext()) {
-      Table table = it.next();
-      collect(tablesToDrop, table.dependencies, guard);
-      if(!tablesToDrop.contains(table)) {
-        tablesToDrop.add(table);
-      }
-      it.remove();
-    }
-  }
 }
\ No newline at end of file
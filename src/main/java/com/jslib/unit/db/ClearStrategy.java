@@ -0,0 +1,22 @@
+package com.jslib.unit.db;
+
+/**
+ * Strategy used to remove tables content before loading a data set.
+ */
+public enum ClearStrategy
+{
+  /**
+   * Delete rows with <code>DELETE FROM</code>, tables being processed in foreign keys order. This is the default and
+   * portable strategy; it is transactional but slow on large tables since rows are deleted one by one, fully logged
+   * and triggers are fired.
+   */
+  DELETE,
+
+  /**
+   * Use <code>TRUNCATE TABLE</code> where driver supports it, temporarily disabling foreign keys checking if required,
+   * and fallback to <code>DELETE FROM</code> for the rest. Much faster on large tables but note that on some servers,
+   * e.g. MySQL and Oracle, truncate is DDL and implicitly commits current transaction; on these servers truncate is
+   * rejected inside transaction, see {@link Driver#isTruncateTransactional()}.
+   */
+  TRUNCATE
+}
@@ -4,15 +4,19 @@ class ColumnDescriptor {
 	private final String name;
 	private String type;
 	private String value;
+	/** Value stored outside data set, in which case string value is null. */
+	private ExternalValue external;
 
-	public ColumnDescriptor(String name) {
+	public ColumnDescriptor(String name, String type, String value) {
 		this.name = name;
+		this.type = type;
+		this.value = value;
 	}
 
-	public ColumnDescriptor(String name, String type, String value) {
+	public ColumnDescriptor(String name, String type, ExternalValue external) {
 		this.name = name;
 		this.type = type;
-		this.value = value;
+		this.external = external;
 	}
 
 	public String getName() {
@@ -23,11 +27,11 @@ class ColumnDescriptor {
 		return type;
 	}
 
-	public void setValue(String value) {
-		this.value = value;
-	}
-
 	public String getValue() {
 		return value;
 	}
+
+	public ExternalValue getExternal() {
+		return external;
+	}
 }
@@ -0,0 +1,249 @@
+package com.jslib.unit.db;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Database descriptor reading data set compiled by {@link DataSetCompiler}. Compiled file is memory mapped and rows are
+ * decoded on demand, while iterating, so there is no XML parsing and memory footprint does not depend on data set size.
+ * Rows can be iterated only once. Compiled files larger than 2GB are not supported.
+ * <p>
+ * Mapping is released by {@link #close()}; otherwise it is released only when buffer is garbage collected and, until
+ * then, compiled file cannot be deleted or replaced on Windows.
+ */
+public class CompiledDatabaseDescriptor implements Closeable
+{
+  private final MappedByteBuffer buffer;
+  private final List<String> names = new ArrayList<>();
+  private byte[] bytes = new byte[256];
+  private boolean iterated;
+  private boolean closed;
+
+  public CompiledDatabaseDescriptor(File file) throws IOException
+  {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      if(channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Compiled data set too large " + file);
+      }
+      // mapping remains valid after channel close
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    finally {
+      channel.close();
+    }
+    if(buffer.getInt() != DataSetCompiler.MAGIC || buffer.getShort() != DataSetCompiler.VERSION) {
+      throw new IOException("Not a compiled data set or not supported version " + file);
+    }
+    // skip source length and hash
+    buffer.position(buffer.position() + 8 + DataSetCompiler.HASH_LENGTH);
+  }
+
+  /**
+   * Get rows iterator. Returned iterator decodes next row from mapped file on the fly and does not support removal.
+   * 
+   * @return rows iterator.
+   * @throws IllegalStateException if rows iterator was already requested or if this descriptor is closed.
+   * @throws JsUnitException if compiled file is corrupted.
+   */
+  public Iterator<RowDescriptor> getRows()
+  {
+    if(iterated) {
+      throw new IllegalStateException("Compiled database descriptor rows can be iterated only once.");
+    }
+    iterated = true;
+
+    return new Iterator<RowDescriptor>()
+    {
+      private RowDescriptor next;
+      private boolean end;
+
+      @Override
+      public boolean hasNext()
+      {
+        if(closed) {
+          throw new IllegalStateException("Compiled database descriptor closed.");
+        }
+        if(next == null && !end) {
+          try {
+            next = readRow();
+            end = next == null;
+          }
+          catch(BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new JsUnitException("Corrupted compiled data set.");
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public RowDescriptor next()
+      {
+        if(!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        RowDescriptor row = next;
+        next = null;
+        return row;
+      }
+    };
+  }
+
+  /**
+   * Release file mapping. Rows already returned by iterator do not reference mapped memory and remain valid but rows
+   * iterator cannot be used anymore. Releasing mapping relies on JDK internal API; if not available mapping is left to
+   * garbage collector.
+   */
+  @Override
+  public void close()
+  {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    unmap(buffer);
+  }
+
+  private static void unmap(MappedByteBuffer buffer)
+  {
+    try {
+      // Java 9 and newer
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+      return;
+    }
+    catch(NoSuchMethodException e) {
+      // Java 8, fall back to direct buffer cleaner
+    }
+    catch(Exception e) {
+      return;
+    }
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if(cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    }
+    catch(Exception e) {
+      // mapping is released when buffer is garbage collected
+    }
+  }
+
+  private RowDescriptor readRow()
+  {
+    int tableIndex = buffer.getInt();
+    if(tableIndex == DataSetCompiler.END_OF_ROWS) {
+      return null;
+    }
+    RowDescriptor row = new RowDescriptor(readName(tableIndex));
+    for(int columnsCount = buffer.getInt(); columnsCount > 0; --columnsCount) {
+      String name = readName(buffer.getInt());
+      String type = readName(buffer.getInt());
+      row.addColumnDescritor(readColumn(name, type));
+    }
+    return row;
+  }
+
+  private String readName(int index)
+  {
+    switch(index) {
+    case DataSetCompiler.NAME_NULL:
+      return null;
+
+    case DataSetCompiler.NAME_DEFINITION:
+      String name = readString();
+      names.add(name);
+      return name;
+
+    default:
+      return names.get(index);
+    }
+  }
+
+  private ColumnDescriptor readColumn(String name, String type)
+  {
+    byte tag = buffer.get();
+    switch(tag) {
+    case DataSetCompiler.VALUE_NULL:
+      return new ColumnDescriptor(name, type, "");
+
+    case DataSetCompiler.VALUE_LONG:
+      return new ColumnDescriptor(name, type, Long.toString(buffer.getLong()));
+
+    case DataSetCompiler.VALUE_STRING:
+      return new ColumnDescriptor(name, type, readString());
+
+    case DataSetCompiler.VALUE_FILE:
+      return new ColumnDescriptor(name, type, ExternalValue.file(readString()));
+
+    case DataSetCompiler.VALUE_RESOURCE:
+      return new ColumnDescriptor(name, type, ExternalValue.resource(readString()));
+
+    default:
+      throw new JsUnitException("Corrupted compiled data set. Invalid value tag |%d|.", tag);
+    }
+  }
+
+  private String readString()
+  {
+    int length = buffer.getInt();
+    if(length > bytes.length) {
+      bytes = new byte[Math.max(length, bytes.length * 2)];
+    }
+    buffer.get(bytes, 0, length);
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read compiled file header without mapping the file.
+   * 
+   * @param file compiled file.
+   * @return compiled file header or null if file is not a compiled data set with supported version.
+   * @throws IOException if file reading fails.
+   */
+  static Header readHeader(File file) throws IOException
+  {
+    DataInputStream stream = new DataInputStream(new FileInputStream(file));
+    try {
+      if(file.length() < 14 + DataSetCompiler.HASH_LENGTH || stream.readInt() != DataSetCompiler.MAGIC || stream.readShort() != DataSetCompiler.VERSION) {
+        return null;
+      }
+      Header header = new Header();
+      header.sourceLength = stream.readLong();
+      header.sourceHash = new byte[DataSetCompiler.HASH_LENGTH];
+      stream.readFully(header.sourceHash);
+      return header;
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  static class Header
+  {
+    long sourceLength;
+    byte[] sourceHash;
+  }
+}
@@ -0,0 +1,214 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal pool for physical database connections. Pools are global, one per database URL and user, so that connections
+ * survive across {@link Session} instances and, consequently, across tests. An idle connection is validated before being
+ * reused and evicted if broken. This pool is thread safe.
+ */
+public class ConnectionPool
+{
+  /** Timeout, in seconds, for idle connection validation. */
+  private static final int VALIDATION_TIMEOUT = 2;
+  /** Default maximum number of idle connections kept by a pool. */
+  private static final int MAX_IDLE = 8;
+
+  private static final Map<String, ConnectionPool> POOLS = new HashMap<>();
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread()
+    {
+      @Override
+      public void run()
+      {
+        closeAll();
+      }
+    });
+  }
+
+  /**
+   * Get the pool for given driver URL and user, creating it on the fly.
+   *
+   * @param driver database driver.
+   * @return connections pool, never null.
+   */
+  public static synchronized ConnectionPool getInstance(Driver driver)
+  {
+    String key = driver.getUrl() + '#' + driver.getUser();
+    ConnectionPool pool = POOLS.get(key);
+    if(pool == null) {
+      pool = new ConnectionPool(driver);
+      POOLS.put(key, pool);
+    }
+    return pool;
+  }
+
+  /** Close idle connections from all pools. Pools remain usable after this method returns. */
+  public static synchronized void closeAll()
+  {
+    for(ConnectionPool pool : POOLS.values()) {
+      pool.close();
+    }
+  }
+
+  private final Driver driver;
+  private final Deque<Connection> idleConnections = new ArrayDeque<>();
+  private int maxIdle = MAX_IDLE;
+
+  private long acquireCount;
+  private long reuseCount;
+  private long createCount;
+  private long evictCount;
+
+  private ConnectionPool(Driver driver)
+  {
+    this.driver = driver;
+  }
+
+  public synchronized void setMaxIdle(int maxIdle)
+  {
+    this.maxIdle = maxIdle;
+  }
+
+  Connection acquire() throws SQLException
+  {
+    synchronized(this) {
+      ++acquireCount;
+    }
+    for(;;) {
+      Connection connection;
+      synchronized(this) {
+        connection = idleConnections.pollFirst();
+      }
+      if(connection == null) {
+        break;
+      }
+      if(isValid(connection)) {
+        synchronized(this) {
+          ++reuseCount;
+        }
+        return connection;
+      }
+      evict(connection);
+    }
+
+    Connection connection = Session.openConnection(driver);
+    synchronized(this) {
+      ++createCount;
+    }
+    return connection;
+  }
+
+  void release(Connection connection)
+  {
+    try {
+      if(connection.isClosed()) {
+        synchronized(this) {
+          ++evictCount;
+        }
+        return;
+      }
+      if(!connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+    }
+    catch(SQLException e) {
+      evict(connection);
+      return;
+    }
+
+    synchronized(this) {
+      if(idleConnections.size() < maxIdle) {
+        idleConnections.addFirst(connection);
+        return;
+      }
+    }
+    closeQuietly(connection);
+  }
+
+  /** Close all idle connections. Connections currently in use are closed when released, if pool is full. */
+  public void close()
+  {
+    Deque<Connection> connections;
+    synchronized(this) {
+      connections = new ArrayDeque<>(idleConnections);
+      idleConnections.clear();
+    }
+    for(Connection connection : connections) {
+      closeQuietly(connection);
+    }
+  }
+
+  public synchronized long getAcquireCount()
+  {
+    return acquireCount;
+  }
+
+  public synchronized long getReuseCount()
+  {
+    return reuseCount;
+  }
+
+  public synchronized long getCreateCount()
+  {
+    return createCount;
+  }
+
+  public synchronized long getEvictCount()
+  {
+    return evictCount;
+  }
+
+  public synchronized int getIdleCount()
+  {
+    return idleConnections.size();
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return String.format("%s: acquired %d, reused %d, created %d, evicted %d, idle %d", driver.getUrl(), acquireCount, reuseCount, createCount, evictCount, idleConnections.size());
+  }
+
+  private void evict(Connection connection)
+  {
+    synchronized(this) {
+      ++evictCount;
+    }
+    closeQuietly(connection);
+  }
+
+  private static boolean isValid(Connection connection)
+  {
+    try {
+      return connection.isValid(VALIDATION_TIMEOUT);
+    }
+    catch(SQLException e) {
+      return false;
+    }
+    catch(AbstractMethodError e) {
+      // legacy JDBC 3 drivers, e.g. jTDS, does not implement validation; fallback to closed state test
+      try {
+        return !connection.isClosed();
+      }
+      catch(SQLException unused) {
+        return false;
+      }
+    }
+  }
+
+  private static void closeQuietly(Connection connection)
+  {
+    try {
+      connection.close();
+    }
+    catch(SQLException ignore) {
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.jslib.unit.db;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Listener appending every event as a line to a CSV file, for offline analysis. Columns are: event time in milliseconds
+ * since epoch, event name, table name, rows count and duration in nanoseconds; not applicable columns are empty. Lines
+ * are buffered and written to file when buffer is full and on {@link #close()}, also invoked on JVM shutdown for
+ * listeners not closed by then. I/O errors are not propagated to database work but disable the listener. This class is
+ * thread safe.
+ */
+public class CsvListener implements DatabaseListener, Closeable
+{
+  private static final String HEADER = "time,event,table,rows,nanos";
+
+  private Writer writer;
+  private final Runnable shutdownAction = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      close();
+    }
+  };
+
+  /**
+   * Create listener appending to given file. Header line is written only if file is new or empty.
+   * 
+   * @param file CSV file.
+   * @throws IOException if file cannot be opened.
+   */
+  public CsvListener(File file) throws IOException
+  {
+    boolean header = file.length() == 0;
+    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    if(header) {
+      write(HEADER);
+    }
+    ShutdownHook.add(shutdownAction);
+  }
+
+  @Override
+  public void onConnectionAcquire(long nanos)
+  {
+    write(System.currentTimeMillis() + ",acquire,,," + nanos);
+  }
+
+  @Override
+  public void onMetaData(String tableName, long nanos)
+  {
+    write(System.currentTimeMillis() + ",metadata," + (tableName != null ? tableName : "") + ",," + nanos);
+  }
+
+  @Override
+  public void onTableClear(String tableName, long nanos)
+  {
+    write(System.currentTimeMillis() + ",clear," + tableName + ",," + nanos);
+  }
+
+  @Override
+  public void onBatch(String tableName, int rowsCount, long nanos)
+  {
+    write(System.currentTimeMillis() + ",batch," + tableName + "," + rowsCount + "," + nanos);
+  }
+
+  private synchronized void write(String line)
+  {
+    if(writer == null) {
+      return;
+    }
+    try {
+      writer.write(line);
+      writer.write("\r\n");
+    }
+    catch(IOException e) {
+      close();
+    }
+  }
+
+  /** Flush buffered lines and close file. Events received after close are ignored. */
+  @Override
+  public synchronized void close()
+  {
+    if(writer == null) {
+      return;
+    }
+    ShutdownHook.remove(shutdownAction);
+    try {
+      writer.close();
+    }
+    catch(IOException ignore) {
+    }
+    writer = null;
+  }
+}
@@ -0,0 +1,168 @@
+package com.jslib.unit.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jslib.unit.JsUnitException;
+import com.jslib.unit.util.Classes;
+
+/**
+ * Cache for parsed data sets, keyed by resource name and content hash, so that a fixture loaded by many tests is parsed
+ * only once while a changed resource is parsed again. Resource content is still read on every request, to compute its
+ * hash, but reading is much cheaper than XML parsing. Cache is bounded and evicts least recently used data set when
+ * full. Cached rows are shared and should not be modified. This class is thread safe.
+ */
+public final class DataSetCache
+{
+  /** Default maximum number of cached data sets. */
+  private static final int MAX_SIZE = 32;
+
+  private static final DataSetCache INSTANCE = new DataSetCache();
+
+  /**
+   * Get global data set cache, used by {@link Database#load(String)}.
+   * 
+   * @return global cache instance.
+   */
+  public static DataSetCache getInstance()
+  {
+    return INSTANCE;
+  }
+
+  private final Map<String, List<RowDescriptor>> dataSets = new LinkedHashMap<String, List<RowDescriptor>>(16, 0.75F, true)
+  {
+    private static final long serialVersionUID = -5076358434574113478L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, List<RowDescriptor>> eldest)
+    {
+      return size() > maxSize;
+    }
+  };
+  private int maxSize = MAX_SIZE;
+
+  private long hitsCount;
+  private long missesCount;
+
+  /**
+   * Set maximum number of cached data sets. If cache is larger than new size least recently used data sets are evicted.
+   * 
+   * @param maxSize maximum cache size, strictly positive.
+   */
+  public synchronized void setMaxSize(int maxSize)
+  {
+    if(maxSize < 1) {
+      throw new IllegalArgumentException("Cache size should be strictly positive.");
+    }
+    this.maxSize = maxSize;
+    Iterator<String> it = dataSets.keySet().iterator();
+    while(dataSets.size() > maxSize) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  /**
+   * Get parsed rows of data set from named resource, parsing it on cache miss. Resource is located with
+   * {@link Classes#getResourceAsStream(String)}.
+   * 
+   * @param resource data set resource name.
+   * @return data set rows, unmodifiable.
+   * @throws JsUnitException if resource is missing, cannot be read or is not well formed.
+   */
+  public List<RowDescriptor> getRows(String resource)
+  {
+    byte[] content = read(resource);
+    // resource names are absolute, with or without leading path separator
+    String key = (resource.startsWith("/") ? resource.substring(1) : resource) + '#' + hash(content);
+    synchronized(this) {
+      List<RowDescriptor> rows = dataSets.get(key);
+      if(rows != null) {
+        ++hitsCount;
+        return rows;
+      }
+      ++missesCount;
+    }
+
+    // parse outside lock; concurrent misses for the same data set parse it twice, with the same result
+    List<RowDescriptor> rows = new ArrayList<>();
+    Iterator<RowDescriptor> it = new StreamingDatabaseDescriptor(new ByteArrayInputStream(content)).getRows();
+    while(it.hasNext()) {
+      rows.add(it.next());
+    }
+    rows = Collections.unmodifiableList(rows);
+    synchronized(this) {
+      dataSets.put(key, rows);
+    }
+    return rows;
+  }
+
+  /** Remove all cached data sets. Hit and miss counters are not reset. */
+  public synchronized void clear()
+  {
+    dataSets.clear();
+  }
+
+  public synchronized int size()
+  {
+    return dataSets.size();
+  }
+
+  public synchronized long getHitsCount()
+  {
+    return hitsCount;
+  }
+
+  public synchronized long getMissesCount()
+  {
+    return missesCount;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return String.format("data sets %d/%d, hits %d, misses %d", dataSets.size(), maxSize, hitsCount, missesCount);
+  }
+
+  private static byte[] read(String resource)
+  {
+    InputStream stream = Classes.getResourceAsStream(resource);
+    try {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int length;
+      while((length = stream.read(buffer)) != -1) {
+        content.write(buffer, 0, length);
+      }
+      return content.toByteArray();
+    }
+    catch(IOException e) {
+      throw new JsUnitException(e);
+    }
+    finally {
+      try {
+        stream.close();
+      }
+      catch(IOException ignore) {
+      }
+    }
+  }
+
+  /** Content hash, with the same digest as compiled data sets, see {@link DataSetCompiler#digest()}. */
+  private static String hash(byte[] content)
+  {
+    StringBuilder hash = new StringBuilder();
+    for(byte b : DataSetCompiler.digest().digest(content)) {
+      hash.append(String.format("%02x", b));
+    }
+    return hash.toString();
+  }
+}
@@ -0,0 +1,269 @@
+package com.jslib.unit.db;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Compile data set XML into compact binary format, loaded through memory mapping by {@link CompiledDatabaseDescriptor}.
+ * Compiled file starts with a header storing source file length and SHA-256 content hash, used to detect outdated
+ * compiled files, see {@link #compile(File, File)}.
+ * <p>
+ * Binary format, all numbers big endian:
+ * 
+ * <pre>
+ * header  : magic:int version:short source-length:long source-hash:byte[32]
+ * row     : table:name columns-count:int column*
+ * column  : name:name type:name value
+ * name    : index:int            -- reference to already defined name, index &gt;= 0
+ *         | -1 length:int utf-8  -- new name definition, assigned next index
+ *         | -2                   -- null
+ * value   : 0                    -- null, that is, empty column
+ *         | 1 value:long         -- canonical decimal integer
+ *         | 2 length:int utf-8   -- string
+ *         | 3 length:int utf-8   -- external file path
+ *         | 4 length:int utf-8   -- external class path resource
+ * end     : -3                   -- in place of table name
+ * </pre>
+ * 
+ * Table, column and type names are interned: every distinct name is stored once and further referenced by index.
+ */
+public class DataSetCompiler
+{
+  static final int MAGIC = 0x4A534453;
+  static final short VERSION = 3;
+  /** Source content hash length, in bytes. */
+  static final int HASH_LENGTH = 32;
+
+  static final int NAME_DEFINITION = -1;
+  static final int NAME_NULL = -2;
+  static final int END_OF_ROWS = -3;
+
+  static final byte VALUE_NULL = 0;
+  static final byte VALUE_LONG = 1;
+  static final byte VALUE_STRING = 2;
+  static final byte VALUE_FILE = 3;
+  static final byte VALUE_RESOURCE = 4;
+
+  /** Default directory for compiled data sets. */
+  private static final File COMPILED_DIR = new File(System.getProperty("java.io.tmpdir"), "js-unit");
+
+  /**
+   * Get compiled file for given data set source, compiling it if missing or outdated. Compiled file is stored into
+   * <code>js-unit</code> directory from system temporary directory.
+   * 
+   * @param source data set XML file.
+   * @return compiled data set file.
+   * @throws IOException if compilation fails.
+   */
+  public static File getCompiledFile(File source) throws IOException
+  {
+    String name = String.format("%s-%08x.dsb", source.getName(), source.getAbsolutePath().hashCode());
+    File target = new File(COMPILED_DIR, name);
+    compile(source, target);
+    return target;
+  }
+
+  /**
+   * Compile data set source to target file, only if target does not exist or was compiled from a different source
+   * version, as detected by source length and content hash. Modification time is not used since it has coarse resolution
+   * on some file systems and is not preserved by all tools. Compilation writes to a temporary file renamed to target when
+   * complete, so that concurrent processes never see a partially written file.
+   * 
+   * @param source data set XML file,
+   * @param target compiled file.
+   * @return true if compilation was performed, false if target was up to date.
+   * @throws IOException if compilation fails.
+   */
+  public static boolean compile(File source, File target) throws IOException
+  {
+    if(!source.isFile()) {
+      throw new IOException("Missing data set file " + source);
+    }
+    byte[] hash = hash(source);
+    if(isUpToDate(source, hash, target)) {
+      return false;
+    }
+
+    File dir = target.getAbsoluteFile().getParentFile();
+    if(!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Cannot create directory " + dir);
+    }
+    File temp = File.createTempFile(target.getName(), ".tmp", dir);
+    try {
+      InputStream stream = new FileInputStream(source);
+      try {
+        new DataSetCompiler().write(source.length(), hash, new StreamingDatabaseDescriptor(stream).getRows(), temp);
+      }
+      finally {
+        stream.close();
+      }
+      Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally {
+      temp.delete();
+    }
+    return true;
+  }
+
+  private static boolean isUpToDate(File source, byte[] hash, File target) throws IOException
+  {
+    if(!target.isFile()) {
+      return false;
+    }
+    CompiledDatabaseDescriptor.Header header = CompiledDatabaseDescriptor.readHeader(target);
+    return header != null && header.sourceLength == source.length() && Arrays.equals(header.sourceHash, hash);
+  }
+
+  /** Compute SHA-256 hash of source file content. Hashing is much cheaper than parsing data set XML. */
+  private static byte[] hash(File source) throws IOException
+  {
+    MessageDigest digest = digest();
+    InputStream stream = new FileInputStream(source);
+    try {
+      byte[] buffer = new byte[64 * 1024];
+      int length;
+      while((length = stream.read(buffer)) != -1) {
+        digest.update(buffer, 0, length);
+      }
+    }
+    finally {
+      stream.close();
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Create message digest for data set content hash, see also {@link DataSetCache}.
+   * 
+   * @return SHA-256 message digest.
+   */
+  static MessageDigest digest()
+  {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch(NoSuchAlgorithmException e) {
+      // SHA-256 is mandatory for all Java platforms
+      throw new JsUnitException(e);
+    }
+  }
+
+  private final Map<String, Integer> names = new HashMap<>();
+  private DataOutputStream output;
+
+  private DataSetCompiler()
+  {
+  }
+
+  private void write(long sourceLength, byte[] sourceHash, Iterator<RowDescriptor> rows, File target) throws IOException
+  {
+    output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target), 64 * 1024));
+    try {
+      output.writeInt(MAGIC);
+      output.writeShort(VERSION);
+      output.writeLong(sourceLength);
+      output.write(sourceHash);
+
+      while(rows.hasNext()) {
+        RowDescriptor row = rows.next();
+        writeName(row.getTableName());
+        output.writeInt(row.getColumnsCount());
+        Iterator<ColumnDescriptor> columns = row.getColumns();
+        while(columns.hasNext()) {
+          ColumnDescriptor column = columns.next();
+          writeName(column.getName());
+          writeName(column.getType());
+          writeValue(column);
+        }
+      }
+      output.writeInt(END_OF_ROWS);
+    }
+    finally {
+      output.close();
+    }
+  }
+
+  private void writeName(String name) throws IOException
+  {
+    if(name == null) {
+      output.writeInt(NAME_NULL);
+      return;
+    }
+    Integer index = names.get(name);
+    if(index != null) {
+      output.writeInt(index);
+      return;
+    }
+    names.put(name, names.size());
+    output.writeInt(NAME_DEFINITION);
+    writeString(name);
+  }
+
+  private void writeValue(ColumnDescriptor column) throws IOException
+  {
+    ExternalValue external = column.getExternal();
+    if(external != null) {
+      output.writeByte(external.isFile() ? VALUE_FILE : VALUE_RESOURCE);
+      writeString(external.getPath());
+      return;
+    }
+    String value = column.getValue();
+    if(value == null || value.isEmpty()) {
+      output.writeByte(VALUE_NULL);
+      return;
+    }
+    if(isCanonicalLong(value)) {
+      output.writeByte(VALUE_LONG);
+      output.writeLong(Long.parseLong(value));
+      return;
+    }
+    output.writeByte(VALUE_STRING);
+    writeString(value);
+  }
+
+  private void writeString(String value) throws IOException
+  {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Test if value is a decimal integer that converts back to the very same string, e.g. no leading zeros or plus sign,
+   * so that binary encoding is lossless.
+   */
+  private static boolean isCanonicalLong(String value)
+  {
+    int length = value.length();
+    if(length > 18) {
+      return false;
+    }
+    int start = value.charAt(0) == '-' ? 1 : 0;
+    if(start == length || (value.charAt(start) == '0' && length > start + 1) || (start == 1 && value.equals("-0"))) {
+      return false;
+    }
+    for(int i = start; i < length; ++i) {
+      char c = value.charAt(i);
+      if(c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
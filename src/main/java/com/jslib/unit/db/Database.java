@@ -1,21 +1,61 @@
 package com.jslib.unit.db;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiFunction;
 
 import com.jslib.unit.util.Classes;
 
+import junit.framework.AssertionFailedError;
+
 public final class Database
 {
+  /** Fixture committed by {@link #loadOnce(String)}, per database URL and schema. */
+  private static final Map<String, String> COMMITTED_FIXTURES = new HashMap<>();
+  /** Default maximum number of differences reported by {@link #assertMatches(InputStream)}. */
+  private static final int MAX_DIFFERENCES = 10;
+  /** Executor for asynchronous operations and prefetch; threads are daemons so that they do not prevent JVM exit. */
+  private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory()
+  {
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, "js-unit-db-async");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
   private final Session session;
+  private ClearStrategy clearStrategy = ClearStrategy.DELETE;
+  private boolean transactional;
+  private int batchSize = 1;
+  private int parallelism = 1;
+  private int bulkSize;
+  private boolean deferredConstraints;
+  private boolean loadPlanning;
+  private LoadReport loadReport;
+  private Connection isolatedConnection;
+  /** Last asynchronous operation; asynchronous operations on the same database are executed in submission order. */
+  private CompletableFuture<Void> lastAsync = CompletableFuture.completedFuture(null);
 
   public Database(String cfg) throws IOException
   {
@@ -57,42 +97,727 @@ public final class Database
     session = new Session(driver);
   }
 
+  /**
+   * Create database for given driver and isolation. If isolation is enabled this database uses a worker schema, derived
+   * from driver schema and worker identifier and created on first connect, so that tests from different workers can run
+   * in parallel without sharing fixtures. See {@link Driver#forWorker(String)} for worker schema creation.
+   * 
+   * @param driver database driver,
+   * @param isolation isolation level.
+   * @throws UnsupportedOperationException if isolation is enabled and driver does not support worker schemas.
+   */
+  public Database(Driver driver, Isolation isolation)
+  {
+    String workerId = isolation.getWorkerId();
+    session = new Session(workerId != null ? driver.forWorker(workerId) : driver);
+  }
+
   public void setVerbose(boolean verbose)
   {
     session.setVerbose(verbose);
   }
 
+  /**
+   * Keep database connections open across works and across tests, using a global pool per database URL and user. By
+   * default every work opens and closes its own physical connection.
+   * 
+   * @param pooling connection pooling flag.
+   */
+  public void setConnectionPooling(boolean pooling)
+  {
+    session.setPooled(pooling);
+  }
+
+  /**
+   * Register listener for fixture load and clear events, e.g. {@link SummaryListener} or {@link CsvListener}.
+   * 
+   * @param listener database listener.
+   */
+  public void addListener(DatabaseListener listener)
+  {
+    session.addListener(listener);
+  }
+
+  public void removeListener(DatabaseListener listener)
+  {
+    session.removeListener(listener);
+  }
+
+  /**
+   * Enable SQL capture for isolation transaction connection, see {@link #getConnection()}, so that tests can assert
+   * statements executed by code under test, e.g. with {@link com.jslib.unit.TestCaseEx#assertQueryCount(int, SqlCapture)}.
+   * Capture should be set before {@link #begin()}. Fixture load and clear statements are not captured.
+   * 
+   * @param sqlCapture SQL capture or null to disable capture.
+   */
+  public void setSqlCapture(SqlCapture sqlCapture)
+  {
+    session.setSqlCapture(sqlCapture);
+  }
+
+  public SqlCapture getSqlCapture()
+  {
+    return session.getSqlCapture();
+  }
+
+  /**
+   * Get the connections pool, useful for acquire, reuse and creation statistics. Returns null if pooling is disabled.
+   * 
+   * @return connections pool, possible null.
+   */
+  public ConnectionPool getConnectionPool()
+  {
+    return session.getPool();
+  }
+
+  /**
+   * Set the strategy used to remove tables content on {@link #clear()} and before {@link #load(InputStream)}. Default
+   * strategy is {@link ClearStrategy#DELETE}. Drivers that truncate tables or disable foreign keys with statements that
+   * implicitly commit current transaction, e.g. MySQL, Oracle or H2, do not support {@link ClearStrategy#TRUNCATE}
+   * inside transaction, see {@link Driver#isTruncateTransactional()}.
+   * 
+   * @param clearStrategy clear strategy.
+   */
+  public void setClearStrategy(ClearStrategy clearStrategy)
+  {
+    this.clearStrategy = clearStrategy;
+  }
+
+  /**
+   * Run {@link #clear()} and {@link #load(InputStream)} in a single transaction, on a single connection, with a single
+   * commit at the end. If any statement fails the whole operation is rolled back. By default every statement is auto
+   * committed.
+   * 
+   * @param transactional transactional mode flag.
+   */
+  public void setTransactional(boolean transactional)
+  {
+    this.transactional = transactional;
+  }
+
+  /**
+   * Set the maximum number of rows grouped into a single JDBC batch while loading data set. Only consecutive rows for the
+   * same table and with the same columns are batched together. A value of 1, that is the default, disables batching.
+   * 
+   * @param batchSize batch size, strictly positive.
+   */
+  public void setBatchSize(int batchSize)
+  {
+    if(batchSize < 1) {
+      throw new IllegalArgumentException("Batch size should be strictly positive.");
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Enable bulk load and set the maximum number of rows per bulk. Bulk load uses driver native bulk path, e.g. MySQL
+   * <code>LOAD DATA LOCAL INFILE</code> if enabled by {@link MySQLDriver#setLocalInfile(boolean)}, or multi-row INSERT
+   * statements if driver has no native support. Only consecutive rows for the same table and with the same columns are
+   * grouped together. Set to 0, that is the default, to disable bulk load; when enabled, batch size is ignored.
+   * 
+   * @param bulkSize maximum number of rows per bulk or 0 to disable bulk load.
+   */
+  public void setBulkSize(int bulkSize)
+  {
+    if(bulkSize < 0) {
+      throw new IllegalArgumentException("Bulk size should not be negative.");
+    }
+    this.bulkSize = bulkSize;
+  }
+
+  /**
+   * Set the number of worker threads used to load data set. With more than one worker, tables that do not depend one on
+   * another are loaded concurrently, on separated connections; in this mode all data set rows are loaded in memory
+   * before inserting. Parallel load is not supported in transactional mode. Default value is 1, that is, sequential
+   * load.
+   * 
+   * @param parallelism number of worker threads, strictly positive.
+   */
+  public void setParallelism(int parallelism)
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be strictly positive.");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Enable deferred constraints load mode. In this mode foreign keys checking is disabled while loading, using driver
+   * specific statements, see {@link Driver#disableForeignKeys(Connection)}, so that data set rows do not need to be
+   * ordered by foreign keys. Rows are regrouped per table into maximal batches, whatever their order in data set, and
+   * foreign keys of loaded tables are validated before checking is restored; violations are reported per table with
+   * {@link java.sql.SQLIntegrityConstraintViolationException}. Deferred load runs on a single connection, ignoring
+   * parallelism, and keeps all data set rows in memory. Default value is false.
+   * <p>
+   * Outside transaction, rows are inserted and validated in a local transaction, rolled back on violations. Drivers that
+   * disable foreign keys with statements that implicitly commit current transaction, e.g. Oracle or H2, do not support
+   * deferred load inside transaction, see {@link Driver#isDisableForeignKeysTransactional()}. Generic driver does not
+   * support deferred load at all.
+   * 
+   * @param deferredConstraints true to enable deferred constraints load mode.
+   */
+  public void setDeferredConstraints(boolean deferredConstraints)
+  {
+    this.deferredConstraints = deferredConstraints;
+  }
+
+  /**
+   * Enable load planning: data set rows are regrouped per table and columns, and tables ordered by foreign keys, before
+   * loading, see {@link LoadPlan}. Interleaved fixtures are loaded with maximal batches and do not need to be ordered by
+   * foreign keys, at the cost of keeping all data set rows in memory. Default value is false.
+   * 
+   * @param loadPlanning true to enable load planning.
+   */
+  public void setLoadPlanning(boolean loadPlanning)
+  {
+    this.loadPlanning = loadPlanning;
+  }
+
+  /**
+   * Get statistics about last data set load or null if no data set was loaded yet.
+   * 
+   * @return last load report, possible null.
+   */
+  public LoadReport getLoadReport()
+  {
+    return loadReport;
+  }
+
+  /**
+   * Discard cached tables dependency graph and columns types so that they are reloaded from database meta data. Meta
+   * data is cached per database URL, catalog and schema and should be invalidated after database schema changes.
+   */
+  public void invalidateMetadata()
+  {
+    TableGraph.invalidate(session.getDriver());
+    session.invalidate();
+  }
+
   public void clear() throws SQLException
   {
-    session.doWork(new CleanDB());
+    forgetCommittedFixture();
+    checkClearStrategy();
+    boolean transaction = beginTransaction();
+    try {
+      session.doWork(new CleanDB(clearStrategy));
+      commitTransaction(transaction);
+    }
+    catch(Throwable e) {
+      rollbackTransaction(transaction, e);
+      throw e;
+    }
   }
 
   public void load(InputStream stream) throws SQLException
   {
-    session.doWork(new CleanDB());
+    // rows are parsed on demand, while inserting, so that memory usage does not depend on data set size
+    load(new StreamingDatabaseDescriptor(stream).getRows());
+  }
+
+  /**
+   * Load data set from named resource, located with {@link Classes#getResourceAsStream(String)}. Parsed data set is
+   * cached by {@link DataSetCache}, so that the same fixture is parsed only once, even if loaded by many tests.
+   * 
+   * @param resource data set resource name.
+   * @throws SQLException if database operation fails.
+   */
+  public void load(String resource) throws SQLException
+  {
+    load(DataSetCache.getInstance().getRows(resource).iterator());
+  }
 
-    DatabaseDescriptor dataSet = new DatabaseDescriptor(stream);
-    Iterator<RowDescriptor> it = dataSet.getRows();
-    while(it.hasNext()) {
-      session.doWork(new InsertTableValues(it.next()));
+  /**
+   * Load data set from XML file, using its compiled form. Data set is compiled to binary format on first use and every
+   * time source file changes, then compiled file is memory mapped and loaded without XML parsing, see
+   * {@link DataSetCompiler}.
+   * 
+   * @param file data set XML file.
+   * @throws IOException if data set compilation or compiled file mapping fails.
+   * @throws SQLException if database operation fails.
+   */
+  public void load(File file) throws IOException, SQLException
+  {
+    CompiledDatabaseDescriptor descriptor = new CompiledDatabaseDescriptor(DataSetCompiler.getCompiledFile(file));
+    try {
+      load(descriptor.getRows());
+    }
+    finally {
+      descriptor.close();
     }
   }
 
-  static class Table
+  /**
+   * Asynchronous {@link #load(InputStream)}. Asynchronous operations on this database are executed in submission order,
+   * on a background thread; caller should not use this database until returned future completes. Data set stream is
+   * read from background thread.
+   * 
+   * @param stream data set stream.
+   * @return future completed when data set is loaded; on failure future completes exceptionally with the
+   *         {@link SQLException}.
+   * @throws IllegalStateException if a transaction is in progress.
+   */
+  public CompletableFuture<Void> loadAsync(final InputStream stream)
   {
-    String name;
-    List<Table> foreignKeys = new ArrayList<Table>();
-    List<Table> dependencies = new ArrayList<Table>();
+    return async(new SqlAction()
+    {
+      @Override
+      public void run() throws SQLException
+      {
+        load(stream);
+      }
+    });
+  }
 
-    Table(String name)
+  /**
+   * Asynchronous {@link #clear()}, with the same execution rules as {@link #loadAsync(InputStream)}.
+   * 
+   * @return future completed when database is cleared.
+   * @throws IllegalStateException if a transaction is in progress.
+   */
+  public CompletableFuture<Void> clearAsync()
+  {
+    return async(new SqlAction()
     {
-      this.name = name;
+      @Override
+      public void run() throws SQLException
+      {
+        clear();
+      }
+    });
+  }
+
+  /**
+   * Start preparing data set load in background, while caller continues, e.g. with current test. Data set is parsed and
+   * INSERT statements SQL and columns meta data are resolved on a background thread, using its own connection; nothing
+   * is written to database until {@link Prefetch#join()}, that executes the load on caller thread.
+   * 
+   * @param stream data set stream, read from background thread.
+   * @return prefetched data set.
+   */
+  public Prefetch prefetch(InputStream stream)
+  {
+    return new Prefetch(this, session, stream, ASYNC_EXECUTOR);
+  }
+
+  private synchronized CompletableFuture<Void> async(final SqlAction action)
+  {
+    if(session.inTransaction()) {
+      throw new IllegalStateException("Asynchronous operations are not supported inside transaction.");
     }
+    // chain on previous operation completion, successful or not, so that operations do not overlap
+    lastAsync = lastAsync.handle(new BiFunction<Void, Throwable, Void>()
+    {
+      @Override
+      public Void apply(Void result, Throwable failure)
+      {
+        return null;
+      }
+    }).thenRunAsync(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try {
+          action.run();
+        }
+        catch(SQLException e) {
+          throw new CompletionException(e);
+        }
+      }
+    }, ASYNC_EXECUTOR);
+    return lastAsync;
+  }
+
+  /**
+   * Create load plan for data set, for inspection before loading with {@link #load(LoadPlan)}. Round trips are estimated
+   * using current batch and bulk size.
+   * 
+   * @param stream data set stream.
+   * @return load plan.
+   * @throws SQLException if meta data retrieval fails.
+   */
+  public LoadPlan plan(InputStream stream) throws SQLException
+  {
+    return plan(new StreamingDatabaseDescriptor(stream).getRows());
+  }
 
-    void addForeignKey(Table foreignKey)
+  /**
+   * Load data set rows from plan, in plan order. Plan can be loaded many times.
+   * 
+   * @param plan load plan, see {@link #plan(InputStream)}.
+   * @throws SQLException if database operation fails.
+   */
+  public void load(LoadPlan plan) throws SQLException
+  {
+    load(plan.getRows(), false);
+  }
+
+  private LoadPlan plan(final Iterator<RowDescriptor> rows) throws SQLException
+  {
+    final LoadPlan[] plan = new LoadPlan[1];
+    session.doWork(new Work()
     {
-      this.foreignKeys.add(foreignKey);
-      foreignKey.dependencies.add(this);
+      @Override
+      public Object execute(Connection connection) throws SQLException
+      {
+        plan[0] = new LoadPlan(driver, TableGraph.getInstance(connection, driver, listener), rows, batchSize, bulkSize);
+        return null;
+      }
+    });
+    return plan[0];
+  }
+
+  /**
+   * Reject truncate clear strategy inside transaction if driver truncates tables or disables foreign keys with
+   * statements that commit current transaction.
+   * 
+   * @throws IllegalStateException if truncate would commit current transaction.
+   */
+  private void checkClearStrategy()
+  {
+    if(clearStrategy != ClearStrategy.TRUNCATE || !(transactional || session.inTransaction())) {
+      return;
+    }
+    Driver driver = session.getDriver();
+    if(!driver.isTruncateTransactional() || !driver.isDisableForeignKeysTransactional()) {
+      throw new IllegalStateException("Truncate clear strategy is not supported inside transaction. Driver truncates tables or disables foreign keys with statements that commit current transaction.");
+    }
+  }
+
+  void load(Iterator<RowDescriptor> it) throws SQLException
+  {
+    load(it, loadPlanning);
+  }
+
+  private void load(Iterator<RowDescriptor> it, boolean planning) throws SQLException
+  {
+    forgetCommittedFixture();
+    if(parallelism > 1 && !deferredConstraints && (transactional || session.inTransaction())) {
+      throw new IllegalStateException("Parallel load is not supported inside transaction.");
+    }
+    if(deferredConstraints && (transactional || session.inTransaction()) && !session.getDriver().isDisableForeignKeysTransactional()) {
+      throw new IllegalStateException("Deferred constraints load is not supported inside transaction. Driver disables foreign keys with statements that commit current transaction.");
+    }
+    checkClearStrategy();
+    boolean transaction = beginTransaction();
+    try {
+      session.doWork(new CleanDB(clearStrategy));
+
+      loadReport = new LoadReport();
+      if(planning) {
+        LoadPlan plan = plan(it);
+        if(session.isVerbose()) {
+          System.out.print(plan);
+        }
+        it = plan.getRows();
+      }
+
+      if(deferredConstraints) {
+        session.doWork(new DeferredLoad(it, batchSize, bulkSize, loadReport));
+      }
+      else if(parallelism > 1) {
+        new ParallelLoader(session, parallelism, batchSize, bulkSize, loadReport).load(it);
+      }
+      else if(bulkSize > 0) {
+        session.doWork(new BulkInsert(it, bulkSize, loadReport));
+      }
+      else {
+        // all inserts run on the same connection so that prepared statements are reused from its statements cache
+        session.doWork(new InsertBatches(it, batchSize, loadReport));
+      }
+
+      commitTransaction(transaction);
+    }
+    catch(Throwable e) {
+      rollbackTransaction(transaction, e);
+      throw e;
+    }
+
+    if(session.isVerbose()) {
+      System.out.print(loadReport);
+    }
+  }
+
+  /**
+   * Synchronize database content with data set, issuing only the needed INSERT, UPDATE and DELETE statements. Rows are
+   * matched by primary key; tables without primary key are replaced and tables not present in data set are cleared. For
+   * large, mostly unchanged fixtures this is much cheaper than {@link #load(InputStream)}. Data set and current content
+   * of data set tables are kept in memory.
+   * 
+   * @param stream data set stream.
+   * @throws SQLException if database operation fails.
+   */
+  public void sync(InputStream stream) throws SQLException
+  {
+    forgetCommittedFixture();
+    boolean transaction = beginTransaction();
+    try {
+      loadReport = new LoadReport();
+      session.doWork(new SyncDB(new StreamingDatabaseDescriptor(stream).getRows(), batchSize, loadReport));
+      commitTransaction(transaction);
+    }
+    catch(Throwable e) {
+      rollbackTransaction(transaction, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Assert that database content matches expected data set, reporting at most 10 differences. See
+   * {@link #assertMatches(InputStream, int)}.
+   * 
+   * @param expectedDataSet expected data set stream.
+   * @throws SQLException if database operation fails.
+   * @throws AssertionFailedError if database content does not match expected data set.
+   */
+  public void assertMatches(InputStream expectedDataSet) throws SQLException
+  {
+    assertMatches(expectedDataSet, MAX_DIFFERENCES);
+  }
+
+  /**
+   * Assert that database content matches expected data set. Only tables and columns present in expected data set are
+   * compared and every compared table should contain exactly expected rows, matched by primary key. Matching tables are
+   * confirmed by a hash computed while streaming table content, without keeping rows in memory; tables whose hash does
+   * not match are compared row by row to report differences with their keys.
+   * 
+   * @param expectedDataSet expected data set stream,
+   * @param maxDifferences maximum number of differences reported on assertion failure, strictly positive.
+   * @throws SQLException if database operation fails.
+   * @throws AssertionFailedError if database content does not match expected data set.
+   * @throws IllegalArgumentException if maximum number of differences is not strictly positive.
+   */
+  public void assertMatches(InputStream expectedDataSet, int maxDifferences) throws SQLException
+  {
+    if(maxDifferences < 1) {
+      throw new IllegalArgumentException("Maximum number of differences should be strictly positive.");
+    }
+    session.doWork(new AssertDB(new StreamingDatabaseDescriptor(expectedDataSet).getRows(), maxDifferences));
+  }
+
+  /**
+   * Export tables content to data set XML, in the format accepted by {@link #load(InputStream)}. Tables are written in
+   * foreign keys load order, so that exported data set loads back cleanly, and rows are streamed with driver fetch size,
+   * so that memory usage does not depend on tables size. Output stream is flushed but not closed.
+   * <p>
+   * Binary values cannot be written inline; use {@link #export(Collection, File)} for tables with binary columns.
+   * 
+   * @param tables names of tables to export or empty collection for all tables,
+   * @param stream output stream.
+   * @throws SQLException if database operation fails.
+   * @throws IllegalArgumentException if a requested table is not found.
+   * @throws IllegalStateException if a binary value is found or a text value has characters not allowed by XML.
+   */
+  public void export(Collection<String> tables, OutputStream stream) throws SQLException
+  {
+    session.doWork(new ExportDB(tables, stream, null));
+  }
+
+  /**
+   * Export tables content to data set XML file, see {@link #export(Collection, OutputStream)}. Binary values are written
+   * to external files, one per value, into a directory next to data set file, named after it with <code>.files</code>
+   * suffix, e.g. <code>data-set.xml.files</code>. Exported data set references binary files with paths built from given
+   * file path, so that a data set exported to a relative path is loaded back from the same working directory.
+   * 
+   * @param tables names of tables to export or empty collection for all tables,
+   * @param file data set file, overwritten if exists.
+   * @throws IOException if data set file cannot be created.
+   * @throws SQLException if database operation fails.
+   * @throws IllegalArgumentException if a requested table is not found.
+   * @throws IllegalStateException if a text value has characters not allowed by XML.
+   */
+  public void export(Collection<String> tables, File file) throws IOException, SQLException
+  {
+    OutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+    try {
+      session.doWork(new ExportDB(tables, stream, new File(file.getPath() + ".files")));
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Insert given number of random rows into every table. See {@link #populate(Collection, int)}.
+   * 
+   * @param rowsCount number of rows per table.
+   * @throws SQLException if database operation fails.
+   */
+  public void populate(int rowsCount) throws SQLException
+  {
+    populate(Collections.<String> emptyList(), rowsCount);
+  }
+
+  /**
+   * Insert given number of random rows into requested tables, for load testing with production sized tables. Rows are
+   * generated from database meta data: values fit columns types and sizes, primary keys are sequential and foreign keys
+   * reference existing parent keys. Tables are populated in foreign keys order, after current content, and rows are
+   * generated while inserting, so that memory usage does not depend on rows count. Inserts use configured batch or bulk
+   * size and, with parallelism greater than one, every table is split into ranges inserted concurrently. Tables not
+   * requested are not populated but their existing keys are referenced by requested tables.
+   * 
+   * @param tables names of tables to populate or empty collection for all tables,
+   * @param rowsCount number of rows per table.
+   * @throws SQLException if database operation fails.
+   * @throws IllegalArgumentException if a requested table is not found.
+   * @throws IllegalStateException if a not nullable foreign key references an empty table or if parallel populate is
+   *           requested inside transaction.
+   */
+  public void populate(Collection<String> tables, int rowsCount) throws SQLException
+  {
+    forgetCommittedFixture();
+    if(parallelism > 1 && (transactional || session.inTransaction())) {
+      throw new IllegalStateException("Parallel populate is not supported inside transaction.");
+    }
+    boolean transaction = beginTransaction();
+    try {
+      loadReport = new LoadReport();
+      new RandomPopulator(session, parallelism, batchSize, bulkSize, loadReport).populate(tables, rowsCount);
+      commitTransaction(transaction);
+    }
+    catch(Throwable e) {
+      rollbackTransaction(transaction, e);
+      throw e;
     }
+
+    if(session.isVerbose()) {
+      System.out.print(loadReport);
+    }
+  }
+
+  /**
+   * Load and commit fixture from named resource, unless the same fixture was already committed by a previous call for
+   * this database, possible from a different {@link Database} instance. Fixture is tracked per database URL and schema
+   * and is forgotten on {@link #clear()} or {@link #load(InputStream)}. Designed for transaction rollback isolation,
+   * where tests run inside {@link #begin()} and {@link #rollback()} and committed fixture is never altered.
+   * 
+   * @param resource fixture resource name.
+   * @throws SQLException if fixture loading fails.
+   * @throws IllegalStateException if invoked while isolation transaction is in progress.
+   */
+  public void loadOnce(String resource) throws SQLException
+  {
+    if(session.inTransaction()) {
+      throw new IllegalStateException("Cannot load fixture while isolation transaction is in progress.");
+    }
+    String key = fixtureKey();
+    synchronized(COMMITTED_FIXTURES) {
+      if(resource.equals(COMMITTED_FIXTURES.get(key))) {
+        return;
+      }
+    }
+    load(resource);
+    synchronized(COMMITTED_FIXTURES) {
+      COMMITTED_FIXTURES.put(key, resource);
+    }
+  }
+
+  /**
+   * Start isolation transaction. Until {@link #rollback()} all database operations, including those performed by code
+   * under test through {@link #getConnection()}, run inside a single transaction, on a single connection.
+   * 
+   * @throws SQLException if transaction start fails.
+   * @throws IllegalStateException if a transaction is already in progress.
+   */
+  public void begin() throws SQLException
+  {
+    session.begin();
+    try {
+      isolatedConnection = IsolatedConnection.newInstance(session.getConnection());
+    }
+    catch(SQLException e) {
+      session.rollback();
+      throw e;
+    }
+  }
+
+  /**
+   * Get isolation transaction connection, to be used by code under test. Returned connection ignores commit, close and
+   * auto-commit changes and rolls back to isolation start on rollback.
+   * 
+   * @return isolation transaction connection.
+   * @throws IllegalStateException if isolation transaction is not started.
+   */
+  public Connection getConnection()
+  {
+    if(isolatedConnection == null) {
+      throw new IllegalStateException("Isolation transaction not started.");
+    }
+    return isolatedConnection;
+  }
+
+  /**
+   * Rollback isolation transaction, discarding all changes performed since {@link #begin()}.
+   * 
+   * @throws SQLException if rollback fails.
+   * @throws IllegalStateException if isolation transaction is not started.
+   */
+  public void rollback() throws SQLException
+  {
+    if(isolatedConnection == null) {
+      throw new IllegalStateException("Isolation transaction not started.");
+    }
+    isolatedConnection = null;
+    session.rollback();
+  }
+
+  private String fixtureKey()
+  {
+    Driver driver = session.getDriver();
+    return driver.getUrl() + '#' + driver.getSchema();
+  }
+
+  /** Forget committed fixture since it is about to be changed; changes inside isolation transaction are rolled back. */
+  private void forgetCommittedFixture()
+  {
+    if(isolatedConnection != null) {
+      return;
+    }
+    synchronized(COMMITTED_FIXTURES) {
+      COMMITTED_FIXTURES.remove(fixtureKey());
+    }
+  }
+
+  /**
+   * Start a session transaction if transactional mode is enabled and there is no transaction already in progress.
+   * 
+   * @return true if this method started a transaction.
+   * @throws SQLException if transaction start fails.
+   */
+  private boolean beginTransaction() throws SQLException
+  {
+    if(!transactional || session.inTransaction()) {
+      return false;
+    }
+    session.begin();
+    return true;
+  }
+
+  private void commitTransaction(boolean transaction) throws SQLException
+  {
+    if(transaction) {
+      session.commit();
+    }
+  }
+
+  /**
+   * Rollback transaction started by {@link #beginTransaction()} if still in progress, that is, not committed because of
+   * given failure. Rollback errors are attached to failure as suppressed, so that original failure is not masked.
+   */
+  private void rollbackTransaction(boolean transaction, Throwable failure)
+  {
+    if(transaction && session.inTransaction()) {
+      try {
+        session.rollback();
+      }
+      catch(SQLException | RuntimeException e) {
+        failure.addSuppressed(e);
+      }
+    }
+  }
+
+  private static interface SqlAction
+  {
+    void run() throws SQLException;
   }
 }
@@ -0,0 +1,51 @@
+package com.jslib.unit.db;
+
+/**
+ * Listener for fixture load and clear events, useful to find out where fixtures time goes. All methods have empty
+ * default implementation so that a listener implements only events it is interested in. Durations are in nanoseconds.
+ * <p>
+ * Listener methods are invoked synchronously, from threads executing database work, possible concurrently when
+ * parallel load is enabled; implementations should be thread safe and cheap.
+ */
+public interface DatabaseListener
+{
+  /**
+   * A connection was acquired, either from pool or physically opened.
+   * 
+   * @param nanos acquire duration.
+   */
+  default void onConnectionAcquire(long nanos)
+  {
+  }
+
+  /**
+   * Database meta data was loaded, that is, tables dependency graph or table columns.
+   * 
+   * @param tableName table whose columns were loaded or null for tables dependency graph,
+   * @param nanos meta data query duration.
+   */
+  default void onMetaData(String tableName, long nanos)
+  {
+  }
+
+  /**
+   * Table content was removed, with DELETE or TRUNCATE.
+   * 
+   * @param tableName table name,
+   * @param nanos clear statement duration.
+   */
+  default void onTableClear(String tableName, long nanos)
+  {
+  }
+
+  /**
+   * A batch of rows was inserted into table. When batching is disabled every row counts as a batch of one.
+   * 
+   * @param tableName table name,
+   * @param rowsCount number of rows in batch,
+   * @param nanos batch execution duration, parameters binding included.
+   */
+  default void onBatch(String tableName, int rowsCount, long nanos)
+  {
+  }
+}
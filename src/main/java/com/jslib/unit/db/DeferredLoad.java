@@ -0,0 +1,266 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Load data set rows with foreign keys checking disabled, see {@link Driver#disableForeignKeys(Connection)}, so that
+ * rows do not need to be ordered by foreign keys. Rows are regrouped per table and shape, in the order tables first
+ * appear in data set, so that every group is inserted with maximal batches or bulks, whatever the rows interleaving in
+ * data set file.
+ * <p>
+ * After insert, and before foreign keys checking is restored, every foreign key of loaded tables is validated with a
+ * query counting rows that reference missing parent keys. Violations are reported per table, with
+ * {@link SQLIntegrityConstraintViolationException}. Validation follows SQL simple match: rows with null in any foreign
+ * key column are not checked.
+ * <p>
+ * All work runs on a single connection since some drivers, e.g. MySQL, disable foreign keys per connection. If connection
+ * is in auto-commit mode, insert and validation run into a local transaction, rolled back on failure, so that rows
+ * violating foreign keys are never committed; inside a transaction, rollback is left to transaction owner. Note that,
+ * in order to group rows, all data set rows are kept in memory.
+ */
+class DeferredLoad extends Work
+{
+  private final Iterator<RowDescriptor> rows;
+  private final int batchSize;
+  private final int bulkSize;
+  private final LoadReport report;
+
+  public DeferredLoad(Iterator<RowDescriptor> rows, int batchSize, int bulkSize, LoadReport report)
+  {
+    this.rows = rows;
+    this.batchSize = batchSize;
+    this.bulkSize = bulkSize;
+    this.report = report;
+  }
+
+  @Override
+  public Object execute(Connection connection) throws SQLException
+  {
+    if(!driver.supportsDisableForeignKeys()) {
+      throw new IllegalStateException(String.format("Deferred constraints load is not supported by driver |%s|.", driver.getClass().getName()));
+    }
+    Map<String, List<RowDescriptor>> groups = new LinkedHashMap<>();
+    Set<String> tableNames = new LinkedHashSet<>();
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      if(row.isEmpty()) {
+        continue;
+      }
+      String shapeKey = row.getShapeKey();
+      List<RowDescriptor> group = groups.get(shapeKey);
+      if(group == null) {
+        group = new ArrayList<>();
+        groups.put(shapeKey, group);
+      }
+      group.add(row);
+      tableNames.add(driver.getIdentifier(row.getTableName()));
+    }
+    if(groups.isEmpty()) {
+      return null;
+    }
+
+    List<RowDescriptor> groupedRows = new ArrayList<>();
+    for(List<RowDescriptor> group : groups.values()) {
+      groupedRows.addAll(group);
+    }
+    Work insert = bulkSize > 0 ? new BulkInsert(groupedRows.iterator(), bulkSize, report) : new InsertBatches(groupedRows.iterator(), batchSize, report);
+    insert.setDriver(driver);
+    insert.setVerbose(verbose);
+    insert.setStatements(statements);
+    insert.setListener(listener);
+
+    List<String> restoreStatements = driver.disableForeignKeys(connection);
+    boolean localTransaction = connection.getAutoCommit();
+    boolean committed = false;
+    SQLException failure = null;
+    try {
+      if(localTransaction) {
+        connection.setAutoCommit(false);
+      }
+      insert.execute(connection);
+      List<String> violations = new ArrayList<>();
+      for(String tableName : tableNames) {
+        validate(connection, tableName, violations);
+      }
+      if(!violations.isEmpty()) {
+        StringBuilder message = new StringBuilder("Foreign keys violations after deferred load:");
+        for(String violation : violations) {
+          message.append("\r\n\t- ");
+          message.append(violation);
+        }
+        failure = new SQLIntegrityConstraintViolationException(message.toString());
+      }
+      else if(localTransaction) {
+        connection.commit();
+        committed = true;
+      }
+    }
+    catch(SQLException e) {
+      failure = e;
+    }
+    finally {
+      if(localTransaction) {
+        endLocalTransaction(connection, committed, failure);
+      }
+      restore(connection, restoreStatements, failure);
+    }
+    if(failure != null) {
+      throw failure;
+    }
+    return null;
+  }
+
+  /** Count, for every foreign key of given table, rows referencing missing parent keys and record violations. */
+  private void validate(Connection connection, String tableName, List<String> violations) throws SQLException
+  {
+    Map<String, ForeignKey> foreignKeys = new LinkedHashMap<>();
+    ResultSet rs = connection.getMetaData().getImportedKeys(driver.getCatalog(), driver.getSchema(), tableName);
+    try {
+      while(rs.next()) {
+        if(!tableName.equals(rs.getString("FKTABLE_NAME"))) {
+          continue;
+        }
+        String name = rs.getString("PKTABLE_NAME") + '#' + rs.getString("FK_NAME");
+        ForeignKey foreignKey = foreignKeys.get(name);
+        if(foreignKey == null) {
+          foreignKey = new ForeignKey(rs.getString("PKTABLE_NAME"));
+          foreignKeys.put(name, foreignKey);
+        }
+        foreignKey.add(rs.getInt("KEY_SEQ"), rs.getString("FKCOLUMN_NAME"), rs.getString("PKCOLUMN_NAME"));
+      }
+    }
+    finally {
+      rs.close();
+    }
+
+    Statement statement = connection.createStatement();
+    try {
+      for(ForeignKey foreignKey : foreignKeys.values()) {
+        String sql = foreignKey.getViolationsSQL(tableName);
+        if(verbose) {
+          System.out.println(sql);
+        }
+        rs = statement.executeQuery(sql);
+        rs.next();
+        long count = rs.getLong(1);
+        rs.close();
+        if(count > 0) {
+          violations.add(String.format("%s: %d rows with %s referencing missing %s keys", tableName, count, foreignKey.getColumns(), foreignKey.parentTable));
+        }
+      }
+    }
+    finally {
+      statement.close();
+    }
+  }
+
+  /**
+   * Roll back local transaction, if not committed, and restore auto-commit mode. If there is already a failure, errors
+   * are attached to it as suppressed.
+   */
+  private static void endLocalTransaction(Connection connection, boolean committed, SQLException failure) throws SQLException
+  {
+    try {
+      if(!committed) {
+        connection.rollback();
+      }
+      connection.setAutoCommit(true);
+    }
+    catch(SQLException e) {
+      if(failure == null) {
+        throw e;
+      }
+      failure.addSuppressed(e);
+    }
+  }
+
+  /**
+   * Execute foreign keys checking restore statements. If there is already a failure, restore errors are attached to it as
+   * suppressed, so that original failure is not masked; note that some databases refuse to restore foreign keys checking
+   * while violations exist.
+   */
+  private void restore(Connection connection, List<String> restoreStatements, SQLException failure) throws SQLException
+  {
+    Statement statement = connection.createStatement();
+    try {
+      for(String sql : restoreStatements) {
+        if(verbose) {
+          System.out.println(sql);
+        }
+        try {
+          statement.execute(sql);
+        }
+        catch(SQLException e) {
+          if(failure == null) {
+            throw e;
+          }
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    finally {
+      statement.close();
+    }
+  }
+
+  private class ForeignKey
+  {
+    final String parentTable;
+    /** Foreign key and referenced columns pairs, in key sequence order. */
+    final Map<Integer, String[]> columns = new TreeMap<>();
+
+    ForeignKey(String parentTable)
+    {
+      this.parentTable = parentTable;
+    }
+
+    void add(int keySequence, String columnName, String parentColumnName)
+    {
+      columns.put(keySequence, new String[]
+      {
+          columnName, parentColumnName
+      });
+    }
+
+    List<String> getColumns()
+    {
+      List<String> columnNames = new ArrayList<>();
+      for(String[] pair : columns.values()) {
+        columnNames.add(pair[0]);
+      }
+      return columnNames;
+    }
+
+    /** Build query counting rows with not null foreign key that has no matching parent row. */
+    String getViolationsSQL(String tableName)
+    {
+      StringBuilder where = new StringBuilder();
+      StringBuilder join = new StringBuilder();
+      for(String[] pair : columns.values()) {
+        String column = "c." + driver.getQualifiedColumnName(pair[0]);
+        where.append(column);
+        where.append(" IS NOT NULL AND ");
+        if(join.length() > 0) {
+          join.append(" AND ");
+        }
+        join.append("p.");
+        join.append(driver.getQualifiedColumnName(pair[1]));
+        join.append('=');
+        join.append(column);
+      }
+      return String.format("SELECT COUNT(*) FROM %s c WHERE %sNOT EXISTS (SELECT 1 FROM %s p WHERE %s)", driver.getQualifiedTableName(tableName), where, driver.getQualifiedTableName(parentTable), join);
+    }
+  }
+}
@@ -1,9 +1,19 @@
 package com.jslib.unit.db;
 
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
-public class Driver
+public class Driver implements Cloneable
 {
   private static final Map<String, String> QUOTATION_MARKS = new HashMap<>();
   static {
@@ -18,6 +28,10 @@ public class Driver
   protected String password;
   protected String url;
   protected String tableQuotationMark = "";
+  /** Optional DDL script resource executed on first connect to database, null if none. */
+  protected String initScript;
+  /** Driver this worker driver was derived from, null if this driver is not a worker one. */
+  protected Driver template;
 
   protected Driver()
   {
@@ -81,4 +95,368 @@ public class Driver
   {
     return tableQuotationMark;
   }
+
+  /**
+   * Set DDL script resource executed on the first connection to this driver database, e.g. to create tables of an
+   * embedded in-memory database. Script statements are separated by semicolon; SQL comments are ignored. Script is
+   * executed once per database and schema, for the lifetime of the JVM.
+   * 
+   * @param initScript DDL script resource name, null to disable initialization.
+   */
+  public void setInitScript(String initScript)
+  {
+    this.initScript = initScript;
+  }
+
+  public String getInitScript()
+  {
+    return initScript;
+  }
+
+  /**
+   * Create a driver for an isolated worker schema, named after this driver schema with worker identifier as suffix.
+   * Worker schema is created on first connect, see {@link #initialize(Connection)}, and populated using this driver init
+   * script, if configured, or by cloning this driver schema tables, if driver supports it.
+   * 
+   * @param workerId worker identifier, see {@link Isolation#getWorkerId()}.
+   * @return worker driver.
+   * @throws UnsupportedOperationException if this driver has no schema or does not support worker schemas.
+   */
+  public Driver forWorker(String workerId)
+  {
+    if(!hasSchema()) {
+      throw new UnsupportedOperationException("Worker isolation requires a driver with schema.");
+    }
+    Driver driver = copy();
+    driver.schema = getIdentifier(schema + '_' + workerId);
+    driver.template = this;
+    return driver;
+  }
+
+  /**
+   * Test if database should be initialized on first connect, that is, if this driver has init script or is a worker
+   * driver.
+   * 
+   * @return true if database initialization is required.
+   */
+  public boolean requiresInitialization()
+  {
+    return initScript != null || template != null;
+  }
+
+  /**
+   * Initialize database on first connect. Execute init script, if any; for worker driver, create worker schema and
+   * populate it from template driver init script or by cloning template schema.
+   * 
+   * @param connection database connection.
+   * @throws SQLException if initialization fails.
+   */
+  public void initialize(Connection connection) throws SQLException
+  {
+    if(template == null) {
+      if(initScript != null) {
+        SqlScript.load(initScript).execute(connection);
+      }
+      return;
+    }
+
+    Statement statement = connection.createStatement();
+    try {
+      for(String sql : getCreateSchemaSQL()) {
+        statement.execute(sql);
+      }
+    }
+    finally {
+      statement.close();
+    }
+
+    String initScript = this.initScript != null ? this.initScript : template.initScript;
+    if(initScript == null) {
+      cloneSchema(connection);
+      return;
+    }
+    // init script uses not qualified names; temporarily switch connection current schema
+    String currentSchema = getCurrentSchema(connection);
+    setCurrentSchema(connection, schema);
+    try {
+      SqlScript.load(initScript).execute(connection);
+    }
+    finally {
+      setCurrentSchema(connection, currentSchema);
+    }
+  }
+
+  /**
+   * Get statements creating worker schema, dropping existing one, if any. Default implementation uses standard
+   * <code>DROP SCHEMA ... CASCADE</code> and <code>CREATE SCHEMA</code>.
+   * 
+   * @return create schema statements.
+   */
+  protected List<String> getCreateSchemaSQL()
+  {
+    String schemaName = tableQuotationMark + schema + tableQuotationMark;
+    return Arrays.asList("DROP SCHEMA IF EXISTS " + schemaName + " CASCADE", "CREATE SCHEMA " + schemaName);
+  }
+
+  /**
+   * Create worker schema tables by cloning template driver schema. This default implementation does not support
+   * cloning and always throws exception.
+   * 
+   * @param connection database connection.
+   * @throws SQLException if clone fails.
+   * @throws UnsupportedOperationException if driver does not support schema clone.
+   */
+  protected void cloneSchema(Connection connection) throws SQLException
+  {
+    throw new UnsupportedOperationException("Schema clone not supported. Configure init script for worker schema creation.");
+  }
+
+  protected String getCurrentSchema(Connection connection) throws SQLException
+  {
+    return connection.getSchema();
+  }
+
+  protected void setCurrentSchema(Connection connection, String schema) throws SQLException
+  {
+    connection.setSchema(schema);
+  }
+
+  /**
+   * Shallow copy of this driver, used to derive worker drivers.
+   * 
+   * @return driver copy.
+   */
+  protected Driver copy()
+  {
+    try {
+      return (Driver)clone();
+    }
+    catch(CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Convert table or column name from data set to the form stored into database dictionary, so that it can be quoted
+   * and used in meta data queries. This default implementation returns name unchanged.
+   * 
+   * @param name table or column name, as used by data set.
+   * @return database identifier.
+   */
+  public String getIdentifier(String name)
+  {
+    return name;
+  }
+
+  /**
+   * Get table name, qualified with schema, if driver has one, and quoted accordingly.
+   * 
+   * @param tableName table name, not quoted.
+   * @return qualified table name, ready to be used in SQL statements.
+   */
+  public String getQualifiedTableName(String tableName)
+  {
+    StringBuilder name = new StringBuilder();
+    if(hasSchema()) {
+      name.append(tableQuotationMark);
+      name.append(schema);
+      name.append(tableQuotationMark);
+      name.append('.');
+    }
+    name.append(tableQuotationMark);
+    name.append(getIdentifier(tableName));
+    name.append(tableQuotationMark);
+    return name.toString();
+  }
+
+  /**
+   * Get column name quoted accordingly to this driver.
+   * 
+   * @param columnName column name, not quoted.
+   * @return quoted column name.
+   */
+  public String getQualifiedColumnName(String columnName)
+  {
+    return tableQuotationMark + getIdentifier(columnName) + tableQuotationMark;
+  }
+
+  /**
+   * Get JDBC fetch size used when reading whole tables content. Default value is 1000.
+   * 
+   * @return fetch size.
+   */
+  public int getFetchSize()
+  {
+    return 1000;
+  }
+
+  /**
+   * Test if a table can be cleared with <code>TRUNCATE TABLE</code>, while foreign keys are disabled with
+   * {@link #disableForeignKeys(Connection)}. This default implementation always returns false so that generic driver
+   * falls back to <code>DELETE FROM</code>.
+   * 
+   * @param referenced true if table is referenced by foreign keys from other tables.
+   * @return true if table can be truncated.
+   */
+  public boolean supportsTruncate(boolean referenced)
+  {
+    return false;
+  }
+
+  /**
+   * Test if this driver is able to disable foreign keys checking, see {@link #disableForeignKeys(Connection)}. This
+   * default implementation returns false since generic driver does not disable foreign keys.
+   * 
+   * @return true if foreign keys checking can be disabled.
+   */
+  public boolean supportsDisableForeignKeys()
+  {
+    return false;
+  }
+
+  /**
+   * Test if disabling foreign keys checking, see {@link #disableForeignKeys(Connection)}, keeps current transaction open.
+   * Some databases disable foreign keys with DDL or administrative statements that implicitly commit current
+   * transaction. This default implementation returns true.
+   * 
+   * @return true if disabling foreign keys does not commit current transaction.
+   */
+  public boolean isDisableForeignKeysTransactional()
+  {
+    return true;
+  }
+
+  /**
+   * Test if <code>TRUNCATE TABLE</code> keeps current transaction open and can be rolled back. On some databases
+   * truncate is DDL and implicitly commits current transaction. This default implementation returns true.
+   * 
+   * @return true if truncate does not commit current transaction.
+   */
+  public boolean isTruncateTransactional()
+  {
+    return true;
+  }
+
+  /**
+   * Disable foreign keys checking on given connection and return the statements that restore it. This default
+   * implementation does nothing and returns an empty list.
+   * 
+   * @param connection database connection.
+   * @return SQL statements restoring foreign keys checking, possible empty.
+   * @throws SQLException if disabling foreign keys fails.
+   */
+  public List<String> disableForeignKeys(Connection connection) throws SQLException
+  {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Execute statements disabling foreign key constraints one by one. If a statement fails, constraints already disabled
+   * are enabled back before rethrowing, so that schema is not left with constraints disabled; errors while enabling
+   * back are added as suppressed to the original exception.
+   * 
+   * @param connection database connection,
+   * @param disableStatements statements disabling constraints,
+   * @param restoreStatements statements enabling constraints back, in the same order as disable statements.
+   * @return restore statements.
+   * @throws SQLException if a disable statement fails.
+   */
+  protected static List<String> disableConstraints(Connection connection, List<String> disableStatements, List<String> restoreStatements) throws SQLException
+  {
+    Statement statement = connection.createStatement();
+    try {
+      for(int i = 0; i < disableStatements.size(); ++i) {
+        try {
+          statement.execute(disableStatements.get(i));
+        }
+        catch(SQLException e) {
+          for(int j = 0; j < i; ++j) {
+            try {
+              statement.execute(restoreStatements.get(j));
+            }
+            catch(SQLException restoreException) {
+              e.addSuppressed(restoreException);
+            }
+          }
+          throw e;
+        }
+      }
+    }
+    finally {
+      statement.close();
+    }
+    return restoreStatements;
+  }
+
+  /**
+   * Insert rows using driver native bulk path. All rows should have the same shape, see
+   * {@link RowDescriptor#hasSameShape(RowDescriptor)}. This default implementation uses multi-row
+   * <code>INSERT ... VALUES (...),(...)</code> statements, limited to {@link #getMaxParameters()} parameters each.
+   * 
+   * @param connection database connection,
+   * @param rows table rows with the same shape, not empty,
+   * @param types columns SQL types, in columns order; null type for columns not found in meta data.
+   * @throws SQLException if insert fails.
+   */
+  public void bulkInsert(Connection connection, List<RowDescriptor> rows, Integer[] types) throws SQLException
+  {
+    int chunkSize = Math.max(1, Math.min(rows.size(), getMaxParameters() / rows.get(0).getColumnsCount()));
+    PreparedStatement ps = null;
+    int statementRows = 0;
+    try {
+      for(int offset = 0; offset < rows.size(); offset += chunkSize) {
+        int rowsCount = Math.min(chunkSize, rows.size() - offset);
+        if(rowsCount != statementRows) {
+          if(ps != null) {
+            ps.close();
+          }
+          ps = connection.prepareStatement(getBulkInsertSQL(rows.get(0), rowsCount));
+          statementRows = rowsCount;
+        }
+
+        int index = 1;
+        List<Closeable> streams = new ArrayList<>();
+        try {
+          for(RowDescriptor row : rows.subList(offset, offset + rowsCount)) {
+            Iterator<ColumnDescriptor> it = row.getColumns();
+            for(int i = 0; it.hasNext(); ++i) {
+              InsertTableValues.setParameter(ps, index++, row.getTableName(), it.next(), types[i], streams);
+            }
+          }
+          ps.execute();
+        }
+        finally {
+          InsertTableValues.close(streams);
+        }
+      }
+    }
+    finally {
+      if(ps != null) {
+        ps.close();
+      }
+    }
+  }
+
+  /**
+   * Get SQL statement inserting given number of rows with the same shape as given row, used by default
+   * {@link #bulkInsert(Connection, List, Integer[])} implementation.
+   * 
+   * @param row table row,
+   * @param rowsCount number of rows inserted by statement.
+   * @return multi-row INSERT statement.
+   */
+  protected String getBulkInsertSQL(RowDescriptor row, int rowsCount)
+  {
+    return InsertTableValues.buildSQL(this, row, rowsCount);
+  }
+
+  /**
+   * Get maximum number of parameters for a bulk insert statement. Default value is 2000, below SQL Server limit.
+   * 
+   * @return maximum number of statement parameters.
+   */
+  protected int getMaxParameters()
+  {
+    return 2000;
+  }
 }
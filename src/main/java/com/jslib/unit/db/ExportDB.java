@@ -0,0 +1,207 @@
+package com.jslib.unit.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Export tables content to data set XML, in the format read by {@link StreamingDatabaseDescriptor}. Tables are exported in load
+ * order, as given by foreign keys dependency graph, so that exported data set can be loaded back. Rows are read with
+ * driver fetch size and written incrementally, with StAX, so that memory usage does not depend on tables size.
+ * <p>
+ * Null values are exported as empty columns. Binary values are not representable in data set text: they are written to
+ * external files, one per value, referenced by column <code>file</code> attribute, see {@link ExternalValue}. If there
+ * is no directory for external files, export of binary values fails. Text values with characters not allowed by XML
+ * 1.0, e.g. control characters, are rejected too, so that exported data set is always loaded back faithfully.
+ */
+class ExportDB extends Work
+{
+  /** Root element of exported data set; root element name is not significant to data set loaders. */
+  private static final String ROOT_ELEMENT = "dataset";
+
+  private final Collection<String> tables;
+  private final OutputStream stream;
+  /** Directory for binary values files, null if binary values export is not supported. */
+  private final File filesDir;
+
+  /**
+   * Create export work.
+   * 
+   * @param tables names of tables to export, empty for all tables,
+   * @param stream output stream, not closed by export,
+   * @param filesDir directory for binary values files, created on demand, or null to reject binary values.
+   */
+  public ExportDB(Collection<String> tables, OutputStream stream, File filesDir)
+  {
+    this.tables = tables;
+    this.stream = stream;
+    this.filesDir = filesDir;
+  }
+
+  @Override
+  public Object execute(Connection connection) throws SQLException
+  {
+    List<String> tableNames = getTableNames(TableGraph.getInstance(connection, driver, listener));
+    try {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(stream, StandardCharsets.UTF_8.name());
+      writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+      writer.writeCharacters("\r\n");
+      writer.writeStartElement(ROOT_ELEMENT);
+      for(String tableName : tableNames) {
+        exportTable(connection, tableName, writer);
+      }
+      writer.writeCharacters("\r\n");
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    }
+    catch(XMLStreamException | IOException e) {
+      throw new JsUnitException(e);
+    }
+    return null;
+  }
+
+  private List<String> getTableNames(TableGraph graph)
+  {
+    List<String> loadOrder = graph.getLoadOrder();
+    if(tables.isEmpty()) {
+      return loadOrder;
+    }
+    Set<String> requestedTables = new HashSet<>();
+    for(String tableName : tables) {
+      String identifier = driver.getIdentifier(tableName);
+      if(!loadOrder.contains(identifier)) {
+        throw new IllegalArgumentException(String.format("Table |%s| not found.", tableName));
+      }
+      requestedTables.add(identifier);
+    }
+    List<String> tableNames = new ArrayList<>();
+    for(String tableName : loadOrder) {
+      if(requestedTables.contains(tableName)) {
+        tableNames.add(tableName);
+      }
+    }
+    return tableNames;
+  }
+
+  private void exportTable(Connection connection, String tableName, XMLStreamWriter writer) throws SQLException, XMLStreamException, IOException
+  {
+    String sql = "SELECT * FROM " + driver.getQualifiedTableName(tableName);
+    if(verbose) {
+      System.out.println(sql);
+    }
+    Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      statement.setFetchSize(driver.getFetchSize());
+      ResultSet rs = statement.executeQuery(sql);
+      ResultSetMetaData meta = rs.getMetaData();
+      int columnsCount = meta.getColumnCount();
+      String[] columnNames = new String[columnsCount];
+      int[] columnTypes = new int[columnsCount];
+      for(int i = 0; i < columnsCount; ++i) {
+        columnNames[i] = meta.getColumnLabel(i + 1);
+        columnTypes[i] = meta.getColumnType(i + 1);
+      }
+
+      for(int rowIndex = 1; rs.next(); ++rowIndex) {
+        writer.writeCharacters("\r\n\t");
+        writer.writeStartElement(tableName);
+        for(int i = 0; i < columnsCount; ++i) {
+          writer.writeCharacters("\r\n\t\t");
+          if(isBinaryType(columnTypes[i])) {
+            exportBinary(rs, i + 1, tableName, columnNames[i], rowIndex, writer);
+            continue;
+          }
+          String value = Values.toString(Values.getValue(rs, i + 1, columnTypes[i]));
+          checkXml(value, tableName, columnNames[i]);
+          if(value.isEmpty()) {
+            writer.writeEmptyElement(columnNames[i]);
+            continue;
+          }
+          writer.writeStartElement(columnNames[i]);
+          writer.writeCharacters(value);
+          writer.writeEndElement();
+        }
+        writer.writeCharacters("\r\n\t");
+        writer.writeEndElement();
+      }
+      rs.close();
+    }
+    finally {
+      statement.close();
+    }
+  }
+
+  /**
+   * Write binary value to its own file, named after table, row index and column, and reference it from column
+   * <code>file</code> attribute. Value is copied as stream, so that it is not loaded into memory.
+   */
+  private void exportBinary(ResultSet rs, int index, String tableName, String columnName, int rowIndex, XMLStreamWriter writer) throws SQLException, XMLStreamException, IOException
+  {
+    InputStream value = rs.getBinaryStream(index);
+    if(value == null) {
+      writer.writeEmptyElement(columnName);
+      return;
+    }
+    try {
+      if(filesDir == null) {
+        throw new IllegalStateException(String.format("Binary column |%s.%s| cannot be exported inline. Export data set to a file, see Database#export(Collection, File).", tableName, columnName));
+      }
+      File file = new File(filesDir, String.format("%s-%d-%s.bin", tableName, rowIndex, columnName));
+      Files.createDirectories(filesDir.toPath());
+      Files.copy(value, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      writer.writeEmptyElement(columnName);
+      writer.writeAttribute("file", file.getPath());
+    }
+    finally {
+      value.close();
+    }
+  }
+
+  private static boolean isBinaryType(int sqlType)
+  {
+    switch(sqlType) {
+    case Types.BINARY:
+    case Types.VARBINARY:
+    case Types.LONGVARBINARY:
+    case Types.BLOB:
+      return true;
+
+    default:
+      return false;
+    }
+  }
+
+  /** Reject text values with characters not allowed by XML 1.0, since they cannot be written to data set. */
+  private static void checkXml(String value, String tableName, String columnName)
+  {
+    for(int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if(c >= 0x20 ? c >= 0xFFFE : c != '\t' && c != '\n' && c != '\r') {
+        throw new IllegalStateException(String.format("Value of column |%s.%s| has character |\\u%04X| not allowed by XML.", tableName, columnName, (int)c));
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.jslib.unit.db;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.jslib.unit.util.Classes;
+
+/**
+ * Column value stored outside data set, into a file or a class path resource, declared on column element with
+ * <code>file</code> or <code>resource</code> attribute, e.g. <code>&lt;content file="fixtures/document.pdf" /&gt;</code>.
+ * Relative file paths are resolved against current working directory. Value content is never loaded into memory: it is
+ * bound to statement parameter as a stream read by JDBC driver on statement execution, see
+ * {@link InsertTableValues#setParameter(java.sql.PreparedStatement, int, String, ColumnDescriptor, Integer, java.util.List)}.
+ * <p>
+ * Opened streams are closed automatically when read to the end, that is, after JDBC driver consumes them, and by
+ * statement caller after execution, successful or not.
+ */
+class ExternalValue
+{
+  static ExternalValue file(String path)
+  {
+    return new ExternalValue(true, path);
+  }
+
+  static ExternalValue resource(String name)
+  {
+    return new ExternalValue(false, name);
+  }
+
+  private final boolean file;
+  private final String path;
+
+  private ExternalValue(boolean file, String path)
+  {
+    this.file = file;
+    this.path = path;
+  }
+
+  boolean isFile()
+  {
+    return file;
+  }
+
+  String getPath()
+  {
+    return path;
+  }
+
+  /**
+   * Get value length, in bytes, or -1 if not known, as for class path resources.
+   * 
+   * @return value length or -1.
+   * @throws IOException if file size cannot be read.
+   */
+  long getLength() throws IOException
+  {
+    return file ? Files.size(Paths.get(path)) : -1;
+  }
+
+  /**
+   * Open value content as bytes stream. File content is read through a file channel, directly into JDBC driver buffers.
+   * 
+   * @return value stream.
+   * @throws IOException if file or resource cannot be opened.
+   */
+  InputStream openStream() throws IOException
+  {
+    if(file) {
+      return new AutoCloseInputStream(Channels.newInputStream(FileChannel.open(Paths.get(path), StandardOpenOption.READ)));
+    }
+    return new AutoCloseInputStream(Classes.getResourceAsStream(path));
+  }
+
+  /**
+   * Open value content as characters stream, decoding UTF-8 bytes on the fly.
+   * 
+   * @return value reader.
+   * @throws IOException if file or resource cannot be opened.
+   */
+  Reader openReader() throws IOException
+  {
+    return new InputStreamReader(openStream(), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString()
+  {
+    return (file ? "file:" : "resource:") + path;
+  }
+
+  /** Input stream closed as soon as end of stream is reached. */
+  private static class AutoCloseInputStream extends FilterInputStream
+  {
+    private boolean closed;
+
+    AutoCloseInputStream(InputStream stream)
+    {
+      super(stream);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      if(closed) {
+        return -1;
+      }
+      int b = super.read();
+      if(b == -1) {
+        close();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException
+    {
+      if(closed) {
+        return -1;
+      }
+      int count = super.read(buffer, offset, length);
+      if(count == -1) {
+        close();
+      }
+      return count;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+      return closed ? 0 : super.available();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      if(!closed) {
+        closed = true;
+        super.close();
+      }
+    }
+  }
+}
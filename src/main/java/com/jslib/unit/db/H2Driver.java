@@ -0,0 +1,71 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Embedded H2 database driver, in-memory by default. In-memory database lives until JVM exit, so that its content
+ * survives across connections; use {@link #setInitScript(String)} to create tables on first connect.
+ * <p>
+ * H2 stores unquoted identifiers upper case; data set table and column names are converted to upper case before being
+ * quoted, so that data set names match tables created by DDL with unquoted names, reserved words included.
+ */
+public class H2Driver extends Driver {
+	public H2Driver(String database) {
+		this("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", "");
+	}
+
+	public H2Driver(String url, String user, String password) {
+		this.name = "org.h2.Driver";
+		this.catalog = null;
+		this.schema = "PUBLIC";
+		this.user = user;
+		this.password = password;
+		this.url = url;
+		this.tableQuotationMark = "\"";
+	}
+
+	@Override
+	public String getIdentifier(String name) {
+		return name.toUpperCase(Locale.ROOT);
+	}
+
+	/** H2 truncates referenced tables while referential integrity is disabled. */
+	@Override
+	public boolean supportsTruncate(boolean referenced) {
+		return true;
+	}
+
+	@Override
+	public boolean supportsDisableForeignKeys() {
+		return true;
+	}
+
+	/** SET REFERENTIAL_INTEGRITY commits current transaction. */
+	@Override
+	public boolean isDisableForeignKeysTransactional() {
+		return false;
+	}
+
+	/** TRUNCATE TABLE commits current transaction. */
+	@Override
+	public boolean isTruncateTransactional() {
+		return false;
+	}
+
+	/** Disable referential integrity; note that H2 setting is global for the entire database, not per connection. */
+	@Override
+	public List<String> disableForeignKeys(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+		} finally {
+			statement.close();
+		}
+		return Collections.singletonList("SET REFERENTIAL_INTEGRITY TRUE");
+	}
+}
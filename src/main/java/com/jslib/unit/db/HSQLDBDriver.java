@@ -0,0 +1,66 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Embedded HSQLDB database driver, in-memory by default. In-memory database lives until JVM exit or explicit
+ * <code>SHUTDOWN</code>, so that its content survives across connections; use {@link #setInitScript(String)} to create
+ * tables on first connect.
+ * <p>
+ * HSQLDB stores unquoted identifiers upper case; data set table and column names are converted to upper case before
+ * being quoted, so that data set names match tables created by DDL with unquoted names, reserved words included.
+ */
+public class HSQLDBDriver extends Driver {
+	public HSQLDBDriver(String database) {
+		this("jdbc:hsqldb:mem:" + database, "SA", "");
+	}
+
+	public HSQLDBDriver(String url, String user, String password) {
+		this.name = "org.hsqldb.jdbc.JDBCDriver";
+		this.catalog = null;
+		this.schema = "PUBLIC";
+		this.user = user;
+		this.password = password;
+		this.url = url;
+		this.tableQuotationMark = "\"";
+	}
+
+	@Override
+	public String getIdentifier(String name) {
+		return name.toUpperCase(Locale.ROOT);
+	}
+
+	/** HSQLDB truncates referenced tables while referential integrity is disabled. */
+	@Override
+	public boolean supportsTruncate(boolean referenced) {
+		return true;
+	}
+
+	@Override
+	public boolean supportsDisableForeignKeys() {
+		return true;
+	}
+
+	/** SET DATABASE REFERENTIAL INTEGRITY commits current transaction. */
+	@Override
+	public boolean isDisableForeignKeysTransactional() {
+		return false;
+	}
+
+	/** Disable referential integrity; note that HSQLDB setting is global for the entire database, not per connection. */
+	@Override
+	public List<String> disableForeignKeys(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute("SET DATABASE REFERENTIAL INTEGRITY FALSE");
+		} finally {
+			statement.close();
+		}
+		return Collections.singletonList("SET DATABASE REFERENTIAL INTEGRITY TRUE");
+	}
+}
@@ -0,0 +1,80 @@
+package com.jslib.unit.db;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Insert data set rows using JDBC batches. Consecutive rows with the same shape - same table and same columns order, are
+ * grouped into a single batch, limited to configured batch size. A change of shape flushes current batch. If batch size
+ * is 1 rows are executed one by one, without JDBC batching. In all cases prepared statements are reused from connection
+ * statements cache.
+ */
+class InsertBatches extends Work
+{
+  private final Iterator<RowDescriptor> rows;
+  private final int batchSize;
+  private final LoadReport report;
+
+  public InsertBatches(Iterator<RowDescriptor> rows, int batchSize, LoadReport report)
+  {
+    this.rows = rows;
+    this.batchSize = batchSize;
+    this.report = report;
+  }
+
+  @Override
+  public Object execute(Connection connection) throws SQLException
+  {
+    List<RowDescriptor> batch = new ArrayList<>(batchSize);
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      if(row.isEmpty()) {
+        continue;
+      }
+      if(!batch.isEmpty() && (batch.size() == batchSize || !batch.get(0).hasSameShape(row))) {
+        executeBatch(connection, batch);
+        batch.clear();
+      }
+      batch.add(row);
+    }
+    if(!batch.isEmpty()) {
+      executeBatch(connection, batch);
+    }
+    return null;
+  }
+
+  private void executeBatch(Connection connection, List<RowDescriptor> batch) throws SQLException
+  {
+    long start = System.nanoTime();
+    PreparedStatement ps = statements.getInsertStatement(driver, batch.get(0));
+    if(verbose) {
+      System.out.println(batchSize > 1 ? String.format("%s -- batch of %d rows", statements.getLastSQL(), batch.size()) : statements.getLastSQL());
+    }
+
+    // streams bound for external values are closed even if binding or execution fails
+    List<Closeable> streams = new ArrayList<>();
+    try {
+      if(batchSize == 1) {
+        InsertTableValues.setParameters(ps, batch.get(0), statements.getLastTypes(), streams);
+        ps.execute();
+      }
+      else {
+        for(RowDescriptor row : batch) {
+          InsertTableValues.setParameters(ps, row, statements.getLastTypes(), streams);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }
+    finally {
+      InsertTableValues.close(streams);
+    }
+    report.addBatch(batch.get(0).getTableName(), batch.size());
+    listener.onBatch(driver.getIdentifier(batch.get(0).getTableName()), batch.size(), System.nanoTime() - start);
+  }
+}
@@ -1,40 +1,62 @@
 package com.jslib.unit.db;
 
-import java.sql.Connection;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.JDBCType;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.text.DateFormat;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 import com.jslib.unit.util.Strings;
 
-class InsertTableValues extends Work
+/** Helpers for building INSERT statements and binding data set values to statement parameters. */
+final class InsertTableValues
 {
   private static enum Type
   {
     NONE, NULL, STRING, INTEGER, BOOLEAN, DATE
   };
 
-  // date format is not thread safe but this utility class is not designed for multi-thread
-  private static final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-  private RowDescriptor row;
+  /** Length of date only value, <code>yyyy-MM-dd</code>. */
+  private static final int DATE_LENGTH = 10;
 
-  public InsertTableValues(RowDescriptor row)
+  private InsertTableValues()
   {
-    this.row = row;
   }
 
-  @Override
-  public Object execute(Connection connection) throws SQLException
+  /**
+   * Build parametrized INSERT statement for given row. Statement is valid for all rows with the same table and columns
+   * shape, see {@link RowDescriptor#hasSameShape(RowDescriptor)}.
+   * 
+   * @param driver database driver,
+   * @param row table row.
+   * @return SQL INSERT statement.
+   */
+  static String buildSQL(Driver driver, RowDescriptor row)
   {
-    if(row.isEmpty()) {
-      return null;
-    }
+    return buildSQL(driver, row, 1);
+  }
 
+  /**
+   * Build parametrized multi-row INSERT statement, with given number of values lists, for rows with the same shape as
+   * given row.
+   * 
+   * @param driver database driver,
+   * @param row table row,
+   * @param rowsCount number of rows inserted by statement.
+   * @return SQL INSERT statement.
+   */
+  static String buildSQL(Driver driver, RowDescriptor row, int rowsCount)
+  {
     List<String> columns = new ArrayList<>();
     List<String> parameters = new ArrayList<>();
     Iterator<ColumnDescriptor> it = row.getColumns();
@@ -44,49 +66,268 @@ class InsertTableValues extends Work
     }
 
     StringBuilder sql = new StringBuilder("INSERT INTO ");
-
-    if(driver.hasSchema()) {
-      sql.append(driver.getTableQuotationMark());
-      sql.append(driver.getSchema());
-      sql.append(driver.getTableQuotationMark());
-      sql.append('.');
-    }
-
-    sql.append(driver.getTableQuotationMark());
-    sql.append(row.getTableName());
-    sql.append(driver.getTableQuotationMark());
+    sql.append(driver.getQualifiedTableName(row.getTableName()));
 
     sql.append(" (");
     for(int i = 0; i < columns.size(); ++i) {
       if(i > 0) {
         sql.append(',');
       }
-      sql.append(driver.getTableQuotationMark());
-      sql.append(columns.get(i));
-      sql.append(driver.getTableQuotationMark());
+      sql.append(driver.getQualifiedColumnName(columns.get(i)));
     }
     sql.append(") ");
 
-    sql.append("VALUES(");
-    sql.append(Strings.join(parameters, ","));
-    sql.append(")");
-
-    if(verbose) {
-      System.out.println(sql.toString());
+    String values = Strings.join(parameters, ",");
+    sql.append("VALUES");
+    for(int i = 0; i < rowsCount; ++i) {
+      if(i > 0) {
+        sql.append(',');
+      }
+      sql.append('(');
+      sql.append(values);
+      sql.append(')');
     }
 
-    PreparedStatement ps = connection.prepareStatement(sql.toString());
-    int index = 1;
-    it = row.getColumns();
+    return sql.toString();
+  }
+
+  /**
+   * Bind row values to INSERT statement parameters, using columns SQL types.
+   * 
+   * @param ps INSERT prepared statement,
+   * @param row table row,
+   * @param types columns SQL types, in columns order; null type for unknown column,
+   * @param streams list collecting streams opened for external values, to be closed by caller after execution.
+   * @throws SQLException if parameter binding fails.
+   */
+  static void setParameters(PreparedStatement ps, RowDescriptor row, Integer[] types, List<Closeable> streams) throws SQLException
+  {
+    int index = 0;
+    Iterator<ColumnDescriptor> it = row.getColumns();
     while(it.hasNext()) {
-      ps.setObject(index++, getValue(it.next()));
+      setParameter(ps, index + 1, row.getTableName(), it.next(), types[index], streams);
+      ++index;
     }
-    ps.execute();
+  }
 
-    return null;
+  /**
+   * Bind column value to statement parameter using typed setter for column SQL type, so that server does not need to
+   * convert values. Explicit column type, if present, takes precedence. If SQL type is null, e.g. column not found in
+   * meta data, value is bound as string and conversion is left to server. Empty value is always bound as SQL null.
+   * Integer columns accept decimal values without fractional part, e.g. <code>1.0</code>, and boolean columns accept
+   * <code>1</code>, <code>true</code>, <code>0</code> and <code>false</code>, case insensitive.
+   * <p>
+   * External values are bound as streams, added to given streams list. Drivers read streams on execution but do not
+   * close them, e.g. if statement fails or when stream length is known; caller should close streams after execution,
+   * successful or not, see {@link #close(List)}.
+   * 
+   * @param ps prepared statement,
+   * @param index parameter index, 1 based,
+   * @param tableName table name, for error reporting,
+   * @param column column descriptor,
+   * @param sqlType column SQL type, possible null,
+   * @param streams list collecting streams opened for external values.
+   * @throws SQLException if parameter binding fails.
+   * @throws IllegalArgumentException if column value is not valid for column SQL type; exception message has table and
+   *           column names.
+   */
+  static void setParameter(PreparedStatement ps, int index, String tableName, ColumnDescriptor column, Integer sqlType, List<Closeable> streams) throws SQLException
+  {
+    if(column.getExternal() != null) {
+      setExternalParameter(ps, index, column.getExternal(), sqlType, streams);
+      return;
+    }
+    String value = column.getValue();
+    if(value.isEmpty()) {
+      ps.setNull(index, sqlType != null ? sqlType : Types.VARCHAR);
+      return;
+    }
+    try {
+      setValue(ps, index, column, sqlType);
+    }
+    catch(IllegalArgumentException | ArithmeticException e) {
+      String type = column.getType() != null ? column.getType() : sqlType != null ? typeName(sqlType) : "string";
+      throw new IllegalArgumentException(String.format("Invalid value |%s| for column |%s.%s| of type |%s|.", value, tableName, column.getName(), type), e);
+    }
   }
 
-  private Object getValue(ColumnDescriptor column)
+  private static void setValue(PreparedStatement ps, int index, ColumnDescriptor column, Integer sqlType) throws SQLException
+  {
+    String value = column.getValue();
+    if(column.getType() != null || sqlType == null) {
+      ps.setObject(index, getValue(column));
+      return;
+    }
+
+    switch(sqlType) {
+    case Types.BIT:
+    case Types.BOOLEAN:
+      ps.setBoolean(index, parseBoolean(value));
+      break;
+
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.INTEGER:
+    case Types.BIGINT:
+      ps.setLong(index, parseLong(value.trim()));
+      break;
+
+    case Types.DECIMAL:
+    case Types.NUMERIC:
+      ps.setBigDecimal(index, new BigDecimal(value.trim()));
+      break;
+
+    case Types.REAL:
+    case Types.FLOAT:
+    case Types.DOUBLE:
+      ps.setDouble(index, Double.parseDouble(value));
+      break;
+
+    case Types.DATE:
+      // some drivers, e.g. Oracle, report DATE for columns storing time too
+      if(value.length() > DATE_LENGTH) {
+        ps.setTimestamp(index, parseTimestamp(value));
+      }
+      else {
+        ps.setDate(index, java.sql.Date.valueOf(value));
+      }
+      break;
+
+    case Types.TIME:
+      ps.setTime(index, Time.valueOf(value));
+      break;
+
+    case Types.TIMESTAMP:
+      ps.setTimestamp(index, parseTimestamp(value));
+      break;
+
+    case Types.BINARY:
+    case Types.VARBINARY:
+    case Types.LONGVARBINARY:
+    case Types.BLOB:
+      ps.setBytes(index, value.getBytes(StandardCharsets.UTF_8));
+      break;
+
+    default:
+      ps.setString(index, value);
+    }
+  }
+
+  /** Get JDBC type name for error reporting; vendor specific types are reported by number. */
+  private static String typeName(int sqlType)
+  {
+    try {
+      return JDBCType.valueOf(sqlType).getName();
+    }
+    catch(IllegalArgumentException e) {
+      return Integer.toString(sqlType);
+    }
+  }
+
+  /**
+   * Parse boolean value: <code>1</code> and <code>true</code> for true, <code>0</code> and <code>false</code> for false,
+   * case insensitive.
+   * 
+   * @throws IllegalArgumentException if value is not a boolean.
+   */
+  private static boolean parseBoolean(String value)
+  {
+    if(value.equals("1") || value.equalsIgnoreCase("true")) {
+      return true;
+    }
+    if(value.equals("0") || value.equalsIgnoreCase("false")) {
+      return false;
+    }
+    throw new IllegalArgumentException("Not a boolean value: " + value);
+  }
+
+  /**
+   * Parse integer value, accepting decimal notation without fractional part, e.g. <code>1.0</code> or <code>1E3</code>.
+   * 
+   * @throws NumberFormatException if value is not a number.
+   * @throws ArithmeticException if value has a fractional part or is out of long range.
+   */
+  private static long parseLong(String value)
+  {
+    try {
+      return Long.parseLong(value);
+    }
+    catch(NumberFormatException e) {
+      return new BigDecimal(value).longValueExact();
+    }
+  }
+
+  /**
+   * Bind external value as stream, read by JDBC driver on statement execution: character stream for text columns and
+   * binary stream otherwise, including unknown SQL type. Opened stream is added to given streams list.
+   * 
+   * @param ps prepared statement,
+   * @param index parameter index, 1 based,
+   * @param external external value,
+   * @param sqlType column SQL type, possible null,
+   * @param streams list collecting opened streams.
+   * @throws SQLException if external value cannot be opened or parameter binding fails.
+   */
+  private static void setExternalParameter(PreparedStatement ps, int index, ExternalValue external, Integer sqlType, List<Closeable> streams) throws SQLException
+  {
+    try {
+      if(sqlType != null && isCharacterType(sqlType)) {
+        Reader reader = external.openReader();
+        streams.add(reader);
+        ps.setCharacterStream(index, reader);
+        return;
+      }
+      long length = external.getLength();
+      InputStream stream = external.openStream();
+      streams.add(stream);
+      if(length >= 0) {
+        ps.setBinaryStream(index, stream, length);
+      }
+      else {
+        ps.setBinaryStream(index, stream);
+      }
+    }
+    catch(IOException e) {
+      throw new SQLException("Fail to open external value " + external, e);
+    }
+  }
+
+  /**
+   * Close streams opened for external values and clear the list. Close errors are ignored since streams are read only.
+   * 
+   * @param streams opened streams, possible empty.
+   */
+  static void close(List<Closeable> streams)
+  {
+    for(Closeable stream : streams) {
+      try {
+        stream.close();
+      }
+      catch(IOException ignore) {
+      }
+    }
+    streams.clear();
+  }
+
+  private static boolean isCharacterType(int sqlType)
+  {
+    switch(sqlType) {
+    case Types.CHAR:
+    case Types.VARCHAR:
+    case Types.LONGVARCHAR:
+    case Types.CLOB:
+    case Types.NCHAR:
+    case Types.NVARCHAR:
+    case Types.LONGNVARCHAR:
+    case Types.NCLOB:
+      return true;
+
+    default:
+      return false;
+    }
+  }
+
+  static Object getValue(ColumnDescriptor column)
   {
     String typeValue = column.getType();
     if(typeValue == null) {
@@ -102,14 +343,33 @@ class InsertTableValues extends Work
     case NULL:
       return null;
     case BOOLEAN:
-      return Boolean.parseBoolean(value);
+      return parseBoolean(value);
     case INTEGER:
       return Integer.parseInt(value);
     case DATE:
-      return dateFormat.parse(value, new ParsePosition(0));
+      return parseTimestamp(value);
     default:
       break;
     }
     return value;
   }
-}
\ No newline at end of file
+
+  /**
+   * Parse data set date value, in <code>yyyy-MM-dd HH:mm:ss</code> format, optionally with fractional seconds. Time part
+   * is optional and ISO <code>T</code> separator is accepted. This method is thread safe.
+   * 
+   * @param value date value.
+   * @return timestamp value.
+   * @throws IllegalArgumentException if value is not a valid date.
+   */
+  static Timestamp parseTimestamp(String value)
+  {
+    if(value.length() == DATE_LENGTH) {
+      return new Timestamp(java.sql.Date.valueOf(value).getTime());
+    }
+    if(value.length() > DATE_LENGTH && value.charAt(DATE_LENGTH) == 'T') {
+      value = value.replace('T', ' ');
+    }
+    return Timestamp.valueOf(value);
+  }
+}
@@ -0,0 +1,72 @@
+package com.jslib.unit.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Connection handed to code under test while running inside an isolation transaction. All operations are delegated to
+ * the session transaction connection except those that would end or leak the transaction: <code>commit</code>,
+ * <code>close</code> and <code>setAutoCommit</code> are ignored and <code>rollback</code> reverts to the savepoint
+ * created when isolation started, so that test code cannot rollback loaded fixture. Proxy equality is based on identity.
+ */
+class IsolatedConnection implements InvocationHandler
+{
+  static Connection newInstance(Connection connection) throws SQLException
+  {
+    return (Connection)Proxy.newProxyInstance(IsolatedConnection.class.getClassLoader(), new Class<?>[]
+    {
+        Connection.class
+    }, new IsolatedConnection(connection));
+  }
+
+  private final Connection connection;
+  private final Savepoint savepoint;
+
+  private IsolatedConnection(Connection connection) throws SQLException
+  {
+    this.connection = connection;
+    this.savepoint = connection.setSavepoint();
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+  {
+    switch(method.getName()) {
+    case "commit":
+    case "close":
+    case "setAutoCommit":
+      return null;
+
+    case "getAutoCommit":
+      return false;
+
+    case "rollback":
+      if(args == null) {
+        connection.rollback(savepoint);
+        return null;
+      }
+      break;
+
+    case "toString":
+      return "Isolated " + connection;
+
+    case "equals":
+      return proxy == args[0];
+
+    case "hashCode":
+      return System.identityHashCode(proxy);
+    }
+
+    try {
+      return method.invoke(connection, args);
+    }
+    catch(InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+}
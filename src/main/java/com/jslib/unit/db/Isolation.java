@@ -0,0 +1,47 @@
+package com.jslib.unit.db;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Database isolation level for tests running in parallel. With isolation enabled every worker, that is test JVM or test
+ * thread, uses its own schema, derived from driver schema and worker identifier and created on demand, see
+ * {@link Driver#forWorker(String)}.
+ */
+public enum Isolation
+{
+  /** All workers share driver schema. */
+  NONE,
+  /**
+   * A schema per test JVM. Worker identifier is surefire fork number, read from <code>surefire.forkNumber</code> or
+   * <code>forkNumber</code> system property, e.g. configured into surefire system property variables as
+   * <code>&lt;forkNumber&gt;${surefire.forkNumber}&lt;/forkNumber&gt;</code>. If none is defined JVM process ID is used
+   * instead.
+   */
+  FORK,
+  /** A schema per thread creating the {@link Database} instance. */
+  THREAD;
+
+  /**
+   * Get identifier for current worker, usable as schema name suffix.
+   * 
+   * @return worker identifier or null if isolation is not enabled.
+   */
+  public String getWorkerId()
+  {
+    switch(this) {
+    case FORK:
+      String forkNumber = System.getProperty("surefire.forkNumber", System.getProperty("forkNumber"));
+      if(forkNumber != null) {
+        return "F" + forkNumber;
+      }
+      // runtime name is process ID and host name separated by at sign
+      return "P" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+    case THREAD:
+      return "T" + Thread.currentThread().getId();
+
+    default:
+      return null;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.jslib.unit.db;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Listeners list dispatching events to all registered listeners. This class is thread safe. */
+class Listeners implements DatabaseListener
+{
+  private final List<DatabaseListener> listeners = new CopyOnWriteArrayList<>();
+
+  void add(DatabaseListener listener)
+  {
+    listeners.add(listener);
+  }
+
+  void remove(DatabaseListener listener)
+  {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public void onConnectionAcquire(long nanos)
+  {
+    for(DatabaseListener listener : listeners) {
+      listener.onConnectionAcquire(nanos);
+    }
+  }
+
+  @Override
+  public void onMetaData(String tableName, long nanos)
+  {
+    for(DatabaseListener listener : listeners) {
+      listener.onMetaData(tableName, nanos);
+    }
+  }
+
+  @Override
+  public void onTableClear(String tableName, long nanos)
+  {
+    for(DatabaseListener listener : listeners) {
+      listener.onTableClear(tableName, nanos);
+    }
+  }
+
+  @Override
+  public void onBatch(String tableName, int rowsCount, long nanos)
+  {
+    for(DatabaseListener listener : listeners) {
+      listener.onBatch(tableName, rowsCount, nanos);
+    }
+  }
+}
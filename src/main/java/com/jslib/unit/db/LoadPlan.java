@@ -0,0 +1,264 @@
+package com.jslib.unit.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Execution plan for loading data set rows in the cheapest order. Rows are bucketed per table, buckets are ordered by
+ * foreign keys load order, see {@link TableGraph#getLoadOrder()}, and every bucket is split into groups of rows with the
+ * same columns, every group being loaded with a single INSERT statement and maximal batches. Tables not found in meta
+ * data are loaded last, in the order they first appear in data set.
+ * <p>
+ * Rows with the same columns but in different order or case are part of the same group, their columns being reordered to
+ * the group order and renamed as in group first row; rows with missing columns are grouped separately, so that missing columns keep their database default
+ * values. Groups from a table are ordered by first row position in data set.
+ * <p>
+ * Plan can be inspected before execution, see {@link #getSteps()} and {@link #toString()}, and executed by
+ * {@link Database#load(LoadPlan)}. All data set rows are kept in memory.
+ */
+public class LoadPlan
+{
+  private final List<Step> steps;
+
+  /**
+   * Create load plan for given rows. Batch and bulk size are used only to estimate round trips.
+   *
+   * @param driver database driver,
+   * @param graph tables graph,
+   * @param rows data set rows,
+   * @param batchSize JDBC batch size,
+   * @param bulkSize bulk size or 0 if bulk load is disabled.
+   */
+  LoadPlan(Driver driver, TableGraph graph, Iterator<RowDescriptor> rows, int batchSize, int bulkSize)
+  {
+    Map<String, Map<String, Step>> buckets = new LinkedHashMap<>();
+    for(String tableName : graph.getLoadOrder()) {
+      buckets.put(tableName, null);
+    }
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      if(row.isEmpty()) {
+        continue;
+      }
+      String tableName = driver.getIdentifier(row.getTableName());
+      Map<String, Step> bucket = buckets.get(tableName);
+      if(bucket == null) {
+        bucket = new LinkedHashMap<>();
+        buckets.put(tableName, bucket);
+      }
+
+      // group key is the sorted set of columns so that columns order does not matter
+      List<String> columnNames = new ArrayList<>();
+      Iterator<ColumnDescriptor> columns = row.getColumns();
+      while(columns.hasNext()) {
+        columnNames.add(driver.getIdentifier(columns.next().getName()));
+      }
+      List<String> sortedNames = new ArrayList<>(columnNames);
+      Collections.sort(sortedNames);
+      String groupKey = sortedNames.toString();
+
+      Step step = bucket.get(groupKey);
+      if(step == null) {
+        step = new Step(driver, tableName, row, columnNames);
+        bucket.put(groupKey, step);
+      }
+      step.add(row, columnNames);
+    }
+
+    List<Step> planSteps = new ArrayList<>();
+    for(Map<String, Step> bucket : buckets.values()) {
+      if(bucket != null) {
+        for(Step step : bucket.values()) {
+          step.estimateRoundTrips(batchSize, bulkSize);
+          planSteps.add(step);
+        }
+      }
+    }
+    steps = Collections.unmodifiableList(planSteps);
+  }
+
+  /**
+   * Get plan steps in execution order, one per table and columns group.
+   *
+   * @return plan steps.
+   */
+  public List<Step> getSteps()
+  {
+    return steps;
+  }
+
+  public long getRowsCount()
+  {
+    long rowsCount = 0;
+    for(Step step : steps) {
+      rowsCount += step.rows.size();
+    }
+    return rowsCount;
+  }
+
+  /**
+   * Get the estimated number of database round trips for the whole plan, see {@link Step#getRoundTrips()}.
+   *
+   * @return estimated round trips.
+   */
+  public long getRoundTrips()
+  {
+    long roundTrips = 0;
+    for(Step step : steps) {
+      roundTrips += step.roundTrips;
+    }
+    return roundTrips;
+  }
+
+  /**
+   * Get rows in plan order. Consecutive rows from the same step have the same shape, see
+   * {@link RowDescriptor#hasSameShape(RowDescriptor)}.
+   *
+   * @return rows iterator.
+   */
+  Iterator<RowDescriptor> getRows()
+  {
+    return new Iterator<RowDescriptor>()
+    {
+      private final Iterator<Step> stepsIterator = steps.iterator();
+      private Iterator<RowDescriptor> rowsIterator = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext()
+      {
+        while(!rowsIterator.hasNext() && stepsIterator.hasNext()) {
+          rowsIterator = stepsIterator.next().rows.iterator();
+        }
+        return rowsIterator.hasNext();
+      }
+
+      @Override
+      public RowDescriptor next()
+      {
+        if(!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return rowsIterator.next();
+      }
+    };
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    for(Step step : steps) {
+      builder.append(step);
+      builder.append("\r\n");
+    }
+    builder.append(String.format("total: %d rows in %d round trips\r\n", getRowsCount(), getRoundTrips()));
+    return builder.toString();
+  }
+
+  /** Plan step: rows from the same table, with the same columns, inserted by the same statement. */
+  public static class Step
+  {
+    private final String tableName;
+    private final List<String> columnNames;
+    private final String sql;
+    private final List<RowDescriptor> rows = new ArrayList<>();
+    private long roundTrips;
+
+    private Step(Driver driver, String tableName, RowDescriptor row, List<String> columnNames)
+    {
+      this.tableName = tableName;
+      this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+      this.sql = InsertTableValues.buildSQL(driver, row);
+    }
+
+    /**
+     * Add row to this step. If row shape differs from step first row, e.g. columns in different order or table and
+     * columns names with different case, row is rebuilt with first row table name, columns order and columns names, so
+     * that all step rows have the same shape.
+     */
+    private void add(RowDescriptor row, List<String> rowColumnNames)
+    {
+      if(rows.isEmpty() || rows.get(0).hasSameShape(row)) {
+        rows.add(row);
+        return;
+      }
+      Map<String, ColumnDescriptor> columns = new LinkedHashMap<>();
+      Iterator<ColumnDescriptor> it = row.getColumns();
+      for(String columnName : rowColumnNames) {
+        columns.put(columnName, it.next());
+      }
+      // first row columns are in step columns order
+      RowDescriptor firstRow = rows.get(0);
+      Iterator<ColumnDescriptor> firstColumns = firstRow.getColumns();
+      RowDescriptor orderedRow = new RowDescriptor(firstRow.getTableName());
+      for(String columnName : columnNames) {
+        orderedRow.addColumnDescritor(rename(columns.get(columnName), firstColumns.next().getName()));
+      }
+      rows.add(orderedRow);
+    }
+
+    private static ColumnDescriptor rename(ColumnDescriptor column, String name)
+    {
+      if(column.getName().equals(name)) {
+        return column;
+      }
+      if(column.getExternal() != null) {
+        return new ColumnDescriptor(name, column.getType(), column.getExternal());
+      }
+      return new ColumnDescriptor(name, column.getType(), column.getValue());
+    }
+
+    private void estimateRoundTrips(int batchSize, int bulkSize)
+    {
+      int size = bulkSize > 0 ? bulkSize : batchSize;
+      roundTrips = (rows.size() + size - 1) / size;
+    }
+
+    public String getTableName()
+    {
+      return tableName;
+    }
+
+    public List<String> getColumnNames()
+    {
+      return columnNames;
+    }
+
+    /**
+     * Get parametrized INSERT statement executed by this step.
+     *
+     * @return SQL statement.
+     */
+    public String getSQL()
+    {
+      return sql;
+    }
+
+    public int getRowsCount()
+    {
+      return rows.size();
+    }
+
+    /**
+     * Get the estimated number of database round trips, that is, the number of executed batches or bulks. Drivers
+     * splitting bulks into multiple statements may execute more round trips.
+     *
+     * @return estimated round trips.
+     */
+    public long getRoundTrips()
+    {
+      return roundTrips;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%s: %d rows in %d round trips\r\n\t%s", tableName, rows.size(), roundTrips, sql);
+    }
+  }
+}
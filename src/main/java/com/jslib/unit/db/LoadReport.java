@@ -0,0 +1,55 @@
+package com.jslib.unit.db;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Statistics collected while loading a data set: number of executed batches and inserted rows, per table. Tables are
+ * reported in the order they were first loaded. When batching is disabled every row counts as a batch of one. This
+ * class is thread safe.
+ */
+public class LoadReport
+{
+  private final Map<String, long[]> tables = new LinkedHashMap<>();
+
+  synchronized void addBatch(String tableName, int rowsCount)
+  {
+    long[] counters = tables.get(tableName);
+    if(counters == null) {
+      counters = new long[2];
+      tables.put(tableName, counters);
+    }
+    counters[0]++;
+    counters[1] += rowsCount;
+  }
+
+  public synchronized Set<String> getTableNames()
+  {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(tables.keySet()));
+  }
+
+  public synchronized long getBatchesCount(String tableName)
+  {
+    long[] counters = tables.get(tableName);
+    return counters != null ? counters[0] : 0;
+  }
+
+  public synchronized long getRowsCount(String tableName)
+  {
+    long[] counters = tables.get(tableName);
+    return counters != null ? counters[1] : 0;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    for(Map.Entry<String, long[]> entry : tables.entrySet()) {
+      builder.append(String.format("%s: %d rows in %d batches\r\n", entry.getKey(), entry.getValue()[1], entry.getValue()[0]));
+    }
+    return builder.toString();
+  }
+}
@@ -1,5 +1,13 @@
 package com.jslib.unit.db;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class MicrosoftSQLDriver extends Driver {
 	public MicrosoftSQLDriver(String address, String catalog, String user, String password) {
 		this.name = "net.sourceforge.jtds.jdbc.Driver";
@@ -9,4 +17,89 @@ public class MicrosoftSQLDriver extends Driver {
 		this.password = password;
 		this.url = String.format("jdbc:jtds:sqlserver://%s:1433/%s;user=%s;password=%s;encrypt=false", address, catalog, user, password);
 	}
+
+	/**
+	 * SQL Server cannot drop a schema together with its objects; worker driver uses a sibling database, on the same
+	 * server, and qualifies table names with it. Connection URL is not changed since worker database does not exist before
+	 * first connect. Worker tables are created by init script; schema clone is not supported.
+	 */
+	@Override
+	public Driver forWorker(String workerId) {
+		Driver driver = copy();
+		driver.catalog = catalog + '_' + workerId;
+		driver.template = this;
+		return driver;
+	}
+
+	@Override
+	protected List<String> getCreateSchemaSQL() {
+		return Arrays.asList("IF DB_ID('" + catalog + "') IS NOT NULL DROP DATABASE [" + catalog + "]", "CREATE DATABASE [" + catalog + "]");
+	}
+
+	/** Worker driver table names are qualified with worker database, since connections use template database. */
+	@Override
+	public String getQualifiedTableName(String tableName) {
+		String qualifiedName = super.getQualifiedTableName(tableName);
+		return template != null ? "[" + catalog + "]." + qualifiedName : qualifiedName;
+	}
+
+	/**
+	 * Worker schema is a database, see {@link #forWorker(String)}, so that init script runs with worker database as
+	 * current one; current schema value is a database name.
+	 */
+	@Override
+	protected String getCurrentSchema(Connection connection) throws SQLException {
+		return connection.getCatalog();
+	}
+
+	@Override
+	protected void setCurrentSchema(Connection connection, String schema) throws SQLException {
+		connection.setCatalog(schema.equals(this.schema) ? catalog : schema);
+	}
+
+	/** SQL Server refuses to truncate a table referenced by a foreign key, even if constraint is disabled. */
+	@Override
+	public boolean supportsTruncate(boolean referenced) {
+		return !referenced;
+	}
+
+	@Override
+	public boolean supportsDisableForeignKeys() {
+		return true;
+	}
+
+	/**
+	 * Query for enabled foreign keys of driver catalog and schema. Catalog views and object name functions are qualified
+	 * with driver catalog since worker connections current database is the template one, see {@link #forWorker(String)};
+	 * foreign key names generated by SQL Server differ between databases.
+	 */
+	String getForeignKeysSQL() {
+		return "SELECT OBJECT_NAME(parent_object_id, DB_ID(?)), name FROM [" + catalog + "].sys.foreign_keys WHERE is_disabled=0 AND UPPER(OBJECT_SCHEMA_NAME(parent_object_id, DB_ID(?)))=?";
+	}
+
+	/** Disable enabled foreign keys from schema with NOCHECK; restore statements check existing rows on enable. */
+	@Override
+	public List<String> disableForeignKeys(Connection connection) throws SQLException {
+		List<String> constraints = new ArrayList<>();
+		PreparedStatement query = connection.prepareStatement(getForeignKeysSQL());
+		try {
+			query.setString(1, catalog);
+			query.setString(2, catalog);
+			query.setString(3, schema);
+			ResultSet rs = query.executeQuery();
+			while (rs.next()) {
+				constraints.add(String.format("ALTER TABLE %s %%s CONSTRAINT [%s]", getQualifiedTableName(rs.getString(1)), rs.getString(2)));
+			}
+		} finally {
+			query.close();
+		}
+
+		List<String> disable = new ArrayList<>();
+		List<String> restore = new ArrayList<>();
+		for (String constraint : constraints) {
+			disable.add(String.format(constraint, "NOCHECK"));
+			restore.add(String.format(constraint, "WITH CHECK CHECK"));
+		}
+		return disableConstraints(connection, disable, restore);
+	}
 }
@@ -1,13 +1,327 @@
 package com.jslib.unit.db;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
 public class MySQLDriver extends Driver {
+	private static final String LOCAL_INFILE = "&allowLoadLocalInfile=true";
+
+	private boolean localInfile;
+
 	public MySQLDriver(String address, String catalog, String user, String password) {
 		this.name = "com.mysql.jdbc.Driver";
 		this.catalog = catalog;
 		this.schema = null;
 		this.user = user;
 		this.password = password;
-	    this.url = String.format("jdbc:mysql://%s:3306/%s?%s", address, catalog, "useUnicode=true&characterEncoding=UTF-8");
+		this.url = String.format("jdbc:mysql://%s:3306/%s?%s", address, catalog, "useUnicode=true&characterEncoding=UTF-8");
 		this.tableQuotationMark = "`";
 	}
+
+	/**
+	 * Enable bulk insert with <code>LOAD DATA LOCAL INFILE</code>, see {@link #bulkInsert(Connection, List, Integer[])}.
+	 * Disabled by default since it adds <code>allowLoadLocalInfile</code> to connection URL, that allows server to read
+	 * client files; server should also have <code>local_infile</code> enabled. Should be set before first connect. When
+	 * disabled, bulk insert uses multi-row INSERT statements.
+	 * 
+	 * @param localInfile true to enable <code>LOAD DATA LOCAL INFILE</code>.
+	 */
+	public void setLocalInfile(boolean localInfile) {
+		this.localInfile = localInfile;
+		this.url = url.replace(LOCAL_INFILE, "") + (localInfile ? LOCAL_INFILE : "");
+	}
+
+	/**
+	 * MySQL has no schemas inside a database; worker driver uses a sibling database, on the same server, and qualifies
+	 * table names with it. Connection URL is not changed since worker database does not exist before first connect.
+	 */
+	@Override
+	public Driver forWorker(String workerId) {
+		Driver driver = copy();
+		driver.catalog = catalog + '_' + workerId;
+		driver.schema = driver.catalog;
+		driver.template = this;
+		return driver;
+	}
+
+	@Override
+	protected List<String> getCreateSchemaSQL() {
+		return Arrays.asList("DROP DATABASE IF EXISTS `" + catalog + "`", "CREATE DATABASE `" + catalog + "`");
+	}
+
+	/** Clone template database tables using <code>SHOW CREATE TABLE</code>, foreign keys included. */
+	@Override
+	protected void cloneSchema(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			List<String> tables = new ArrayList<>();
+			ResultSet rs = statement.executeQuery("SHOW FULL TABLES FROM `" + template.catalog + "` WHERE Table_type='BASE TABLE'");
+			while (rs.next()) {
+				tables.add(rs.getString(1));
+			}
+			rs.close();
+
+			List<String> ddl = new ArrayList<>();
+			for (String table : tables) {
+				rs = statement.executeQuery("SHOW CREATE TABLE `" + template.catalog + "`.`" + table + "`");
+				rs.next();
+				ddl.add(rs.getString(2));
+				rs.close();
+			}
+
+			// foreign keys in created DDL are not qualified and refer to current database
+			String currentCatalog = connection.getCatalog();
+			connection.setCatalog(catalog);
+			statement.execute("SET FOREIGN_KEY_CHECKS=0");
+			try {
+				for (String sql : ddl) {
+					statement.execute(sql);
+				}
+			} finally {
+				statement.execute("SET FOREIGN_KEY_CHECKS=1");
+				connection.setCatalog(currentCatalog);
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	@Override
+	protected String getCurrentSchema(Connection connection) throws SQLException {
+		return connection.getCatalog();
+	}
+
+	@Override
+	protected void setCurrentSchema(Connection connection, String schema) throws SQLException {
+		connection.setCatalog(schema);
+	}
+
+	/** MySQL driver buffers entire result set unless fetch size is minimum integer, that enables row streaming. */
+	@Override
+	public int getFetchSize() {
+		return Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Bulk insert with <code>LOAD DATA LOCAL INFILE</code>, if enabled by {@link #setLocalInfile(boolean)}, streaming rows
+	 * from an in-memory tab separated stream, set on statement with Connector/J <code>setLocalInfileInputStream</code>; no
+	 * temporary file is created. Falls back to multi-row insert if local infile is not enabled, if connection is not a
+	 * Connector/J one or if rows have external values, that are bound as streams.
+	 * <p>
+	 * <code>LOAD DATA LOCAL</code> has <code>IGNORE</code> semantics: duplicate keys and invalid values are reported as
+	 * warnings instead of errors. To keep INSERT semantics, this method fails if loaded rows count does not match or if
+	 * server reports warnings.
+	 * 
+	 * @throws SQLException if insert fails, if not all rows are loaded or if server reports warnings.
+	 */
+	@Override
+	public void bulkInsert(Connection connection, List<RowDescriptor> rows, Integer[] types) throws SQLException {
+		if (!localInfile || hasExternalValues(rows)) {
+			super.bulkInsert(connection, rows, types);
+			return;
+		}
+		Statement statement = connection.createStatement();
+		try {
+			Method setInputStream = getLocalInfileSetter(statement);
+			if (setInputStream == null) {
+				super.bulkInsert(connection, rows, types);
+				return;
+			}
+			try {
+				setInputStream.invoke(statement.unwrap(setInputStream.getDeclaringClass()), new RowsInputStream(rows, types));
+			} catch (Exception e) {
+				throw new SQLException("Fail to set LOAD DATA input stream.", e);
+			}
+
+			StringBuilder sql = new StringBuilder("LOAD DATA LOCAL INFILE 'rows' INTO TABLE ");
+			sql.append(getQualifiedTableName(rows.get(0).getTableName()));
+			sql.append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (");
+			Iterator<ColumnDescriptor> it = rows.get(0).getColumns();
+			for (int i = 0; it.hasNext(); ++i) {
+				if (i > 0) {
+					sql.append(',');
+				}
+				sql.append(getQualifiedColumnName(it.next().getName()));
+			}
+			sql.append(')');
+			statement.execute(sql.toString());
+			checkLoad(statement, rows);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/** Row shape does not include external values, so that every bulk row should be tested. */
+	private static boolean hasExternalValues(List<RowDescriptor> rows) {
+		for (RowDescriptor row : rows) {
+			if (row.hasExternalValues()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void checkLoad(Statement statement, List<RowDescriptor> rows) throws SQLException {
+		int loadedRows = statement.getUpdateCount();
+		SQLWarning warning = statement.getWarnings();
+		if (loadedRows == rows.size() && warning == null) {
+			return;
+		}
+		StringBuilder message = new StringBuilder();
+		message.append(String.format("LOAD DATA into %s loaded %d of %d rows.", rows.get(0).getTableName(), loadedRows, rows.size()));
+		for (; warning != null; warning = warning.getNextWarning()) {
+			message.append("\r\n\t- ");
+			message.append(warning.getMessage());
+		}
+		throw new SQLException(message.toString());
+	}
+
+	private static Method getLocalInfileSetter(Statement statement) throws SQLException {
+		for (String className : new String[] { "com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement" }) {
+			try {
+				Class<?> mysqlStatement = Class.forName(className);
+				if (statement.isWrapperFor(mysqlStatement)) {
+					return mysqlStatement.getMethod("setLocalInfileInputStream", InputStream.class);
+				}
+			} catch (ClassNotFoundException | NoSuchMethodException unused) {
+			}
+		}
+		return null;
+	}
+
+	/** With foreign keys checking disabled MySQL truncates referenced tables too. */
+	@Override
+	public boolean supportsTruncate(boolean referenced) {
+		return true;
+	}
+
+	@Override
+	public boolean supportsDisableForeignKeys() {
+		return true;
+	}
+
+	/** TRUNCATE TABLE is DDL and commits current transaction. */
+	@Override
+	public boolean isTruncateTransactional() {
+		return false;
+	}
+
+	/** Foreign keys checking is disabled per connection, using <code>FOREIGN_KEY_CHECKS</code> session variable. */
+	@Override
+	public List<String> disableForeignKeys(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute("SET FOREIGN_KEY_CHECKS=0");
+		} finally {
+			statement.close();
+		}
+		return Collections.singletonList("SET FOREIGN_KEY_CHECKS=1");
+	}
+
+	/**
+	 * Rows encoded in <code>LOAD DATA</code> default format: tab separated fields, new line terminated rows, backslash
+	 * escapes and <code>\\N</code> for null. Rows are encoded one by one, while stream is read.
+	 */
+	private static class RowsInputStream extends InputStream {
+		private final Iterator<RowDescriptor> rows;
+		private final Integer[] types;
+		private final StringBuilder line = new StringBuilder();
+		private byte[] buffer = new byte[0];
+		private int position;
+
+		public RowsInputStream(List<RowDescriptor> rows, Integer[] types) {
+			this.rows = rows.iterator();
+			this.types = types;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.length - position);
+			System.arraycopy(buffer, position, bytes, offset, count);
+			position += count;
+			return count;
+		}
+
+		private boolean fill() {
+			while (position == buffer.length) {
+				if (!rows.hasNext()) {
+					return false;
+				}
+				encode(rows.next());
+			}
+			return true;
+		}
+
+		private void encode(RowDescriptor row) {
+			line.setLength(0);
+			Iterator<ColumnDescriptor> it = row.getColumns();
+			for (int i = 0; it.hasNext(); ++i) {
+				if (i > 0) {
+					line.append('\t');
+				}
+				String value = it.next().getValue();
+				if (value.isEmpty()) {
+					line.append("\\N");
+					continue;
+				}
+				Integer type = types[i];
+				if (type != null && (type == Types.BIT || type == Types.BOOLEAN)) {
+					line.append(value.equals("1") || Boolean.parseBoolean(value) ? '1' : '0');
+					continue;
+				}
+				for (int j = 0; j < value.length(); ++j) {
+					char c = value.charAt(j);
+					switch (c) {
+					case '\\':
+						line.append("\\\\");
+						break;
+					case '\t':
+						line.append("\\t");
+						break;
+					case '\n':
+						line.append("\\n");
+						break;
+					case '\r':
+						line.append("\\r");
+						break;
+					case '\0':
+						line.append("\\0");
+						break;
+					default:
+						line.append(c);
+					}
+				}
+			}
+			line.append('\n');
+			buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+			position = 0;
+		}
+	}
 }
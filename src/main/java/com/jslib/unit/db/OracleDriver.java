@@ -1,5 +1,14 @@
 package com.jslib.unit.db;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
 public class OracleDriver extends Driver {
 	public OracleDriver(String address, String catalog, String user, String password) {
 		this.name = "oracle.jdbc.driver.OracleDriver";
@@ -10,4 +19,80 @@ public class OracleDriver extends Driver {
 		this.url = String.format("jdbc:oracle:thin:@%s:1521:%s", address, catalog);
 		this.tableQuotationMark = "\"";
 	}
+
+	/**
+	 * Oracle schemas are database users; worker schema, see {@link #forWorker(String)}, is a user named after this driver
+	 * user, created with a random password and accessed from this driver connections with qualified names. Existing worker
+	 * user is dropped, together with its objects. Connecting user needs <code>CREATE USER</code>, <code>DROP USER</code>
+	 * and <code>CREATE ANY TABLE</code> privileges. Worker tables are created by init script; schema clone is not
+	 * supported.
+	 */
+	@Override
+	protected List<String> getCreateSchemaSQL() {
+		String user = "\"" + schema + "\"";
+		String password = "\"P" + UUID.randomUUID().toString().replace("-", "").substring(0, 29) + "\"";
+		return Arrays.asList("BEGIN EXECUTE IMMEDIATE 'DROP USER " + user + " CASCADE'; EXCEPTION WHEN OTHERS THEN IF SQLCODE != -1918 THEN RAISE; END IF; END;", //
+				"CREATE USER " + user + " IDENTIFIED BY " + password, //
+				"GRANT UNLIMITED TABLESPACE TO " + user);
+	}
+
+	/** Oracle does not support multi-row VALUES and uses <code>INSERT ALL</code> instead. */
+	@Override
+	protected String getBulkInsertSQL(RowDescriptor row, int rowsCount) {
+		String into = InsertTableValues.buildSQL(this, row).replaceFirst("^INSERT ", "");
+		StringBuilder sql = new StringBuilder("INSERT ALL");
+		for (int i = 0; i < rowsCount; ++i) {
+			sql.append(' ');
+			sql.append(into);
+		}
+		sql.append(" SELECT 1 FROM DUAL");
+		return sql.toString();
+	}
+
+	/** Oracle truncates referenced tables only if referencing constraints are disabled. */
+	@Override
+	public boolean supportsTruncate(boolean referenced) {
+		return true;
+	}
+
+	@Override
+	public boolean supportsDisableForeignKeys() {
+		return true;
+	}
+
+	/** Constraints are disabled with DDL statements that commit current transaction. */
+	@Override
+	public boolean isDisableForeignKeysTransactional() {
+		return false;
+	}
+
+	/** TRUNCATE TABLE is DDL and commits current transaction. */
+	@Override
+	public boolean isTruncateTransactional() {
+		return false;
+	}
+
+	/** Disable enabled referential constraints from schema; only constraints disabled here are enabled back. */
+	@Override
+	public List<String> disableForeignKeys(Connection connection) throws SQLException {
+		List<String> constraints = new ArrayList<>();
+		PreparedStatement query = connection.prepareStatement("SELECT TABLE_NAME, CONSTRAINT_NAME FROM ALL_CONSTRAINTS WHERE OWNER=? AND CONSTRAINT_TYPE='R' AND STATUS='ENABLED'");
+		try {
+			query.setString(1, schema);
+			ResultSet rs = query.executeQuery();
+			while (rs.next()) {
+				constraints.add(String.format("ALTER TABLE %s %%s CONSTRAINT \"%s\"", getQualifiedTableName(rs.getString(1)), rs.getString(2)));
+			}
+		} finally {
+			query.close();
+		}
+
+		List<String> disable = new ArrayList<>();
+		List<String> restore = new ArrayList<>();
+		for (String constraint : constraints) {
+			disable.add(String.format(constraint, "DISABLE"));
+			restore.add(String.format(constraint, "ENABLE"));
+		}
+		return disableConstraints(connection, disable, restore);
+	}
 }
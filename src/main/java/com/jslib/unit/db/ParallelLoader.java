@@ -0,0 +1,148 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Load data set rows concurrently, on a fixed number of worker threads. Rows are grouped per table and tables are split
+ * into dependency levels using foreign keys graph, see {@link TableGraph#getLevels()}. Levels are processed in order and
+ * tables from the same level are loaded concurrently, every table on its own connection. Tables not found in database
+ * meta data are loaded last.
+ * <p>
+ * Note that, in order to group rows per table, all data set rows are kept in memory.
+ */
+class ParallelLoader
+{
+  private final Session session;
+  private final int workers;
+  private final int batchSize;
+  private final int bulkSize;
+  private final LoadReport report;
+
+  public ParallelLoader(Session session, int workers, int batchSize, int bulkSize, LoadReport report)
+  {
+    this.session = session;
+    this.workers = workers;
+    this.batchSize = batchSize;
+    this.bulkSize = bulkSize;
+    this.report = report;
+  }
+
+  public void load(Iterator<RowDescriptor> rows) throws SQLException
+  {
+    Map<String, List<RowDescriptor>> tables = new LinkedHashMap<>();
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      if(row.isEmpty()) {
+        continue;
+      }
+      // rows are grouped by database identifier to match table names from meta data
+      String tableName = session.getDriver().getIdentifier(row.getTableName());
+      List<RowDescriptor> tableRows = tables.get(tableName);
+      if(tableRows == null) {
+        tableRows = new ArrayList<>();
+        tables.put(tableName, tableRows);
+      }
+      tableRows.add(row);
+    }
+    if(tables.isEmpty()) {
+      return;
+    }
+
+    final TableGraph[] graph = new TableGraph[1];
+    session.doWork(new Work()
+    {
+      @Override
+      public Object execute(Connection connection) throws SQLException
+      {
+        graph[0] = TableGraph.getInstance(connection, driver, listener);
+        return null;
+      }
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      for(List<String> level : graph[0].getLevels()) {
+        List<Future<Object>> futures = new ArrayList<>();
+        for(String tableName : level) {
+          List<RowDescriptor> tableRows = tables.remove(tableName);
+          if(tableRows != null) {
+            futures.add(executor.submit(task(tableRows)));
+          }
+        }
+        join(futures);
+      }
+
+      List<Future<Object>> futures = new ArrayList<>();
+      for(List<RowDescriptor> tableRows : tables.values()) {
+        futures.add(executor.submit(task(tableRows)));
+      }
+      join(futures);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Callable<Object> task(final List<RowDescriptor> tableRows)
+  {
+    return new Callable<Object>()
+    {
+      @Override
+      public Object call() throws Exception
+      {
+        if(bulkSize > 0) {
+          session.doWork(new BulkInsert(tableRows.iterator(), bulkSize, report));
+        }
+        else {
+          session.doWork(new InsertBatches(tableRows.iterator(), batchSize, report));
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Wait for all tasks from a level to complete, so that next level starts only after all referenced tables are loaded.
+   * If a task fails, wait for all others to complete then rethrow first failure.
+   */
+  static void join(List<Future<Object>> futures) throws SQLException
+  {
+    Throwable failure = null;
+    for(Future<Object> future : futures) {
+      try {
+        future.get();
+      }
+      catch(ExecutionException e) {
+        if(failure == null) {
+          failure = e.getCause();
+        }
+      }
+      catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new JsUnitException(e);
+      }
+    }
+    if(failure instanceof SQLException) {
+      throw (SQLException)failure;
+    }
+    if(failure instanceof RuntimeException) {
+      throw (RuntimeException)failure;
+    }
+    if(failure instanceof Error) {
+      throw (Error)failure;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.jslib.unit.db;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Data set prepared in background for a deferred load, see {@link Database#prefetch(InputStream)}. Background task
+ * parses all data set rows into memory and resolves INSERT statements SQL and columns SQL types for every row shape, so
+ * that {@link #join()} only executes statements. Prefetched data set can be loaded only once.
+ */
+public class Prefetch
+{
+  private final Database database;
+  private final CompletableFuture<List<RowDescriptor>> rows;
+  private boolean joined;
+
+  Prefetch(Database database, final Session session, final InputStream stream, Executor executor)
+  {
+    this.database = database;
+    this.rows = CompletableFuture.supplyAsync(new Supplier<List<RowDescriptor>>()
+    {
+      @Override
+      public List<RowDescriptor> get()
+      {
+        final List<RowDescriptor> rows = new ArrayList<>();
+        Iterator<RowDescriptor> it = new StreamingDatabaseDescriptor(stream).getRows();
+        while(it.hasNext()) {
+          rows.add(it.next());
+        }
+
+        try {
+          // resolved SQL and types are cached on session and reused by load, on any connection
+          session.doDetachedWork(new Work()
+          {
+            @Override
+            public Object execute(Connection connection) throws SQLException
+            {
+              Set<String> shapes = new HashSet<>();
+              for(RowDescriptor row : rows) {
+                if(!row.isEmpty() && shapes.add(row.getShapeKey())) {
+                  statements.getColumnTypes(driver, row);
+                }
+              }
+              return null;
+            }
+          });
+        }
+        catch(SQLException e) {
+          throw new CompletionException(e);
+        }
+        return rows;
+      }
+    }, executor);
+  }
+
+  /**
+   * Test if background preparation is complete, successfully or not.
+   * 
+   * @return true if background preparation is complete.
+   */
+  public boolean isDone()
+  {
+    return rows.isDone();
+  }
+
+  /**
+   * Wait for background preparation to complete then load data set, on caller thread, exactly as
+   * {@link Database#load(InputStream)} does.
+   * 
+   * @throws SQLException if background preparation or load fails.
+   * @throws IllegalStateException if this data set was already loaded.
+   */
+  public void join() throws SQLException
+  {
+    if(joined) {
+      throw new IllegalStateException("Prefetched data set already loaded.");
+    }
+    joined = true;
+
+    List<RowDescriptor> rows;
+    try {
+      rows = this.rows.join();
+    }
+    catch(CompletionException e) {
+      Throwable cause = e.getCause();
+      if(cause instanceof SQLException) {
+        throw (SQLException)cause;
+      }
+      if(cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      throw new JsUnitException(e);
+    }
+    database.load(rows.iterator());
+  }
+}
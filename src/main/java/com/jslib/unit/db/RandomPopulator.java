@@ -0,0 +1,168 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Populate tables with random rows, see {@link RandomTable}. Tables are processed in dependency levels, see
+ * {@link TableGraph#getLevels()}, so that parent tables are populated before their keys are sampled by referencing
+ * tables. Rows of a table are split into ranges, one per worker, and ranges from all tables of a level are inserted
+ * concurrently, every range on its own connection. With a single worker all rows are inserted on caller thread, possible
+ * inside current transaction.
+ * <p>
+ * Rows are generated while inserting, so that memory usage does not depend on the number of generated rows.
+ */
+class RandomPopulator
+{
+  private final Session session;
+  private final int workers;
+  private final int batchSize;
+  private final int bulkSize;
+  private final LoadReport report;
+
+  public RandomPopulator(Session session, int workers, int batchSize, int bulkSize, LoadReport report)
+  {
+    this.session = session;
+    this.workers = workers;
+    this.batchSize = batchSize;
+    this.bulkSize = bulkSize;
+    this.report = report;
+  }
+
+  /**
+   * Insert given number of random rows into every requested table.
+   *
+   * @param tables names of tables to populate or empty collection for all tables,
+   * @param rowsCount number of rows per table.
+   * @throws SQLException if database operation fails.
+   * @throws IllegalArgumentException if a requested table is not found.
+   */
+  public void populate(Collection<String> tables, final int rowsCount) throws SQLException
+  {
+    final TableGraph[] graph = new TableGraph[1];
+    session.doWork(new Work()
+    {
+      @Override
+      public Object execute(Connection connection) throws SQLException
+      {
+        graph[0] = TableGraph.getInstance(connection, driver, listener);
+        return null;
+      }
+    });
+    final Set<String> tableNames = getTableNames(graph[0], tables);
+
+    ExecutorService executor = workers > 1 ? Executors.newFixedThreadPool(workers) : null;
+    try {
+      for(final List<String> level : graph[0].getLevels()) {
+        // generators are loaded after previous levels are populated, so that parent keys sampling sees inserted rows
+        final List<RandomTable> randomTables = new ArrayList<>();
+        session.doWork(new Work()
+        {
+          @Override
+          public Object execute(Connection connection) throws SQLException
+          {
+            for(String tableName : level) {
+              if(tableNames.contains(tableName)) {
+                randomTables.add(RandomTable.load(connection, driver, graph[0], tableName, listener));
+              }
+            }
+            return null;
+          }
+        });
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for(RandomTable randomTable : randomTables) {
+          int tableRowsCount = randomTable.getRowsLimit(rowsCount);
+          if(tableRowsCount < rowsCount && session.isVerbose()) {
+            System.out.printf("%s: primary key combinations limit rows count to %d\r\n", randomTable.getTableName(), tableRowsCount);
+          }
+          int rangeSize = (tableRowsCount + workers - 1) / workers;
+          for(int from = 0; from < tableRowsCount; from += rangeSize) {
+            tasks.add(task(randomTable, from, Math.min(from + rangeSize, tableRowsCount)));
+          }
+        }
+        execute(executor, tasks);
+      }
+    }
+    finally {
+      if(executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private Set<String> getTableNames(TableGraph graph, Collection<String> tables)
+  {
+    List<String> loadOrder = graph.getLoadOrder();
+    if(tables.isEmpty()) {
+      return new HashSet<>(loadOrder);
+    }
+    Set<String> tableNames = new HashSet<>();
+    for(String tableName : tables) {
+      String identifier = session.getDriver().getIdentifier(tableName);
+      if(!loadOrder.contains(identifier)) {
+        throw new IllegalArgumentException(String.format("Table |%s| not found.", tableName));
+      }
+      tableNames.add(identifier);
+    }
+    return tableNames;
+  }
+
+  private Callable<Object> task(final RandomTable randomTable, final int from, final int to)
+  {
+    return new Callable<Object>()
+    {
+      @Override
+      public Object call() throws Exception
+      {
+        if(bulkSize > 0) {
+          session.doWork(new BulkInsert(randomTable.getRows(from, to), bulkSize, report));
+        }
+        else {
+          session.doWork(new InsertBatches(randomTable.getRows(from, to), batchSize, report));
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Execute level tasks and wait for all to complete, so that next level starts only after all referenced tables are
+   * populated. If executor is null tasks are executed on caller thread. If a task fails, wait for all others to complete
+   * then rethrow first failure.
+   */
+  private static void execute(ExecutorService executor, List<Callable<Object>> tasks) throws SQLException
+  {
+    if(executor == null) {
+      for(Callable<Object> task : tasks) {
+        try {
+          task.call();
+        }
+        catch(SQLException | RuntimeException e) {
+          throw e;
+        }
+        catch(Exception e) {
+          throw new JsUnitException(e);
+        }
+      }
+      return;
+    }
+
+    List<Future<Object>> futures = new ArrayList<>();
+    for(Callable<Object> task : tasks) {
+      futures.add(executor.submit(task));
+    }
+    ParallelLoader.join(futures);
+  }
+}
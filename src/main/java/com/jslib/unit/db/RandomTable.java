@@ -0,0 +1,693 @@
+package com.jslib.unit.db;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.jslib.unit.data.RandomDate;
+import com.jslib.unit.data.RandomPrimitive;
+import com.jslib.unit.data.RandomString;
+
+/**
+ * Random rows generator for a database table, driven by table meta data: columns types, sizes and nullability, primary
+ * key and foreign keys. Generated values are kept within column limits and use the same random generators as
+ * {@link com.jslib.unit.data.TestData}. Rows are generated on the fly, see {@link #getRows(int, int)}, so that memory
+ * usage does not depend on the number of generated rows.
+ * <p>
+ * Primary key columns receive sequential values: numeric columns continue after current maximum value and character
+ * columns use base 36 sequence numbers continuing after the greatest existing key that is a base 36 number; UUID columns
+ * receive random UUIDs. Foreign key columns reference existing parent keys, randomly picked from a sample of at most
+ * {@link #MAX_PARENT_KEYS} keys read from parent table when this generator is loaded; nullable foreign keys are null if
+ * parent table is empty. If all primary key columns are foreign key columns, e.g. association tables, parent keys
+ * combinations are enumerated instead, skipping combinations of existing rows, so that generated keys are unique; in
+ * this case the number of rows is limited by the number of free combinations, see {@link #getRowsLimit(int)}.
+ * <p>
+ * Character values are ASCII, so that they fit columns sized in bytes, except for national character types. Columns of
+ * types without generator, e.g. arrays or structured types, are null; if such column is not nullable table cannot be
+ * populated. Auto increment and generated columns are not included into generated rows. Other unique constraints are
+ * not considered.
+ */
+class RandomTable
+{
+  /** Maximum number of parent keys sampled for a foreign key. */
+  static final int MAX_PARENT_KEYS = 10000;
+  /** Maximum length of generated character and binary values, for large and unbounded columns. */
+  private static final int MAX_TEXT_LENGTH = 255;
+  /** Default precision for numeric columns with unknown precision. */
+  private static final int DEFAULT_PRECISION = 9;
+  /** Maximum precision of generated numeric values, so that unscaled value fits a long. */
+  private static final int MAX_PRECISION = 18;
+  /** Upper bound for generated dates, 2038-01-01 UTC, so that values fit all timestamp columns, including MySQL. */
+  private static final long MAX_TIME = 2145916800000L;
+  /** Probability for a nullable column to be null. */
+  private static final double NULL_RATIO = 0.1;
+
+  /**
+   * Load random rows generator for given table. Parent tables should be already populated since parent keys are sampled
+   * by this method.
+   *
+   * @param connection database connection,
+   * @param driver database driver,
+   * @param graph tables graph,
+   * @param tableName table name, as database identifier,
+   * @param listener listener notified about meta data queries.
+   * @return random rows generator.
+   * @throws SQLException if meta data retrieval or parent keys sampling fails.
+   * @throws IllegalStateException if a not nullable foreign key references an empty table or a not nullable column has
+   *           a type without generator.
+   */
+  static RandomTable load(Connection connection, Driver driver, TableGraph graph, String tableName, DatabaseListener listener) throws SQLException
+  {
+    RandomTable table = new RandomTable(tableName);
+    DatabaseMetaData meta = connection.getMetaData();
+
+    ResultSet rs = meta.getColumns(driver.getCatalog(), TableGraph.pattern(meta, driver.getSchema()), TableGraph.pattern(meta, tableName), null);
+    try {
+      while(rs.next()) {
+        if(!tableName.equals(rs.getString("TABLE_NAME")) || isYes(rs, "IS_AUTOINCREMENT") || isYes(rs, "IS_GENERATEDCOLUMN")) {
+          continue;
+        }
+        Column column = new Column(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"), rs.getString("TYPE_NAME"));
+        column.size = rs.getInt("COLUMN_SIZE");
+        column.scale = rs.getInt("DECIMAL_DIGITS");
+        column.nullable = rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+        table.columns.put(column.name, column);
+      }
+    }
+    finally {
+      rs.close();
+    }
+
+    Map<String, ForeignKey> foreignKeys = new LinkedHashMap<>();
+    rs = meta.getImportedKeys(driver.getCatalog(), driver.getSchema(), tableName);
+    try {
+      while(rs.next()) {
+        if(!tableName.equals(rs.getString("FKTABLE_NAME"))) {
+          continue;
+        }
+        String name = rs.getString("PKTABLE_NAME") + '#' + rs.getString("FK_NAME");
+        ForeignKey foreignKey = foreignKeys.get(name);
+        if(foreignKey == null) {
+          foreignKey = new ForeignKey(rs.getString("PKTABLE_NAME"));
+          foreignKeys.put(name, foreignKey);
+        }
+        Column column = table.columns.get(rs.getString("FKCOLUMN_NAME"));
+        // column shared with a previous foreign key takes its value from the first one
+        if(column != null && column.foreignKey == null) {
+          column.foreignKey = foreignKey;
+          column.foreignKeyIndex = foreignKey.parentColumns.size();
+          foreignKey.nullable &= column.nullable;
+          foreignKey.parentColumns.add(rs.getString("PKCOLUMN_NAME"));
+        }
+      }
+    }
+    finally {
+      rs.close();
+    }
+
+    List<Column> sequenceColumns = new ArrayList<>();
+    for(String columnName : graph.getPrimaryKey(connection, driver, tableName, listener)) {
+      Column column = table.columns.get(columnName);
+      if(column == null) {
+        continue;
+      }
+      if(column.foreignKey != null) {
+        column.foreignKey.primaryKey = true;
+      }
+      else {
+        column.sequence = true;
+        sequenceColumns.add(column);
+      }
+    }
+    if(!sequenceColumns.isEmpty()) {
+      table.loadSequences(connection, driver, sequenceColumns);
+    }
+
+    for(ForeignKey foreignKey : foreignKeys.values()) {
+      if(foreignKey.parentColumns.isEmpty()) {
+        continue;
+      }
+      foreignKey.sample(connection, driver);
+      if(foreignKey.keys.isEmpty() && !foreignKey.nullable) {
+        throw new IllegalStateException(String.format("Cannot populate table |%s|. Not nullable foreign key references empty table |%s|.", tableName, foreignKey.parentTable));
+      }
+      // association tables, with primary key made only of foreign keys, enumerate parent keys combinations
+      if(foreignKey.primaryKey && sequenceColumns.isEmpty()) {
+        table.keyForeignKeys.add(foreignKey);
+      }
+    }
+    if(!table.keyForeignKeys.isEmpty()) {
+      table.loadExistingKeys(connection, driver);
+    }
+
+    for(Column column : table.columns.values()) {
+      if(!column.nullable && !column.sequence && column.foreignKey == null && !Generator.isSupported(column)) {
+        throw new IllegalStateException(String.format("Cannot populate table |%s|. Not nullable column |%s| has type |%s| without generator.", tableName, column.name, column.typeName));
+      }
+    }
+    return table;
+  }
+
+  private static boolean isYes(ResultSet rs, String columnLabel)
+  {
+    try {
+      return "YES".equals(rs.getString(columnLabel));
+    }
+    catch(SQLException e) {
+      // JDBC 3 drivers do not report auto increment and generated columns
+      return false;
+    }
+  }
+
+  private final String tableName;
+  private final Map<String, Column> columns = new LinkedHashMap<>();
+  private final List<ForeignKey> keyForeignKeys = new ArrayList<>();
+  /** Sorted combination indices of existing rows, for association tables, see {@link #loadExistingKeys(Connection, Driver)}. */
+  private long[] existingKeys = new long[0];
+
+  private RandomTable(String tableName)
+  {
+    this.tableName = tableName;
+  }
+
+  public String getTableName()
+  {
+    return tableName;
+  }
+
+  /**
+   * Get the number of rows this generator is able to create with unique primary keys, limited to requested rows count.
+   *
+   * @param rowsCount requested rows count.
+   * @return the number of rows that can be generated, not greater than requested rows count.
+   */
+  public int getRowsLimit(int rowsCount)
+  {
+    if(keyForeignKeys.isEmpty()) {
+      return rowsCount;
+    }
+    // combinations are capped so that product does not overflow; cap still leaves requested rows after existing ones
+    long cap = (long)rowsCount + existingKeys.length;
+    long combinations = 1;
+    for(ForeignKey foreignKey : keyForeignKeys) {
+      combinations = Math.min(combinations * foreignKey.keys.size(), cap);
+    }
+    return (int)Math.min(combinations - existingKeys.length, rowsCount);
+  }
+
+  /**
+   * Get iterator generating rows with indices from given range. Row index is used for primary key values, so that rows
+   * from disjoint ranges can be generated and inserted concurrently. Returned iterator is not thread safe.
+   *
+   * @param from first row index, inclusive,
+   * @param to last row index, exclusive.
+   * @return rows iterator.
+   */
+  public Iterator<RowDescriptor> getRows(final int from, final int to)
+  {
+    return new Iterator<RowDescriptor>()
+    {
+      private final Generator generator = new Generator();
+      private int index = from;
+
+      @Override
+      public boolean hasNext()
+      {
+        return index < to;
+      }
+
+      @Override
+      public RowDescriptor next()
+      {
+        if(!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return createRow(index++, generator);
+      }
+    };
+  }
+
+  private RowDescriptor createRow(int index, Generator generator)
+  {
+    Map<ForeignKey, String[]> parentKeys = new LinkedHashMap<>();
+    long radix = combination(index);
+    for(ForeignKey foreignKey : keyForeignKeys) {
+      int size = foreignKey.keys.size();
+      parentKeys.put(foreignKey, foreignKey.keys.get((int)(radix % size)));
+      radix /= size;
+    }
+
+    RowDescriptor row = new RowDescriptor(tableName);
+    for(Column column : columns.values()) {
+      String value;
+      if(column.sequence) {
+        value = column.isUuid() ? UUID.randomUUID().toString() : column.sequenceValue(index);
+      }
+      else if(column.foreignKey != null) {
+        String[] parentKey = parentKeys.get(column.foreignKey);
+        if(parentKey == null) {
+          parentKey = column.foreignKey.randomKey();
+          parentKeys.put(column.foreignKey, parentKey);
+        }
+        value = parentKey != null ? parentKey[column.foreignKeyIndex] : "";
+      }
+      else if(column.nullable && ThreadLocalRandom.current().nextDouble() < NULL_RATIO) {
+        value = "";
+      }
+      else {
+        value = Generator.isSupported(column) ? generator.value(column) : "";
+      }
+      // UUID and JSON values are bound as strings, converted by database, whatever the SQL type reported by driver
+      row.addColumnDescritor(new ColumnDescriptor(column.name, column.isUuid() || column.isJson() ? "string" : null, value));
+    }
+    return row;
+  }
+
+  /**
+   * Get the index of parent keys combination for row with given index, skipping combinations of existing rows. Since
+   * existing combinations are sorted, the number of free combinations before existing combination at position
+   * <code>i</code> is <code>existingKeys[i] - i</code>, a non decreasing sequence searched with binary search.
+   */
+  private long combination(int index)
+  {
+    int low = 0;
+    int high = existingKeys.length;
+    while(low < high) {
+      int middle = (low + high) >>> 1;
+      if(existingKeys[middle] - middle <= index) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    return index + low;
+  }
+
+  /**
+   * Read parent keys combinations of existing rows, for association tables, so that enumeration skips them. Existing
+   * rows referencing parent keys not part of sampled keys cannot collide with generated rows and are ignored.
+   */
+  private void loadExistingKeys(Connection connection, Driver driver) throws SQLException
+  {
+    List<String> columnNames = new ArrayList<>();
+    List<Map<String, Integer>> keyIndices = new ArrayList<>();
+    for(ForeignKey foreignKey : keyForeignKeys) {
+      String[] keyColumns = new String[foreignKey.parentColumns.size()];
+      for(Column column : columns.values()) {
+        if(column.foreignKey == foreignKey) {
+          keyColumns[column.foreignKeyIndex] = column.name;
+        }
+      }
+      columnNames.addAll(Arrays.asList(keyColumns));
+      Map<String, Integer> indices = new HashMap<>();
+      for(int i = 0; i < foreignKey.keys.size(); ++i) {
+        indices.put(keyString(foreignKey.keys.get(i)), i);
+      }
+      keyIndices.add(indices);
+    }
+
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for(int i = 0; i < columnNames.size(); ++i) {
+      if(i > 0) {
+        sql.append(',');
+      }
+      sql.append(driver.getQualifiedColumnName(columnNames.get(i)));
+    }
+    sql.append(" FROM ");
+    sql.append(driver.getQualifiedTableName(tableName));
+
+    List<Long> combinations = new ArrayList<>();
+    Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      statement.setFetchSize(driver.getFetchSize());
+      ResultSet rs = statement.executeQuery(sql.toString());
+      int[] types = new int[columnNames.size()];
+      for(int i = 0; i < types.length; ++i) {
+        types[i] = rs.getMetaData().getColumnType(i + 1);
+      }
+      ROWS: while(rs.next()) {
+        long combination = 0;
+        long radix = 1;
+        int columnIndex = 1;
+        for(int i = 0; i < keyForeignKeys.size(); ++i) {
+          String[] key = new String[keyForeignKeys.get(i).parentColumns.size()];
+          for(int j = 0; j < key.length; ++j, ++columnIndex) {
+            key[j] = Values.toString(Values.getValue(rs, columnIndex, types[columnIndex - 1]));
+          }
+          Integer keyIndex = keyIndices.get(i).get(keyString(key));
+          if(keyIndex == null) {
+            continue ROWS;
+          }
+          combination += keyIndex * radix;
+          radix *= keyForeignKeys.get(i).keys.size();
+        }
+        combinations.add(combination);
+      }
+      rs.close();
+    }
+    finally {
+      statement.close();
+    }
+
+    Collections.sort(combinations);
+    long[] keys = new long[combinations.size()];
+    int size = 0;
+    for(Long combination : combinations) {
+      if(size == 0 || keys[size - 1] != combination) {
+        keys[size++] = combination;
+      }
+    }
+    existingKeys = Arrays.copyOf(keys, size);
+  }
+
+  /** Canonical key string, so that parent keys and foreign keys values compare equal, e.g. <code>7</code> and <code>7.0</code>. */
+  private static String keyString(String[] key)
+  {
+    StringBuilder builder = new StringBuilder();
+    for(String value : key) {
+      builder.append(Values.key(value)).append('\u0000');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Initialize sequence columns base values from current table content: maximum value for numeric columns and greatest
+   * base 36 number for character columns, that requires scanning column values.
+   */
+  private void loadSequences(Connection connection, Driver driver, List<Column> sequenceColumns) throws SQLException
+  {
+    Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      statement.setFetchSize(driver.getFetchSize());
+      for(Column column : sequenceColumns) {
+        if(column.isUuid()) {
+          continue;
+        }
+        String columnName = driver.getQualifiedColumnName(column.name);
+        String sql = String.format(column.isNumeric() ? "SELECT MAX(%s) FROM %s" : "SELECT %s FROM %s", columnName, driver.getQualifiedTableName(tableName));
+        ResultSet rs = statement.executeQuery(sql);
+        long max = 0;
+        if(column.isNumeric()) {
+          rs.next();
+          max = rs.getLong(1);
+        }
+        while(!column.isNumeric() && rs.next()) {
+          String value = rs.getString(1);
+          if(value == null) {
+            continue;
+          }
+          try {
+            // parsing is case insensitive, as key comparison on databases with case insensitive collation
+            max = Math.max(max, Long.parseLong(value.trim(), Character.MAX_RADIX));
+          }
+          catch(NumberFormatException unused) {
+            // keys that are not base 36 numbers cannot collide with generated keys
+          }
+        }
+        rs.close();
+        column.sequenceBase = max + 1;
+      }
+    }
+    finally {
+      statement.close();
+    }
+  }
+
+  private static class Column
+  {
+    final String name;
+    final int sqlType;
+    /** Database specific type name, possible null. */
+    final String typeName;
+    int size;
+    int scale;
+    boolean nullable;
+    /** Primary key column not part of a foreign key, with sequential values. */
+    boolean sequence;
+    long sequenceBase;
+    ForeignKey foreignKey;
+    /** Index of this column into foreign key columns. */
+    int foreignKeyIndex;
+
+    Column(String name, int sqlType, String typeName)
+    {
+      this.name = name;
+      this.sqlType = sqlType;
+      this.typeName = typeName;
+    }
+
+    boolean isNumeric()
+    {
+      switch(sqlType) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        return true;
+
+      default:
+        return false;
+      }
+    }
+
+    /** UUID columns are recognized by type name since JDBC has no UUID type. */
+    boolean isUuid()
+    {
+      return typeName != null && typeName.equalsIgnoreCase("UUID");
+    }
+
+    boolean isJson()
+    {
+      return typeName != null && typeName.toUpperCase().startsWith("JSON");
+    }
+
+    String sequenceValue(int index)
+    {
+      long value = sequenceBase + index;
+      return isNumeric() ? Long.toString(value) : Long.toString(value, Character.MAX_RADIX);
+    }
+
+    /** Maximum length for generated character and binary values. */
+    int maxLength()
+    {
+      return size > 0 && size < MAX_TEXT_LENGTH ? size : MAX_TEXT_LENGTH;
+    }
+  }
+
+  private static class ForeignKey
+  {
+    final String parentTable;
+    final List<String> parentColumns = new ArrayList<>();
+    /** Sampled parent keys, with values in parent columns order. */
+    final List<String[]> keys = new ArrayList<>();
+    boolean nullable = true;
+    /** Foreign key columns are part of primary key. */
+    boolean primaryKey;
+
+    ForeignKey(String parentTable)
+    {
+      this.parentTable = parentTable;
+    }
+
+    /** Read parent keys using reservoir sampling so that sampled keys are evenly spread over the whole parent table. */
+    void sample(Connection connection, Driver driver) throws SQLException
+    {
+      StringBuilder sql = new StringBuilder("SELECT ");
+      for(int i = 0; i < parentColumns.size(); ++i) {
+        if(i > 0) {
+          sql.append(',');
+        }
+        sql.append(driver.getQualifiedColumnName(parentColumns.get(i)));
+      }
+      sql.append(" FROM ");
+      sql.append(driver.getQualifiedTableName(parentTable));
+
+      Random random = ThreadLocalRandom.current();
+      Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      try {
+        statement.setFetchSize(driver.getFetchSize());
+        ResultSet rs = statement.executeQuery(sql.toString());
+        int[] types = new int[parentColumns.size()];
+        for(int i = 0; i < types.length; ++i) {
+          types[i] = rs.getMetaData().getColumnType(i + 1);
+        }
+        long seen = 0;
+        ROWS: while(rs.next()) {
+          String[] key = new String[types.length];
+          for(int i = 0; i < types.length; ++i) {
+            key[i] = Values.toString(Values.getValue(rs, i + 1, types[i]));
+            if(key[i].isEmpty()) {
+              continue ROWS;
+            }
+          }
+          ++seen;
+          if(keys.size() < MAX_PARENT_KEYS) {
+            keys.add(key);
+            continue;
+          }
+          long slot = (long)(random.nextDouble() * seen);
+          if(slot < MAX_PARENT_KEYS) {
+            keys.set((int)slot, key);
+          }
+        }
+        rs.close();
+      }
+      finally {
+        statement.close();
+      }
+    }
+
+    String[] randomKey()
+    {
+      return keys.isEmpty() ? null : keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+    }
+  }
+
+  /**
+   * Random values for column SQL types, as data set strings. Numeric values are generated within column precision and
+   * scale, non negative so that they fit unsigned columns too, character and binary values within column size and dates
+   * within 1970 and 2038, so that they fit all timestamp columns.
+   */
+  private static class Generator
+  {
+    private final RandomString randomString = new RandomString();
+    private final RandomPrimitive randomBoolean = new RandomPrimitive(Boolean.class);
+    private final RandomPrimitive randomByte = new RandomPrimitive(Byte.class);
+    private final RandomPrimitive randomShort = new RandomPrimitive(Short.class);
+    private final RandomPrimitive randomInteger = new RandomPrimitive(Integer.class);
+    private final RandomPrimitive randomLong = new RandomPrimitive(Long.class);
+    private final RandomPrimitive randomDouble = new RandomPrimitive(Double.class);
+    private final RandomDate randomDate = new RandomDate(Date.class);
+
+    /**
+     * Test if there is a generator for column type. Types are recognized by SQL type, except UUID and JSON that are
+     * reported with vendor specific SQL types and are recognized by type name.
+     */
+    static boolean isSupported(Column column)
+    {
+      if(column.isUuid() || column.isJson()) {
+        return true;
+      }
+      switch(column.sqlType) {
+      case Types.BIT:
+      case Types.BOOLEAN:
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+      case Types.DATE:
+      case Types.TIME:
+      case Types.TIMESTAMP:
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+      case Types.BLOB:
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.CLOB:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+      case Types.NCLOB:
+        return true;
+
+      default:
+        return false;
+      }
+    }
+
+    /** Generate value for column with supported type, see {@link #isSupported(Column)}. */
+    String value(Column column)
+    {
+      if(column.isUuid()) {
+        return UUID.randomUUID().toString();
+      }
+      if(column.isJson()) {
+        return String.format("{\"value\":%d}", (Integer)randomInteger.value(0) & Integer.MAX_VALUE);
+      }
+      switch(column.sqlType) {
+      case Types.BIT:
+      case Types.BOOLEAN:
+        return randomBoolean.value(0).toString();
+
+      case Types.TINYINT:
+        return Integer.toString((Byte)randomByte.value(0) & Byte.MAX_VALUE);
+
+      case Types.SMALLINT:
+        return Integer.toString((Short)randomShort.value(0) & Short.MAX_VALUE);
+
+      case Types.INTEGER:
+        return Integer.toString((Integer)randomInteger.value(0) & Integer.MAX_VALUE);
+
+      case Types.BIGINT:
+        return Long.toString((Long)randomLong.value(0) & Long.MAX_VALUE);
+
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        int precision = Math.min(column.size > 0 ? column.size : DEFAULT_PRECISION, MAX_PRECISION);
+        int scale = Math.max(Math.min(column.scale, precision), 0);
+        long unscaled = ((Long)randomLong.value(0) & Long.MAX_VALUE) % BigDecimal.TEN.pow(precision).longValue();
+        return BigDecimal.valueOf(unscaled, scale).toPlainString();
+
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return randomDouble.value(0).toString();
+
+      case Types.DATE:
+        return new java.sql.Date(time()).toString();
+
+      case Types.TIME:
+        return new Time(time()).toString();
+
+      case Types.TIMESTAMP:
+        return Values.toString(new Timestamp(time()));
+
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+      case Types.NCLOB:
+        // national character types are sized in characters; generated length is in [min, max)
+        return (String)randomString.value(1, column.maxLength() + 1);
+
+      default:
+        // binary and character types: ASCII only, so that UTF-8 bytes count does not exceed column size, e.g. for
+        // VARCHAR2 with byte length semantics; names generator length is in [3, max)
+        return randomString.name(column.maxLength() + 1);
+      }
+    }
+
+    private long time()
+    {
+      return Math.abs(((Date)randomDate.value(0)).getTime() % MAX_TIME);
+    }
+  }
+}
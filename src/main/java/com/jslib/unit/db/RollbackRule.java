@@ -0,0 +1,63 @@
+package com.jslib.unit.db;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * JUnit rule for transaction rollback isolation. Fixture is loaded and committed once, see
+ * {@link Database#loadOnce(String)}, then every test runs inside a transaction that is rolled back after test
+ * completes, whatever the outcome; if both test and rollback fail, rollback error is added as suppressed to test
+ * failure. Code under test should use the connection returned by {@link Database#getConnection()}; enable connection
+ * pooling to reuse the same physical connection for all tests.
+ * 
+ * <pre>
+ * &#64;Rule
+ * public RollbackRule rollback = new RollbackRule(database, "/fixture.xml");
+ * </pre>
+ */
+public class RollbackRule implements TestRule
+{
+  private final Database database;
+  private final String fixture;
+
+  public RollbackRule(Database database, String fixture)
+  {
+    this.database = database;
+    this.fixture = fixture;
+  }
+
+  @Override
+  public Statement apply(final Statement base, Description description)
+  {
+    return new Statement()
+    {
+      @Override
+      public void evaluate() throws Throwable
+      {
+        database.loadOnce(fixture);
+        database.begin();
+        Throwable failure = null;
+        try {
+          base.evaluate();
+        }
+        catch(Throwable e) {
+          failure = e;
+          throw e;
+        }
+        finally {
+          try {
+            database.rollback();
+          }
+          catch(Throwable e) {
+            // do not mask test failure with rollback error
+            if(failure == null) {
+              throw e;
+            }
+            failure.addSuppressed(e);
+          }
+        }
+      }
+    };
+  }
+}
@@ -19,16 +19,71 @@ public class RowDescriptor
     return columns.isEmpty();
   }
 
+  public int getColumnsCount()
+  {
+    return columns.size();
+  }
+
   public String getTableName()
   {
     return tableName;
   }
 
+  /**
+   * Test if this row has columns with values stored outside data set, see {@link ExternalValue}.
+   * 
+   * @return true if row has external values.
+   */
+  public boolean hasExternalValues()
+  {
+    for(ColumnDescriptor column : columns) {
+      if(column.getExternal() != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void addColumnDescritor(ColumnDescriptor column)
   {
     columns.add(column);
   }
 
+  /**
+   * Test if this row and given one belong to the same table and have the same columns, in the same order. Rows with the
+   * same shape share the same INSERT statement.
+   * 
+   * @param other row to compare with.
+   * @return true if both rows have the same shape.
+   */
+  public boolean hasSameShape(RowDescriptor other)
+  {
+    if(!tableName.equals(other.tableName) || columns.size() != other.columns.size()) {
+      return false;
+    }
+    for(int i = 0; i < columns.size(); ++i) {
+      if(!columns.get(i).getName().equals(other.columns.get(i).getName())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get a string key identifying this row shape, see {@link #hasSameShape(RowDescriptor)}.
+   * 
+   * @return row shape key.
+   */
+  public String getShapeKey()
+  {
+    StringBuilder key = new StringBuilder(tableName);
+    for(ColumnDescriptor column : columns) {
+      key.append('\u0000');
+      key.append(column.getName());
+    }
+    return key.toString();
+  }
+
   public Iterator<ColumnDescriptor> getColumns()
   {
     return columns.iterator();
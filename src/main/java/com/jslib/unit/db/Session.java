@@ -3,13 +3,32 @@ package com.jslib.unit.db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.jslib.unit.util.Classes;
 
 public class Session
 {
+  /** Databases initialized on first connect, per URL, catalog and schema, see {@link Driver#initialize(Connection)}. */
+  private static final Set<String> INITIALIZED_DATABASES = new HashSet<>();
+
   private final Driver driver;
   private boolean verbose;
+  private ConnectionPool pool;
+  /** Connection bound to current transaction, null if no transaction in progress. */
+  private Connection transaction;
+  /** Statements cache for transaction connection, null if no transaction in progress. */
+  private StatementCache transactionStatements;
+  /** Generated INSERT statements, per row shape, shared by all session connections. */
+  private final Map<String, StatementCache.Insert> insertCache = new ConcurrentHashMap<>();
+  private final Listeners listeners = new Listeners();
+  /** SQL capture for connections handed to code under test, null if capture is not enabled. */
+  private SqlCapture sqlCapture;
+  /** Capturing proxy of transaction connection, created on first {@link #getConnection()} and reused until transaction ends. */
+  private Connection capturingTransaction;
 
   public Session(Driver driver)
   {
@@ -17,36 +36,286 @@ public class Session
     this.driver = driver;
   }
 
+  public Driver getDriver()
+  {
+    return driver;
+  }
+
+  /** Discard cached INSERT statements SQL and parameter types, e.g. after database schema changes. */
+  public void invalidate()
+  {
+    insertCache.clear();
+  }
+
   public void setVerbose(boolean verbose)
   {
     this.verbose = verbose;
   }
 
+  /**
+   * Enable or disable connections pooling. When enabled, connections are taken from the global {@link ConnectionPool}
+   * for this session driver and returned to it after work completes, instead of being physically closed.
+   * 
+   * @param pooled pooling flag.
+   */
+  public void setPooled(boolean pooled)
+  {
+    this.pool = pooled ? ConnectionPool.getInstance(driver) : null;
+  }
+
+  /**
+   * Get connections pool used by this session or null if pooling is not enabled.
+   * 
+   * @return connections pool, possible null.
+   */
+  public ConnectionPool getPool()
+  {
+    return pool;
+  }
+
+  /**
+   * Register listener for load and clear events of all works executed by this session.
+   * 
+   * @param listener database listener.
+   */
+  public void addListener(DatabaseListener listener)
+  {
+    listeners.add(listener);
+  }
+
+  public void removeListener(DatabaseListener listener)
+  {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Enable SQL capture for transaction connection handed to code under test, see {@link #getConnection()}. Connections
+   * used internally by session works are never captured.
+   * 
+   * @param sqlCapture SQL capture or null to disable capture.
+   */
+  public void setSqlCapture(SqlCapture sqlCapture)
+  {
+    this.sqlCapture = sqlCapture;
+    this.capturingTransaction = null;
+  }
+
+  public SqlCapture getSqlCapture()
+  {
+    return sqlCapture;
+  }
+
+  public boolean isVerbose()
+  {
+    return verbose;
+  }
+
   public void doWork(Work work) throws SQLException
   {
     work.setDriver(driver);
     work.setVerbose(verbose);
+    work.setListener(listeners);
+
+    if(transaction != null) {
+      work.setStatements(transactionStatements);
+      work.execute(transaction);
+      return;
+    }
+    execute(work);
+  }
+
+  /**
+   * Execute work on its own connection, ignoring transaction in progress, if any. Designed for background works that run
+   * concurrently with session owner thread, e.g. data set prefetch.
+   * 
+   * @param work database work.
+   * @throws SQLException if work execution fails.
+   */
+  void doDetachedWork(Work work) throws SQLException
+  {
+    work.setDriver(driver);
+    work.setVerbose(verbose);
+    work.setListener(listeners);
+    execute(work);
+  }
+
+  private void execute(Work work) throws SQLException
+  {
+    Connection connection = acquire();
+    StatementCache statements = new StatementCache(connection, insertCache, listeners);
+    work.setStatements(statements);
+    try {
+      connection.setAutoCommit(true);
+      work.execute(connection);
+    }
+    finally {
+      statements.close();
+      release(connection);
+    }
+  }
 
-    Connection connection = null;
+  /**
+   * Start a transaction. Until transaction is committed or rolled back all works are executed on the same connection,
+   * with auto-commit disabled.
+   * 
+   * @throws SQLException if connection cannot be acquired.
+   * @throws IllegalStateException if a transaction is already in progress.
+   */
+  public void begin() throws SQLException
+  {
+    if(transaction != null) {
+      throw new IllegalStateException("Transaction already in progress.");
+    }
+    Connection connection = acquire();
     try {
-      connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword());
+      connection.setAutoCommit(false);
     }
     catch(SQLException e) {
-      if(e.getMessage().startsWith("Access denied")) {
-        String message = "Database not found or access denied for user '%s' using password '%s'. Implicit database user and password should be database name.";
-        e = new SQLException(String.format(message, driver.getUser(), driver.getPassword()));
-      }
+      release(connection);
       throw e;
     }
-    connection.setAutoCommit(true);
+    transaction = connection;
+    transactionStatements = new StatementCache(connection, insertCache, listeners);
+  }
 
+  /**
+   * Commit current transaction and release its connection. Transaction is ended even if commit fails.
+   * 
+   * @throws SQLException if commit fails.
+   * @throws IllegalStateException if there is no transaction in progress.
+   */
+  public void commit() throws SQLException
+  {
+    if(transaction == null) {
+      throw new IllegalStateException("No transaction in progress.");
+    }
     try {
-      work.execute(connection);
+      transaction.commit();
+    }
+    finally {
+      endTransaction();
+    }
+  }
+
+  /**
+   * Rollback current transaction and release its connection.
+   * 
+   * @throws SQLException if rollback fails.
+   * @throws IllegalStateException if there is no transaction in progress.
+   */
+  public void rollback() throws SQLException
+  {
+    if(transaction == null) {
+      throw new IllegalStateException("No transaction in progress.");
+    }
+    try {
+      transaction.rollback();
+    }
+    finally {
+      endTransaction();
+    }
+  }
+
+  /**
+   * Get the connection bound to current transaction. If SQL capture is enabled returned connection records executed
+   * statements, see {@link #setSqlCapture(SqlCapture)}; the same capturing connection is returned for the entire
+   * transaction.
+   * 
+   * @return transaction connection.
+   * @throws IllegalStateException if there is no transaction in progress.
+   */
+  public Connection getConnection()
+  {
+    if(transaction == null) {
+      throw new IllegalStateException("No transaction in progress.");
+    }
+    if(sqlCapture == null) {
+      return transaction;
+    }
+    if(capturingTransaction == null) {
+      capturingTransaction = sqlCapture.wrap(transaction);
+    }
+    return capturingTransaction;
+  }
+
+  public boolean inTransaction()
+  {
+    return transaction != null;
+  }
+
+  private void endTransaction() throws SQLException
+  {
+    Connection connection = transaction;
+    transaction = null;
+    capturingTransaction = null;
+    transactionStatements.close();
+    transactionStatements = null;
+    try {
+      connection.setAutoCommit(true);
     }
     finally {
-      if(connection != null) {
-        connection.close();
+      release(connection);
+    }
+  }
+
+  private Connection acquire() throws SQLException
+  {
+    long start = System.nanoTime();
+    Connection connection = pool != null ? pool.acquire() : openConnection(driver);
+    listeners.onConnectionAcquire(System.nanoTime() - start);
+    if(driver.requiresInitialization()) {
+      // initialization is bound to session driver database, not to physical connection that can be pooled and shared
+      // with other drivers for the same URL, e.g. worker drivers
+      try {
+        initialize(connection, driver);
+      }
+      catch(SQLException | RuntimeException e) {
+        release(connection);
+        throw e;
+      }
+    }
+    return connection;
+  }
+
+  private void release(Connection connection) throws SQLException
+  {
+    if(pool != null) {
+      pool.release(connection);
+    }
+    else {
+      connection.close();
+    }
+  }
+
+  /**
+   * Initialize driver database on the first connection to it. Database is marked as initialized only if initialization
+   * completes successfully; concurrent first connections wait for initialization to complete.
+   */
+  private static void initialize(Connection connection, Driver driver) throws SQLException
+  {
+    String key = driver.getUrl() + '#' + driver.getCatalog() + '#' + driver.getSchema();
+    synchronized(INITIALIZED_DATABASES) {
+      if(INITIALIZED_DATABASES.contains(key)) {
+        return;
       }
+      driver.initialize(connection);
+      INITIALIZED_DATABASES.add(key);
+    }
+    // schema was just created; discard meta data possible cached before initialization
+    TableGraph.invalidate(driver);
+  }
+
+  static Connection openConnection(Driver driver) throws SQLException
+  {
+    try {
+      return DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword());
+    }
+    catch(SQLException e) {
+      if(e.getMessage().startsWith("Access denied")) {
+        String message = "Database not found or access denied for user '%s' using password '%s'. Implicit database user and password should be database name.";
+        e = new SQLException(String.format(message, driver.getUser(), driver.getPassword()));
+      }
+      throw e;
     }
   }
 }
@@ -0,0 +1,57 @@
+package com.jslib.unit.db;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Actions executed on JVM shutdown, in registration order. All actions run from a single shutdown hook, registered on
+ * first use, so that objects created per test, e.g. listeners, do not leak a shutdown thread each; removed actions are
+ * released. Action failures are ignored. This class is thread safe.
+ */
+final class ShutdownHook
+{
+  private static final Set<Runnable> ACTIONS = new LinkedHashSet<>();
+  private static boolean registered;
+
+  static synchronized void add(Runnable action)
+  {
+    if(!registered) {
+      Runtime.getRuntime().addShutdownHook(new Thread("js-unit-shutdown")
+      {
+        @Override
+        public void run()
+        {
+          execute();
+        }
+      });
+      registered = true;
+    }
+    ACTIONS.add(action);
+  }
+
+  static synchronized void remove(Runnable action)
+  {
+    ACTIONS.remove(action);
+  }
+
+  private static void execute()
+  {
+    List<Runnable> actions;
+    synchronized(ShutdownHook.class) {
+      actions = new ArrayList<>(ACTIONS);
+    }
+    for(Runnable action : actions) {
+      try {
+        action.run();
+      }
+      catch(RuntimeException ignore) {
+      }
+    }
+  }
+
+  private ShutdownHook()
+  {
+  }
+}
@@ -0,0 +1,278 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Record of SQL statements executed through capturing connections, see {@link #wrap(Connection)}. For every execution
+ * it records SQL statement, bound parameters count, batch size, execution time and fetched or updated rows count.
+ * Designed to catch N+1 query patterns and slow statements from unit tests, see {@link com.jslib.unit.TestCaseEx}.
+ * <p>
+ * Executions are stored in a fixed capacity ring buffer: when buffer is full oldest executions are overwritten, so that
+ * capture overhead and memory footprint are bounded. Total executions count is always accurate but pattern counts need
+ * all executions to be retained, see {@link #count(String)}. Patterns are regular expressions searched into SQL
+ * statements, case insensitive. This class is thread safe.
+ */
+public class SqlCapture
+{
+  /** Default ring buffer capacity. */
+  private static final int CAPACITY = 4096;
+  /** Maximum number of distinct statements listed by {@link #toString()}. */
+  private static final int MAX_STATEMENTS = 10;
+
+  private final Entry[] entries;
+  private long count;
+
+  public SqlCapture()
+  {
+    this(CAPACITY);
+  }
+
+  public SqlCapture(int capacity)
+  {
+    if(capacity < 1) {
+      throw new IllegalArgumentException("SQL capture capacity should be strictly positive.");
+    }
+    this.entries = new Entry[capacity];
+  }
+
+  /**
+   * Wrap connection so that statements executed on it and on statements created by it are recorded by this capture.
+   * Closing returned connection closes wrapped one.
+   *
+   * @param connection connection to wrap.
+   * @return capturing connection.
+   */
+  public Connection wrap(Connection connection)
+  {
+    return CapturingConnection.newInstance(connection, this);
+  }
+
+  Entry record(String sql, int bindCount, int batchSize, long nanos)
+  {
+    Entry entry = new Entry(sql, bindCount, batchSize, nanos);
+    synchronized(this) {
+      entries[(int)(count++ % entries.length)] = entry;
+    }
+    return entry;
+  }
+
+  /** Discard all recorded executions. */
+  public synchronized void clear()
+  {
+    Arrays.fill(entries, null);
+    count = 0;
+  }
+
+  /**
+   * Get the total number of executions recorded since creation or last {@link #clear()}, including those overwritten
+   * into ring buffer.
+   *
+   * @return executions count.
+   */
+  public synchronized long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Test if executions were overwritten because ring buffer capacity was exceeded.
+   *
+   * @return true if ring buffer overflowed.
+   */
+  public synchronized boolean isOverflowed()
+  {
+    return count > entries.length;
+  }
+
+  /**
+   * Get retained executions, oldest first.
+   *
+   * @return retained executions.
+   */
+  public synchronized List<Entry> getEntries()
+  {
+    int size = (int)Math.min(count, entries.length);
+    List<Entry> list = new ArrayList<>(size);
+    for(long i = count - size; i < count; ++i) {
+      list.add(entries[(int)(i % entries.length)]);
+    }
+    return list;
+  }
+
+  /**
+   * Get retained executions with SQL statement matching given pattern, oldest first.
+   *
+   * @param pattern regular expression searched into SQL statement, case insensitive.
+   * @return matching executions, possible empty.
+   */
+  public List<Entry> getEntries(String pattern)
+  {
+    Pattern regex = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+    List<Entry> list = new ArrayList<>();
+    for(Entry entry : getEntries()) {
+      if(entry.sql != null && regex.matcher(entry.sql).find()) {
+        list.add(entry);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Count executions with SQL statement matching given pattern.
+   *
+   * @param pattern regular expression searched into SQL statement, case insensitive.
+   * @return matching executions count.
+   * @throws IllegalStateException if executions were overwritten and count is not reliable.
+   */
+  public int count(String pattern)
+  {
+    if(isOverflowed()) {
+      throw new IllegalStateException(String.format("SQL capture overflow: %d executions recorded into %d entries. Increase capture capacity.", getCount(), entries.length));
+    }
+    return getEntries(pattern).size();
+  }
+
+  /**
+   * Get execution time percentile, in nanoseconds, for retained executions with SQL statement matching given pattern,
+   * using nearest rank method.
+   *
+   * @param pattern regular expression searched into SQL statement, case insensitive,
+   * @param percentile percentile, in (0, 1] range, e.g. 0.99.
+   * @return execution time percentile, in nanoseconds, or 0 if there is no matching execution.
+   */
+  public long getLatencyPercentile(String pattern, double percentile)
+  {
+    if(percentile <= 0 || percentile > 1) {
+      throw new IllegalArgumentException("Percentile should be in (0, 1] range.");
+    }
+    List<Entry> matches = getEntries(pattern);
+    if(matches.isEmpty()) {
+      return 0;
+    }
+    long[] nanos = new long[matches.size()];
+    for(int i = 0; i < nanos.length; ++i) {
+      nanos[i] = matches.get(i).nanos;
+    }
+    Arrays.sort(nanos);
+    return nanos[(int)Math.ceil(percentile * nanos.length) - 1];
+  }
+
+  /** List most frequent statements, with executions count and total time; useful on assertion failures. */
+  @Override
+  public String toString()
+  {
+    Map<String, long[]> statements = new LinkedHashMap<>();
+    for(Entry entry : getEntries()) {
+      long[] counters = statements.get(entry.sql);
+      if(counters == null) {
+        counters = new long[2];
+        statements.put(entry.sql, counters);
+      }
+      counters[0]++;
+      counters[1] += entry.nanos;
+    }
+    List<Map.Entry<String, long[]>> list = new ArrayList<>(statements.entrySet());
+    Collections.sort(list, new Comparator<Map.Entry<String, long[]>>()
+    {
+      @Override
+      public int compare(Map.Entry<String, long[]> left, Map.Entry<String, long[]> right)
+      {
+        return Long.compare(right.getValue()[0], left.getValue()[0]);
+      }
+    });
+
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("%d SQL executions, %d distinct statements", getCount(), statements.size()));
+    for(Map.Entry<String, long[]> statement : list.subList(0, Math.min(list.size(), MAX_STATEMENTS))) {
+      builder.append(String.format("\r\n\t- %d x %s (%.3f ms)", statement.getValue()[0], statement.getKey(), statement.getValue()[1] / 1000000.0));
+    }
+    return builder.toString();
+  }
+
+  /** Statement execution. Rows count is updated while result set is iterated. */
+  public static class Entry
+  {
+    private final String sql;
+    private final int bindCount;
+    private final int batchSize;
+    private final long nanos;
+    private volatile long rows;
+
+    Entry(String sql, int bindCount, int batchSize, long nanos)
+    {
+      this.sql = sql;
+      this.bindCount = bindCount;
+      this.batchSize = batchSize;
+      this.nanos = nanos;
+    }
+
+    void setRows(long rows)
+    {
+      this.rows = rows;
+    }
+
+    void incrementRows()
+    {
+      rows++;
+    }
+
+    public String getSQL()
+    {
+      return sql;
+    }
+
+    /**
+     * Get the number of parameters bound before execution, for all batch rows.
+     *
+     * @return bound parameters count.
+     */
+    public int getBindCount()
+    {
+      return bindCount;
+    }
+
+    /**
+     * Get the number of batched commands or 0 if execution was not a batch.
+     *
+     * @return batch size.
+     */
+    public int getBatchSize()
+    {
+      return batchSize;
+    }
+
+    /**
+     * Get statement execution time, not including result set fetching.
+     *
+     * @return execution time, in nanoseconds.
+     */
+    public long getNanos()
+    {
+      return nanos;
+    }
+
+    /**
+     * Get the number of rows fetched from result set, so far, or updated by statement.
+     *
+     * @return rows count.
+     */
+    public long getRows()
+    {
+      return rows;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%s -- %d binds, %d rows, %.3f ms", sql, bindCount, rows, nanos / 1000000.0);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.jslib.unit.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jslib.unit.JsUnitException;
+import com.jslib.unit.util.Classes;
+
+/**
+ * SQL script with statements separated by semicolon. Line comments, starting with <code>--</code>, and block comments
+ * are removed; semicolons inside string literals and quoted identifiers are not considered separators.
+ */
+class SqlScript
+{
+  /**
+   * Load script from named resource, see {@link Classes#getResourceAsStream(String)}.
+   * 
+   * @param resource script resource name.
+   * @return SQL script.
+   * @throws JsUnitException if resource is missing or cannot be read.
+   */
+  static SqlScript load(String resource)
+  {
+    StringBuilder text = new StringBuilder();
+    InputStream stream = Classes.getResourceAsStream(resource);
+    try {
+      Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+      char[] buffer = new char[4096];
+      int length;
+      while((length = reader.read(buffer)) != -1) {
+        text.append(buffer, 0, length);
+      }
+    }
+    catch(IOException e) {
+      throw new JsUnitException(e);
+    }
+    finally {
+      try {
+        stream.close();
+      }
+      catch(IOException ignore) {
+      }
+    }
+    return new SqlScript(text);
+  }
+
+  private final List<String> statements = new ArrayList<>();
+
+  SqlScript(CharSequence text)
+  {
+    StringBuilder statement = new StringBuilder();
+    char quote = 0;
+    for(int i = 0; i < text.length(); ++i) {
+      char c = text.charAt(i);
+      if(quote != 0) {
+        statement.append(c);
+        if(c == quote) {
+          quote = 0;
+        }
+        continue;
+      }
+
+      switch(c) {
+      case '\'':
+      case '"':
+      case '`':
+        quote = c;
+        statement.append(c);
+        break;
+
+      case '-':
+        if(i + 1 < text.length() && text.charAt(i + 1) == '-') {
+          while(i < text.length() && text.charAt(i) != '\n') {
+            ++i;
+          }
+          statement.append('\n');
+        }
+        else {
+          statement.append(c);
+        }
+        break;
+
+      case '/':
+        if(i + 1 < text.length() && text.charAt(i + 1) == '*') {
+          int end = text.toString().indexOf("*/", i + 2);
+          i = end == -1 ? text.length() : end + 1;
+          statement.append(' ');
+        }
+        else {
+          statement.append(c);
+        }
+        break;
+
+      case ';':
+        add(statement);
+        break;
+
+      default:
+        statement.append(c);
+      }
+    }
+    add(statement);
+  }
+
+  private void add(StringBuilder statement)
+  {
+    String sql = statement.toString().trim();
+    if(!sql.isEmpty()) {
+      statements.add(sql);
+    }
+    statement.setLength(0);
+  }
+
+  List<String> getStatements()
+  {
+    return statements;
+  }
+
+  /**
+   * Execute all script statements, in order, on given connection.
+   * 
+   * @param connection database connection.
+   * @throws SQLException if a statement fails.
+   */
+  void execute(Connection connection) throws SQLException
+  {
+    Statement statement = connection.createStatement();
+    try {
+      for(String sql : statements) {
+        statement.execute(sql);
+      }
+    }
+    finally {
+      statement.close();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Cache for INSERT prepared statements, bound to a connection checkout. Statements are keyed by row shape - table and
+ * ordered columns list, and are closed when connection is returned to session, see {@link #close()}. Generated SQL and
+ * columns SQL types are kept in a separated map, shared by all connections of a session, so that they are built only
+ * once per shape.
+ * <p>
+ * Consecutive rows with the same shape, that is the common case, are served from last used statement without computing
+ * shape key. This class is not thread safe but SQL map should be.
+ */
+class StatementCache
+{
+  private final Connection connection;
+  private final Map<String, Insert> insertCache;
+  private final DatabaseListener listener;
+  private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+  private RowDescriptor lastRow;
+  private Insert lastInsert;
+  private PreparedStatement lastStatement;
+
+  public StatementCache(Connection connection, Map<String, Insert> insertCache, DatabaseListener listener)
+  {
+    this.connection = connection;
+    this.insertCache = insertCache;
+    this.listener = listener;
+  }
+
+  /**
+   * Get prepared INSERT statement for given row, preparing it on connection if not already cached. Returned statement
+   * should not be closed by caller.
+   * 
+   * @param driver database driver,
+   * @param row table row.
+   * @return cached prepared statement.
+   * @throws SQLException if statement preparation fails.
+   */
+  public PreparedStatement getInsertStatement(Driver driver, RowDescriptor row) throws SQLException
+  {
+    if(lastRow != null && lastRow.hasSameShape(row)) {
+      lastRow = row;
+      return lastStatement;
+    }
+
+    String shape = row.getShapeKey();
+    Insert insert = getInsert(driver, row, shape);
+    PreparedStatement statement = statements.get(shape);
+    if(statement == null) {
+      statement = connection.prepareStatement(insert.sql);
+      statements.put(shape, statement);
+    }
+
+    lastRow = row;
+    lastInsert = insert;
+    lastStatement = statement;
+    return statement;
+  }
+
+  /**
+   * Get columns SQL types for given row shape, in columns order. Columns not found in database meta data have null type.
+   * 
+   * @param driver database driver,
+   * @param row table row.
+   * @return row columns SQL types.
+   * @throws SQLException if meta data retrieval fails.
+   */
+  public Integer[] getColumnTypes(Driver driver, RowDescriptor row) throws SQLException
+  {
+    return getInsert(driver, row, row.getShapeKey()).types;
+  }
+
+  private Insert getInsert(Driver driver, RowDescriptor row, String shape) throws SQLException
+  {
+    Insert insert = insertCache.get(shape);
+    if(insert == null) {
+      insert = new Insert(InsertTableValues.buildSQL(driver, row), loadColumnTypes(driver, row));
+      insertCache.put(shape, insert);
+    }
+    return insert;
+  }
+
+  /**
+   * Get SQL of the statement returned by last {@link #getInsertStatement(Driver, RowDescriptor)} call.
+   * 
+   * @return last statement SQL.
+   */
+  public String getLastSQL()
+  {
+    return lastInsert.sql;
+  }
+
+  /**
+   * Get columns SQL types for the statement returned by last {@link #getInsertStatement(Driver, RowDescriptor)} call,
+   * in parameters order. Columns not found in database meta data have null type.
+   * 
+   * @return last statement parameter types.
+   */
+  public Integer[] getLastTypes()
+  {
+    return lastInsert.types;
+  }
+
+  private Integer[] loadColumnTypes(Driver driver, RowDescriptor row) throws SQLException
+  {
+    TableGraph graph = TableGraph.getInstance(connection, driver, listener);
+    Map<String, Integer> columnTypes = graph.getColumnTypes(connection, driver, row.getTableName(), listener);
+    Integer[] types = new Integer[row.getColumnsCount()];
+    Iterator<ColumnDescriptor> it = row.getColumns();
+    for(int i = 0; it.hasNext(); ++i) {
+      types[i] = columnTypes.get(it.next().getName());
+    }
+    return types;
+  }
+
+  /** Close all cached statements. Cache remains usable, statements being prepared again on demand. */
+  public void close()
+  {
+    Iterator<PreparedStatement> it = statements.values().iterator();
+    while(it.hasNext()) {
+      try {
+        it.next().close();
+      }
+      catch(SQLException ignore) {
+      }
+      it.remove();
+    }
+    lastRow = null;
+    lastInsert = null;
+    lastStatement = null;
+  }
+
+  /** Generated INSERT statement and its parameter types, per row shape. */
+  static class Insert
+  {
+    final String sql;
+    final Integer[] types;
+
+    Insert(String sql, Integer[] types)
+    {
+      this.sql = sql;
+      this.types = types;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.jslib.unit.db;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.jslib.unit.JsUnitException;
+
+/**
+ * Database descriptor that parses rows on demand, using StAX pull parsing. Rows are not accumulated in memory: every row
+ * is parsed when requested by rows iterator and discarded after use, so that memory footprint does not depend on data
+ * set size. As a consequence rows can be iterated only once.
+ * <p>
+ * Data set root element contains table rows, named after tables, and every row contains column elements, named after columns, with text content for column values. Large values can be
+ * stored outside data set, see {@link ExternalValue}.
+ */
+public class StreamingDatabaseDescriptor
+{
+  /** Current element is document root. */
+  private static final int LEVEL_ROOT = 1;
+  /** Current element is a table row. */
+  private static final int LEVEL_TABLE_ROW = 2;
+  /** Column attribute for value stored into external file, see {@link ExternalValue}. */
+  static final String ATTR_FILE = "file";
+  /** Column attribute for value stored into class path resource, see {@link ExternalValue}. */
+  static final String ATTR_RESOURCE = "resource";
+
+  private final XMLStreamReader reader;
+  private boolean iterated;
+
+  public StreamingDatabaseDescriptor(InputStream stream)
+  {
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      reader = factory.createXMLStreamReader(stream);
+    }
+    catch(Exception e) {
+      throw new JsUnitException("Fail to load database descriptor.");
+    }
+  }
+
+  /**
+   * Get rows iterator. Returned iterator parses next row from underlying stream on the fly and does not support row
+   * removal.
+   *
+   * @return rows iterator.
+   * @throws IllegalStateException if rows iterator was already requested.
+   * @throws JsUnitException if data set stream is not well formed.
+   */
+  public Iterator<RowDescriptor> getRows()
+  {
+    if(iterated) {
+      throw new IllegalStateException("Streaming database descriptor rows can be iterated only once.");
+    }
+    iterated = true;
+
+    return new Iterator<RowDescriptor>()
+    {
+      private RowDescriptor next;
+      private int level;
+
+      @Override
+      public boolean hasNext()
+      {
+        if(next == null) {
+          try {
+            next = readRow();
+          }
+          catch(XMLStreamException e) {
+            throw new JsUnitException(e);
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public RowDescriptor next()
+      {
+        if(!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        RowDescriptor row = next;
+        next = null;
+        return row;
+      }
+
+      private RowDescriptor readRow() throws XMLStreamException
+      {
+        while(reader.hasNext()) {
+          switch(reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            if(++level == LEVEL_TABLE_ROW) {
+              return readColumns(new RowDescriptor(name()));
+            }
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            level--;
+            break;
+          }
+        }
+        reader.close();
+        return null;
+      }
+
+      private RowDescriptor readColumns(RowDescriptor row) throws XMLStreamException
+      {
+        while(reader.hasNext()) {
+          switch(reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            String columnName = name();
+            ExternalValue external = external();
+            // reads column text content and moves parser to column end element
+            String value = reader.getElementText();
+            row.addColumnDescritor(external != null ? new ColumnDescriptor(columnName, null, external) : new ColumnDescriptor(columnName, null, value));
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            level = LEVEL_ROOT;
+            return row;
+          }
+        }
+        throw new XMLStreamException("Unexpected end of data set stream.");
+      }
+
+      private ExternalValue external()
+      {
+        String file = reader.getAttributeValue(null, ATTR_FILE);
+        if(file != null) {
+          return ExternalValue.file(file);
+        }
+        String resource = reader.getAttributeValue(null, ATTR_RESOURCE);
+        return resource != null ? ExternalValue.resource(resource) : null;
+      }
+
+      private String name()
+      {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ':' + reader.getLocalName();
+      }
+    };
+  }
+}
@@ -0,0 +1,151 @@
+package com.jslib.unit.db;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listener accumulating fixture statistics: connections acquire and meta data times and, per table, clear time, inserted
+ * rows, batch sizes and insert rate. Summary report lists tables in descending order of total time, so that tables that
+ * dominate fixtures time come first. A single instance can be registered on many databases, e.g. for a whole test suite,
+ * and the summary printed at suite end or on JVM shutdown, see {@link #printOnShutdown(PrintStream)}. This class is
+ * thread safe.
+ */
+public class SummaryListener implements DatabaseListener
+{
+  private long acquireCount;
+  private long acquireNanos;
+  private long metaDataCount;
+  private long metaDataNanos;
+  private final Map<String, TableStatistics> tables = new HashMap<>();
+  private volatile PrintStream shutdownStream;
+  private final Runnable shutdownAction = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      PrintStream stream = shutdownStream;
+      if(stream != null) {
+        stream.print(SummaryListener.this.toString());
+      }
+    }
+  };
+
+  @Override
+  public synchronized void onConnectionAcquire(long nanos)
+  {
+    ++acquireCount;
+    acquireNanos += nanos;
+  }
+
+  @Override
+  public synchronized void onMetaData(String tableName, long nanos)
+  {
+    ++metaDataCount;
+    metaDataNanos += nanos;
+  }
+
+  @Override
+  public synchronized void onTableClear(String tableName, long nanos)
+  {
+    TableStatistics table = table(tableName);
+    ++table.clearCount;
+    table.clearNanos += nanos;
+  }
+
+  @Override
+  public synchronized void onBatch(String tableName, int rowsCount, long nanos)
+  {
+    TableStatistics table = table(tableName);
+    ++table.batchesCount;
+    table.rowsCount += rowsCount;
+    table.maxBatchSize = Math.max(table.maxBatchSize, rowsCount);
+    table.insertNanos += nanos;
+  }
+
+  private TableStatistics table(String tableName)
+  {
+    TableStatistics table = tables.get(tableName);
+    if(table == null) {
+      table = new TableStatistics(tableName);
+      tables.put(tableName, table);
+    }
+    return table;
+  }
+
+  /** Discard all accumulated statistics. */
+  public synchronized void reset()
+  {
+    acquireCount = 0;
+    acquireNanos = 0;
+    metaDataCount = 0;
+    metaDataNanos = 0;
+    tables.clear();
+  }
+
+  /**
+   * Print the summary report to given stream on JVM shutdown. Report is printed once, to the stream from the last call;
+   * all listeners share a single shutdown hook.
+   * 
+   * @param stream print stream, e.g. {@link System#out}, or null to cancel printing on shutdown.
+   */
+  public void printOnShutdown(PrintStream stream)
+  {
+    shutdownStream = stream;
+    if(stream != null) {
+      ShutdownHook.add(shutdownAction);
+    }
+    else {
+      ShutdownHook.remove(shutdownAction);
+    }
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("connections: %d acquired in %.1f ms\r\n", acquireCount, millis(acquireNanos)));
+    builder.append(String.format("meta data: %d queries in %.1f ms\r\n", metaDataCount, millis(metaDataNanos)));
+    builder.append(String.format("%-32s %10s %10s %8s %9s %10s %10s\r\n", "table", "clear ms", "rows", "batches", "max batch", "insert ms", "rows/sec"));
+
+    List<TableStatistics> sorted = new ArrayList<>(tables.values());
+    Collections.sort(sorted, new Comparator<TableStatistics>()
+    {
+      @Override
+      public int compare(TableStatistics left, TableStatistics right)
+      {
+        return Long.compare(right.clearNanos + right.insertNanos, left.clearNanos + left.insertNanos);
+      }
+    });
+    for(TableStatistics table : sorted) {
+      double rate = table.insertNanos > 0 ? table.rowsCount * 1e9 / table.insertNanos : 0;
+      builder.append(String.format("%-32s %10.1f %10d %8d %9d %10.1f %10.0f\r\n", table.name, millis(table.clearNanos), table.rowsCount, table.batchesCount, table.maxBatchSize, millis(table.insertNanos), rate));
+    }
+    return builder.toString();
+  }
+
+  private static double millis(long nanos)
+  {
+    return nanos / 1e6;
+  }
+
+  private static class TableStatistics
+  {
+    final String name;
+    long clearCount;
+    long clearNanos;
+    long batchesCount;
+    long rowsCount;
+    int maxBatchSize;
+    long insertNanos;
+
+    TableStatistics(String name)
+    {
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,387 @@
+package com.jslib.unit.db;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Synchronize database content with a data set issuing only the needed writes. For every table with primary key,
+ * current rows are read and compared, by primary key, with data set rows: missing rows are inserted, changed rows
+ * updated and rows not present in data set deleted. Tables without primary key are fully replaced and tables not
+ * present in data set are cleared. All differences are computed before any write. Deletes are executed first, in tables
+ * delete order, so that deleted rows do not conflict with unique keys of inserted or updated rows; then updates and
+ * inserts are executed in tables load order. All statements are batched per table and shape, with configured batch
+ * size. Note that a row updated to reference a different parent row fails if its current parent row is deleted.
+ * <p>
+ * Data set rows and current content of data set tables are kept in memory, so this mode is designed for mostly read-only
+ * fixtures where a test changes only few rows.
+ */
+class SyncDB extends Work
+{
+  private final Iterator<RowDescriptor> rows;
+  private final int batchSize;
+  private final LoadReport report;
+
+  public SyncDB(Iterator<RowDescriptor> rows, int batchSize, LoadReport report)
+  {
+    this.rows = rows;
+    this.batchSize = batchSize;
+    this.report = report;
+  }
+
+  @Override
+  public Object execute(Connection connection) throws SQLException
+  {
+    TableGraph graph = TableGraph.getInstance(connection, driver, listener);
+
+    Map<String, List<RowDescriptor>> dataSet = new LinkedHashMap<>();
+    while(rows.hasNext()) {
+      RowDescriptor row = rows.next();
+      if(row.isEmpty()) {
+        continue;
+      }
+      String tableName = driver.getIdentifier(row.getTableName());
+      List<RowDescriptor> tableRows = dataSet.get(tableName);
+      if(tableRows == null) {
+        tableRows = new ArrayList<>();
+        dataSet.put(tableName, tableRows);
+      }
+      tableRows.add(row);
+    }
+
+    Map<String, TableDiff> diffs = new LinkedHashMap<>();
+    for(String tableName : graph.getLoadOrder()) {
+      List<RowDescriptor> tableRows = dataSet.remove(tableName);
+      if(tableRows != null) {
+        diffs.put(tableName, diff(connection, graph, tableName, tableRows));
+      }
+    }
+
+    // tables not present in data set are cleared with a single batch, executed before first key based delete since
+    // cleared tables may reference rows to be deleted
+    Statement clearStatement = connection.createStatement();
+    try {
+      boolean clearBatch = false;
+      for(String tableName : graph.getDeleteOrder()) {
+        TableDiff diff = diffs.get(tableName);
+        if(diff == null || diff.replace) {
+          String sql = "DELETE FROM " + driver.getQualifiedTableName(tableName);
+          print(sql);
+          clearStatement.addBatch(sql);
+          clearBatch = true;
+          continue;
+        }
+        if(!diff.deletes.isEmpty()) {
+          if(clearBatch) {
+            clearStatement.executeBatch();
+            clearBatch = false;
+          }
+          delete(connection, diff);
+        }
+      }
+      if(clearBatch) {
+        clearStatement.executeBatch();
+      }
+    }
+    finally {
+      clearStatement.close();
+    }
+
+    for(TableDiff diff : diffs.values()) {
+      upsert(connection, graph, diff);
+    }
+    // tables from data set missing from meta data; let insert fail with database error
+    for(List<RowDescriptor> tableRows : dataSet.values()) {
+      TableDiff diff = new TableDiff(tableRows.get(0).getTableName(), null);
+      diff.inserts.addAll(tableRows);
+      upsert(connection, graph, diff);
+    }
+    return null;
+  }
+
+  private TableDiff diff(Connection connection, TableGraph graph, String tableName, List<RowDescriptor> tableRows) throws SQLException
+  {
+    TableDiff diff = new TableDiff(tableName, graph.getPrimaryKey(connection, driver, tableName, listener));
+    if(diff.primaryKey.isEmpty()) {
+      // table without primary key cannot be compared and is replaced: cleared with tables not present in data set, then
+      // all rows inserted; it is not referenced by foreign keys
+      diff.replace = true;
+      diff.inserts.addAll(tableRows);
+      return diff;
+    }
+
+    Map<String, Integer> columnTypes = graph.getColumnTypes(connection, driver, tableName, listener);
+    Map<String, Object[]> currentRows = new HashMap<>();
+    Map<String, Map<String, Object>> currentValues = new HashMap<>();
+    Statement statement = connection.createStatement();
+    try {
+      statement.setFetchSize(driver.getFetchSize());
+      ResultSet rs = statement.executeQuery("SELECT * FROM " + driver.getQualifiedTableName(tableName));
+      ResultSetMetaData meta = rs.getMetaData();
+      Map<String, Integer> columns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for(int i = 1; i <= meta.getColumnCount(); ++i) {
+        columns.put(meta.getColumnName(i), i);
+      }
+      while(rs.next()) {
+        Object[] keyValues = new Object[diff.primaryKey.size()];
+        StringBuilder key = new StringBuilder();
+        for(int i = 0; i < keyValues.length; ++i) {
+          keyValues[i] = rs.getObject(columns.get(diff.primaryKey.get(i)));
+          key.append(Values.key(Values.toString(keyValues[i]), columnTypes.get(diff.primaryKey.get(i)))).append('\u0000');
+        }
+        Map<String, Object> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for(Map.Entry<String, Integer> column : columns.entrySet()) {
+          values.put(column.getKey(), rs.getObject(column.getValue()));
+        }
+        currentRows.put(key.toString(), keyValues);
+        currentValues.put(key.toString(), values);
+      }
+    }
+    finally {
+      statement.close();
+    }
+
+    for(RowDescriptor row : tableRows) {
+      Map<String, String> rowValues = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      // external values are not compared with database content and always force row update
+      boolean external = false;
+      Iterator<ColumnDescriptor> it = row.getColumns();
+      while(it.hasNext()) {
+        ColumnDescriptor column = it.next();
+        if(column.getExternal() != null) {
+          external = true;
+          continue;
+        }
+        rowValues.put(column.getName(), column.getValue());
+      }
+
+      StringBuilder key = new StringBuilder();
+      for(String keyColumn : diff.primaryKey) {
+        String value = rowValues.get(keyColumn);
+        if(value == null) {
+          key = null;
+          break;
+        }
+        key.append(Values.key(value, columnTypes.get(keyColumn))).append('\u0000');
+      }
+
+      Object[] keyValues = key != null ? currentRows.remove(key.toString()) : null;
+      if(keyValues == null) {
+        diff.inserts.add(row);
+        continue;
+      }
+      if(external) {
+        diff.updates.add(new Update(row, keyValues));
+        continue;
+      }
+      Map<String, Object> values = currentValues.get(key.toString());
+      for(Map.Entry<String, String> column : rowValues.entrySet()) {
+        if(!values.containsKey(column.getKey()) || !Values.equals(values.get(column.getKey()), column.getValue())) {
+          diff.updates.add(new Update(row, keyValues));
+          break;
+        }
+      }
+    }
+    diff.deletes.addAll(currentRows.values());
+    return diff;
+  }
+
+  private void upsert(Connection connection, TableGraph graph, TableDiff diff) throws SQLException
+  {
+    // streams bound for external values are closed even if binding or execution fails
+    List<Closeable> streams = new ArrayList<>();
+    try {
+      Map<String, PreparedStatement> updateStatements = new HashMap<>();
+      Map<PreparedStatement, Integer> updateBatches = new HashMap<>();
+      Map<String, Integer> types = graph.getColumnTypes(connection, driver, diff.tableName, listener);
+      try {
+        for(Update update : diff.updates) {
+          List<ColumnDescriptor> columns = new ArrayList<>();
+          Iterator<ColumnDescriptor> it = update.row.getColumns();
+          while(it.hasNext()) {
+            ColumnDescriptor column = it.next();
+            if(!contains(diff.primaryKey, column.getName())) {
+              columns.add(column);
+            }
+          }
+          if(columns.isEmpty()) {
+            continue;
+          }
+
+          String shape = update.row.getShapeKey();
+          PreparedStatement ps = updateStatements.get(shape);
+          if(ps == null) {
+            StringBuilder sql = new StringBuilder("UPDATE ");
+            sql.append(driver.getQualifiedTableName(diff.tableName));
+            sql.append(" SET ");
+            for(int i = 0; i < columns.size(); ++i) {
+              if(i > 0) {
+                sql.append(',');
+              }
+              sql.append(driver.getQualifiedColumnName(columns.get(i).getName()));
+              sql.append("=?");
+            }
+            sql.append(whereKey(diff.primaryKey));
+            print(sql);
+            ps = connection.prepareStatement(sql.toString());
+            updateStatements.put(shape, ps);
+          }
+
+          int index = 1;
+          for(ColumnDescriptor column : columns) {
+            InsertTableValues.setParameter(ps, index++, diff.tableName, column, types.get(column.getName()), streams);
+          }
+          for(Object keyValue : update.keyValues) {
+            ps.setObject(index++, keyValue);
+          }
+          ps.addBatch();
+          int updateBatch = updateBatches.containsKey(ps) ? updateBatches.get(ps) + 1 : 1;
+          if(updateBatch == batchSize) {
+            ps.executeBatch();
+            updateBatch = 0;
+          }
+          updateBatches.put(ps, updateBatch);
+        }
+        for(Map.Entry<PreparedStatement, Integer> updateBatch : updateBatches.entrySet()) {
+          if(updateBatch.getValue() > 0) {
+            updateBatch.getKey().executeBatch();
+          }
+        }
+      }
+      finally {
+        for(PreparedStatement ps : updateStatements.values()) {
+          ps.close();
+        }
+      }
+
+      PreparedStatement ps = null;
+      int insertBatch = 0;
+      for(RowDescriptor row : diff.inserts) {
+        PreparedStatement statement = statements.getInsertStatement(driver, row);
+        if(statement != ps || insertBatch == batchSize) {
+          if(insertBatch > 0) {
+            ps.executeBatch();
+            report.addBatch(diff.tableName, insertBatch);
+          }
+          if(statement != ps) {
+            print(statements.getLastSQL());
+          }
+          ps = statement;
+          insertBatch = 0;
+        }
+        InsertTableValues.setParameters(ps, row, statements.getLastTypes(), streams);
+        ps.addBatch();
+        ++insertBatch;
+      }
+      if(insertBatch > 0) {
+        ps.executeBatch();
+        report.addBatch(diff.tableName, insertBatch);
+      }
+    }
+    finally {
+      InsertTableValues.close(streams);
+    }
+
+    if(verbose) {
+      System.out.println(String.format("%s: %d inserted, %d updated, %d deleted", diff.tableName, diff.inserts.size(), diff.updates.size(), diff.deletes.size()));
+    }
+  }
+
+  private void delete(Connection connection, TableDiff diff) throws SQLException
+  {
+    if(diff.deletes.isEmpty()) {
+      return;
+    }
+    String sql = "DELETE FROM " + driver.getQualifiedTableName(diff.tableName) + whereKey(diff.primaryKey);
+    print(sql);
+    PreparedStatement ps = connection.prepareStatement(sql);
+    try {
+      int deleteBatch = 0;
+      for(Object[] keyValues : diff.deletes) {
+        for(int i = 0; i < keyValues.length; ++i) {
+          ps.setObject(i + 1, keyValues[i]);
+        }
+        ps.addBatch();
+        if(++deleteBatch == batchSize) {
+          ps.executeBatch();
+          deleteBatch = 0;
+        }
+      }
+      if(deleteBatch > 0) {
+        ps.executeBatch();
+      }
+    }
+    finally {
+      ps.close();
+    }
+  }
+
+  private String whereKey(List<String> primaryKey)
+  {
+    StringBuilder where = new StringBuilder(" WHERE ");
+    for(int i = 0; i < primaryKey.size(); ++i) {
+      if(i > 0) {
+        where.append(" AND ");
+      }
+      where.append(driver.getQualifiedColumnName(primaryKey.get(i)));
+      where.append("=?");
+    }
+    return where.toString();
+  }
+
+  private void print(Object sql)
+  {
+    if(verbose) {
+      System.out.println(sql);
+    }
+  }
+
+  private static boolean contains(List<String> names, String name)
+  {
+    for(String n : names) {
+      if(n.equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class TableDiff
+  {
+    final String tableName;
+    final List<String> primaryKey;
+    boolean replace;
+    final List<RowDescriptor> inserts = new ArrayList<>();
+    final List<Update> updates = new ArrayList<>();
+    final List<Object[]> deletes = new ArrayList<>();
+
+    TableDiff(String tableName, List<String> primaryKey)
+    {
+      this.tableName = tableName;
+      this.primaryKey = primaryKey != null ? primaryKey : new ArrayList<String>();
+    }
+  }
+
+  private static class Update
+  {
+    final RowDescriptor row;
+    final Object[] keyValues;
+
+    Update(RowDescriptor row, Object[] keyValues)
+    {
+      this.row = row;
+      this.keyValues = keyValues;
+    }
+  }
+}
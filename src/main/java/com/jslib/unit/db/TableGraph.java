@@ -0,0 +1,458 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tables dependency graph based on foreign keys. Graph is created from database meta data and cached per driver URL,
+ * catalog and schema since meta data queries are expensive; cached graph should be invalidated if database schema is
+ * changed, see {@link #invalidate(Driver)}.
+ * <p>
+ * Tables are topologically sorted so that a table is always loaded after the tables it references and deleted before
+ * them. Self referencing foreign keys are ignored. Tables involved in foreign keys cycles, and tables referencing them,
+ * cannot be sorted and are appended, in name order, after sorted tables; only cycles members are reported by
+ * {@link #getCyclicTables()}.
+ */
+class TableGraph
+{
+  private static final Map<String, TableGraph> CACHE = new HashMap<>();
+
+  /**
+   * Get cached tables graph for given driver, loading it from database meta data on the first call.
+   *
+   * @param connection database connection used to retrieve meta data,
+   * @param driver database driver,
+   * @param listener listener notified about meta data load duration.
+   * @return tables graph.
+   * @throws SQLException if meta data retrieval fails.
+   */
+  static synchronized TableGraph getInstance(Connection connection, Driver driver, DatabaseListener listener) throws SQLException
+  {
+    String key = key(driver);
+    TableGraph graph = CACHE.get(key);
+    if(graph == null) {
+      long start = System.nanoTime();
+      graph = load(connection.getMetaData(), driver);
+      listener.onMetaData(null, System.nanoTime() - start);
+      CACHE.put(key, graph);
+    }
+    return graph;
+  }
+
+  /**
+   * Remove cached graph for given driver; next {@link #getInstance(Connection, Driver, DatabaseListener)} reloads it from meta data.
+   *
+   * @param driver database driver.
+   */
+  static synchronized void invalidate(Driver driver)
+  {
+    CACHE.remove(key(driver));
+  }
+
+  static synchronized void invalidateAll()
+  {
+    CACHE.clear();
+  }
+
+  private static String key(Driver driver)
+  {
+    return driver.getUrl() + '#' + driver.getCatalog() + '#' + driver.getSchema();
+  }
+
+  private static TableGraph load(DatabaseMetaData meta, Driver driver) throws SQLException
+  {
+    TableGraph graph = new TableGraph();
+
+    ResultSet rs = meta.getTables(driver.getCatalog(), pattern(meta, driver.getSchema()), null, new String[]
+    {
+        "TABLE"
+    });
+    try {
+      while(rs.next()) {
+        graph.addTable(rs.getString("TABLE_NAME"));
+      }
+    }
+    finally {
+      rs.close();
+    }
+
+    for(String tableName : new ArrayList<>(graph.tables.keySet())) {
+      rs = meta.getImportedKeys(driver.getCatalog(), driver.getSchema(), tableName);
+      try {
+        while(rs.next()) {
+          if(tableName.equals(rs.getString("FKTABLE_NAME"))) {
+            graph.addForeignKey(tableName, rs.getString("PKTABLE_NAME"));
+          }
+        }
+      }
+      finally {
+        rs.close();
+      }
+    }
+
+    graph.sort();
+    return graph;
+  }
+
+  /**
+   * Escape LIKE wildcards from name used as meta data search pattern, e.g. table name argument of
+   * {@link DatabaseMetaData#getColumns(String, String, String, String)}, so that <code>_</code> and <code>%</code> match
+   * only themselves. Since not all drivers honor escaping, callers should still filter returned rows on name.
+   *
+   * @param meta database meta data,
+   * @param name table or schema name, possible null.
+   * @return search pattern matching only given name or null if name is null.
+   * @throws SQLException if meta data retrieval fails.
+   */
+  static String pattern(DatabaseMetaData meta, String name) throws SQLException
+  {
+    String escape = meta.getSearchStringEscape();
+    if(name == null || escape == null || escape.isEmpty()) {
+      return name;
+    }
+    StringBuilder pattern = new StringBuilder();
+    for(int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if(c == '_' || c == '%' || name.startsWith(escape, i)) {
+        pattern.append(escape);
+      }
+      pattern.append(c);
+    }
+    return pattern.toString();
+  }
+
+  private final Map<String, Table> tables = new LinkedHashMap<>();
+  /** Primary key columns per table, loaded on demand. */
+  private final Map<String, List<String>> primaryKeys = new ConcurrentHashMap<>();
+  /** Columns SQL types per table, loaded on demand. */
+  private final Map<String, Map<String, Integer>> columnTypes = new ConcurrentHashMap<>();
+  private List<String> loadOrder;
+  private List<String> deleteOrder;
+  private List<List<String>> levels;
+  private Set<String> cyclicTables;
+
+  void addTable(String tableName)
+  {
+    tables.put(tableName, new Table(tableName));
+  }
+
+  /**
+   * Register foreign key from referencing table to referenced one. Self referencing foreign keys are ignored.
+   *
+   * @param tableName referencing table name,
+   * @param foreignTableName referenced table name.
+   * @throws IllegalStateException if any of the tables is not registered.
+   */
+  void addForeignKey(String tableName, String foreignTableName)
+  {
+    if(foreignTableName.equals(tableName)) {
+      return;
+    }
+    Table table = tables.get(tableName);
+    Table foreignTable = tables.get(foreignTableName);
+    if(table == null || foreignTable == null) {
+      throw new IllegalStateException(String.format("Foreign key constrain to not existing table:\r\n\t- referencing table: %s\r\n\t- foreign table: %s", tableName, foreignTableName));
+    }
+    table.addForeignKey(foreignTable);
+  }
+
+  /**
+   * Topological sort using Kahn algorithm. Tables left with unresolved foreign keys are part of cycles or reference, direct
+   * or indirect, a cycle.
+   */
+  void sort()
+  {
+    Map<Table, Integer> unresolved = new HashMap<>();
+    Deque<Table> ready = new ArrayDeque<>();
+    for(Table table : tables.values()) {
+      unresolved.put(table, table.foreignKeys.size());
+      if(table.foreignKeys.isEmpty()) {
+        ready.add(table);
+      }
+    }
+
+    List<String> order = new ArrayList<>(tables.size());
+    while(!ready.isEmpty()) {
+      Table table = ready.poll();
+      order.add(table.name);
+      for(Table dependency : table.dependencies) {
+        int count = unresolved.get(dependency) - 1;
+        unresolved.put(dependency, count);
+        if(count == 0) {
+          ready.add(dependency);
+        }
+      }
+    }
+
+    List<String> unsorted = new ArrayList<>();
+    Set<Table> unsortedTables = new LinkedHashSet<>();
+    if(order.size() < tables.size()) {
+      for(Map.Entry<Table, Integer> entry : unresolved.entrySet()) {
+        if(entry.getValue() > 0) {
+          unsorted.add(entry.getKey().name);
+          unsortedTables.add(entry.getKey());
+        }
+      }
+      Collections.sort(unsorted);
+      order.addAll(unsorted);
+    }
+
+    loadOrder = Collections.unmodifiableList(order);
+    List<String> reverse = new ArrayList<>(order);
+    Collections.reverse(reverse);
+    deleteOrder = Collections.unmodifiableList(reverse);
+    cyclicTables = Collections.unmodifiableSet(new Cycles(unsortedTables).find());
+
+    // table level is one more than the highest level of referenced tables; load order guarantees referenced tables are
+    // processed first; unsorted tables have no level and are all grouped on a separated last level
+    Map<String, Integer> tableLevels = new HashMap<>();
+    List<List<String>> levelsList = new ArrayList<>();
+    for(String tableName : order.subList(0, order.size() - unsorted.size())) {
+      int level = 0;
+      for(Table foreignTable : tables.get(tableName).foreignKeys) {
+        level = Math.max(level, tableLevels.get(foreignTable.name) + 1);
+      }
+      tableLevels.put(tableName, level);
+      if(level == levelsList.size()) {
+        levelsList.add(new ArrayList<String>());
+      }
+      levelsList.get(level).add(tableName);
+    }
+    if(!unsorted.isEmpty()) {
+      levelsList.add(unsorted);
+    }
+    for(int i = 0; i < levelsList.size(); ++i) {
+      levelsList.set(i, Collections.unmodifiableList(levelsList.get(i)));
+    }
+    levels = Collections.unmodifiableList(levelsList);
+  }
+
+  /**
+   * Get table names in the order they should be loaded: referenced tables before referencing ones.
+   *
+   * @return tables load order.
+   */
+  List<String> getLoadOrder()
+  {
+    return loadOrder;
+  }
+
+  /**
+   * Get table names in the order they should be deleted: referencing tables before referenced ones.
+   *
+   * @return tables delete order.
+   */
+  List<String> getDeleteOrder()
+  {
+    return deleteOrder;
+  }
+
+  /**
+   * Get tables grouped by dependency levels. First level contains tables without foreign keys and every next level
+   * contains tables referencing only tables from previous levels, so that tables from the same level are independent
+   * and can be loaded concurrently. Tables involved in foreign keys cycles, and tables referencing them, are all grouped
+   * on the last level.
+   *
+   * @return dependency levels, in load order.
+   */
+  List<List<String>> getLevels()
+  {
+    return levels;
+  }
+
+  /**
+   * Get tables involved in foreign keys cycles, that is, tables from strongly connected components with more than one
+   * table; tables merely referencing a cycle are not included. Returned tables cannot be ordered and, if not empty,
+   * loading and deleting will likely fail unless foreign keys are disabled.
+   *
+   * @return tables involved in foreign keys cycles, in name order, possible empty.
+   */
+  Set<String> getCyclicTables()
+  {
+    return cyclicTables;
+  }
+
+  /**
+   * Get primary key columns of given table, in key sequence order. Primary keys are retrieved from meta data on first
+   * request and cached; listener is notified only when meta data is actually queried.
+   *
+   * @param connection database connection used to retrieve meta data,
+   * @param driver database driver,
+   * @param tableName table name,
+   * @param listener listener notified about meta data query.
+   * @return primary key columns, empty if table has no primary key.
+   * @throws SQLException if meta data retrieval fails.
+   */
+  List<String> getPrimaryKey(Connection connection, Driver driver, String tableName, DatabaseListener listener) throws SQLException
+  {
+    List<String> primaryKey = primaryKeys.get(tableName);
+    if(primaryKey != null) {
+      return primaryKey;
+    }
+    long start = System.nanoTime();
+
+    Map<Integer, String> columns = new TreeMap<>();
+    String identifier = driver.getIdentifier(tableName);
+    ResultSet rs = connection.getMetaData().getPrimaryKeys(driver.getCatalog(), driver.getSchema(), identifier);
+    try {
+      while(rs.next()) {
+        if(identifier.equals(rs.getString("TABLE_NAME"))) {
+          columns.put(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+        }
+      }
+    }
+    finally {
+      rs.close();
+    }
+    primaryKey = Collections.unmodifiableList(new ArrayList<>(columns.values()));
+    primaryKeys.put(tableName, primaryKey);
+    listener.onMetaData(identifier, System.nanoTime() - start);
+    return primaryKey;
+  }
+
+  /**
+   * Get SQL types, as defined by {@link java.sql.Types}, for all columns of given table. Column types are retrieved from
+   * meta data on first request and cached; listener is notified only when meta data is actually queried. Returned map
+   * is case insensitive on column names.
+   *
+   * @param connection database connection used to retrieve meta data,
+   * @param driver database driver,
+   * @param tableName table name,
+   * @param listener listener notified about meta data query.
+   * @return columns SQL types, empty if table is not found.
+   * @throws SQLException if meta data retrieval fails.
+   */
+  Map<String, Integer> getColumnTypes(Connection connection, Driver driver, String tableName, DatabaseListener listener) throws SQLException
+  {
+    Map<String, Integer> types = columnTypes.get(tableName);
+    if(types != null) {
+      return types;
+    }
+    long start = System.nanoTime();
+
+    types = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    DatabaseMetaData meta = connection.getMetaData();
+    String identifier = driver.getIdentifier(tableName);
+    ResultSet rs = meta.getColumns(driver.getCatalog(), pattern(meta, driver.getSchema()), pattern(meta, identifier), null);
+    try {
+      while(rs.next()) {
+        if(identifier.equals(rs.getString("TABLE_NAME"))) {
+          types.put(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"));
+        }
+      }
+    }
+    finally {
+      rs.close();
+    }
+    types = Collections.unmodifiableMap(types);
+    columnTypes.put(tableName, types);
+    listener.onMetaData(identifier, System.nanoTime() - start);
+    return types;
+  }
+
+  boolean isReferenced(String tableName)
+  {
+    Table table = tables.get(tableName);
+    return table != null && !table.dependencies.isEmpty();
+  }
+
+  /**
+   * Tarjan strongly connected components search on unsorted tables. Sorted tables cannot be part of a cycle, so that
+   * foreign keys to them are not followed.
+   */
+  private static class Cycles
+  {
+    private final Set<Table> tables;
+    private final Map<Table, Integer> indices = new HashMap<>();
+    private final Map<Table, Integer> lowLinks = new HashMap<>();
+    private final Deque<Table> stack = new ArrayDeque<>();
+    private final Set<Table> onStack = new HashSet<>();
+    private final Set<String> members = new TreeSet<>();
+
+    Cycles(Set<Table> tables)
+    {
+      this.tables = tables;
+    }
+
+    Set<String> find()
+    {
+      for(Table table : tables) {
+        if(!indices.containsKey(table)) {
+          visit(table);
+        }
+      }
+      return members;
+    }
+
+    private void visit(Table table)
+    {
+      int index = indices.size();
+      indices.put(table, index);
+      lowLinks.put(table, index);
+      stack.push(table);
+      onStack.add(table);
+
+      for(Table foreignTable : table.foreignKeys) {
+        if(!tables.contains(foreignTable)) {
+          continue;
+        }
+        if(!indices.containsKey(foreignTable)) {
+          visit(foreignTable);
+          lowLinks.put(table, Math.min(lowLinks.get(table), lowLinks.get(foreignTable)));
+        }
+        else if(onStack.contains(foreignTable)) {
+          lowLinks.put(table, Math.min(lowLinks.get(table), indices.get(foreignTable)));
+        }
+      }
+
+      if(lowLinks.get(table) == index) {
+        List<String> component = new ArrayList<>();
+        Table member;
+        do {
+          member = stack.pop();
+          onStack.remove(member);
+          component.add(member.name);
+        } while(member != table);
+        // self references are not recorded so a single table component is never a cycle
+        if(component.size() > 1) {
+          members.addAll(component);
+        }
+      }
+    }
+  }
+
+  private static class Table
+  {
+    final String name;
+    final Set<Table> foreignKeys = new LinkedHashSet<>();
+    final Set<Table> dependencies = new LinkedHashSet<>();
+
+    Table(String name)
+    {
+      this.name = name;
+    }
+
+    void addForeignKey(Table foreignKey)
+    {
+      if(this.foreignKeys.add(foreignKey)) {
+        foreignKey.dependencies.add(this);
+      }
+    }
+  }
+}
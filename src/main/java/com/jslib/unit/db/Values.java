@@ -0,0 +1,175 @@
+package com.jslib.unit.db;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Helpers for comparing database values, as retrieved by JDBC, with data set values, always strings. Empty data set
+ * value stands for SQL null. Numbers are compared by numeric value, booleans accept <code>1</code> and <code>0</code>
+ * and timestamps with no fractional seconds are formatted without them, as in data set date format.
+ */
+final class Values
+{
+  private Values()
+  {
+  }
+
+  /**
+   * Test if database value is equal to data set value.
+   * 
+   * @param value database value, possible null,
+   * @param dataSetValue data set value, empty for null.
+   * @return true if values are equal.
+   */
+  static boolean equals(Object value, String dataSetValue)
+  {
+    if(dataSetValue == null || dataSetValue.isEmpty()) {
+      return value == null;
+    }
+    if(value == null) {
+      return false;
+    }
+    if(value instanceof Number) {
+      try {
+        return new BigDecimal(value.toString()).compareTo(new BigDecimal(dataSetValue.trim())) == 0;
+      }
+      catch(NumberFormatException unused) {
+        return false;
+      }
+    }
+    if(value instanceof Boolean) {
+      boolean flag = (Boolean)value;
+      return flag ? dataSetValue.equalsIgnoreCase("true") || dataSetValue.equals("1") : dataSetValue.equalsIgnoreCase("false") || dataSetValue.equals("0");
+    }
+    if(value instanceof byte[]) {
+      // binary values are not representable in data set text format
+      return false;
+    }
+    return toString(value).equals(dataSetValue);
+  }
+
+  /**
+   * Read result set value with a getter suitable for data set text format: timestamps as {@link Timestamp}, binary
+   * values as UTF-8 text, large text values as string and all others as returned by {@link ResultSet#getObject(int)}.
+   * 
+   * @param rs result set positioned on a row,
+   * @param index column index, 1 based,
+   * @param sqlType column SQL type.
+   * @return database value, possible null.
+   * @throws SQLException if value reading fails.
+   */
+  static Object getValue(ResultSet rs, int index, int sqlType) throws SQLException
+  {
+    switch(sqlType) {
+    case Types.TIMESTAMP:
+      return rs.getTimestamp(index);
+
+    case Types.BINARY:
+    case Types.VARBINARY:
+    case Types.LONGVARBINARY:
+    case Types.BLOB:
+      byte[] bytes = rs.getBytes(index);
+      return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+
+    case Types.CLOB:
+    case Types.NCLOB:
+    case Types.LONGVARCHAR:
+    case Types.LONGNVARCHAR:
+      return rs.getString(index);
+
+    default:
+      return rs.getObject(index);
+    }
+  }
+
+  /**
+   * Convert database value to data set string format. Returns empty string for null.
+   * 
+   * @param value database value, possible null.
+   * @return value string representation.
+   */
+  static String toString(Object value)
+  {
+    if(value == null) {
+      return "";
+    }
+    if(value instanceof Timestamp) {
+      Timestamp timestamp = (Timestamp)value;
+      String s = timestamp.toString();
+      return timestamp.getNanos() == 0 ? s.substring(0, s.length() - 2) : s;
+    }
+    if(value instanceof BigDecimal) {
+      return ((BigDecimal)value).toPlainString();
+    }
+    return value.toString();
+  }
+
+  /**
+   * Get canonical form of a key component from a column of given SQL type. Values of numeric columns are normalized, see
+   * {@link #key(String)}; other values are kept as they are since, for example, <code>007</code> and <code>7</code> are
+   * distinct character keys.
+   * 
+   * @param value key component, as string,
+   * @param sqlType column SQL type, null if not known.
+   * @return canonical key component.
+   */
+  static String key(String value, Integer sqlType)
+  {
+    if(sqlType != null && isNumeric(sqlType)) {
+      return key(value);
+    }
+    return value != null ? value : "";
+  }
+
+  /**
+   * Test if SQL type is numeric.
+   * 
+   * @param sqlType SQL type.
+   * @return true if SQL type is numeric.
+   */
+  static boolean isNumeric(int sqlType)
+  {
+    switch(sqlType) {
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.INTEGER:
+    case Types.BIGINT:
+    case Types.DECIMAL:
+    case Types.NUMERIC:
+    case Types.REAL:
+    case Types.FLOAT:
+    case Types.DOUBLE:
+      return true;
+
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Get canonical form of a numeric key component, so that keys from database and from data set compare equal. Numeric
+   * values are normalized, e.g. <code>007</code> and <code>7.0</code> both become <code>7</code>.
+   * 
+   * @param value key component, as string.
+   * @return canonical key component.
+   */
+  static String key(String value)
+  {
+    if(value == null || value.isEmpty()) {
+      return "";
+    }
+    char c = value.charAt(0);
+    if((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.') {
+      try {
+        return new BigDecimal(value).stripTrailingZeros().toPlainString();
+      }
+      catch(NumberFormatException unused) {
+      }
+    }
+    return value;
+  }
+}
@@ -7,6 +7,10 @@ abstract class Work
 {
   protected Driver driver;
   protected boolean verbose;
+  /** Prepared statements cache for current connection checkout. */
+  protected StatementCache statements;
+  /** Listener for load and clear events, never null. */
+  protected DatabaseListener listener;
 
   public void setDriver(Driver driver)
   {
@@ -18,5 +22,15 @@ abstract class Work
     this.verbose = verbose;
   }
 
+  public void setStatements(StatementCache statements)
+  {
+    this.statements = statements;
+  }
+
+  public void setListener(DatabaseListener listener)
+  {
+    this.listener = listener;
+  }
+
   public abstract Object execute(Connection connection) throws SQLException;
 }
@@ -0,0 +1,112 @@
+package com.jslib.unit;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import junit.framework.AssertionFailedError;
+
+import com.jslib.unit.db.Driver;
+import com.jslib.unit.db.H2Driver;
+import com.jslib.unit.db.SqlCapture;
+
+public class TestCaseExUnitTest extends TestCaseEx {
+	private SqlCapture capture;
+	private Connection connection;
+
+	@Override
+	protected void setUp() throws Exception {
+		Driver driver = new H2Driver("assertions");
+		capture = new SqlCapture();
+		connection = capture.wrap(DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword()));
+		Statement statement = connection.createStatement();
+		statement.execute("CREATE TABLE IF NOT EXISTS person(id INT PRIMARY KEY, name VARCHAR(20))");
+		statement.execute("DELETE FROM person");
+		capture.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		connection.close();
+	}
+
+	public void testAssertQueryCount() throws Exception {
+		select(3);
+		connection.createStatement().executeUpdate("INSERT INTO person VALUES(1, 'John Doe')");
+
+		assertQueryCount(4, capture);
+		assertQueryCount(3, capture, "from\\s+person");
+		assertQueryCount(1, capture, "^INSERT");
+	}
+
+	public void testAssertQueryCountFailure() throws Exception {
+		select(3);
+
+		try {
+			assertQueryCount(1, capture);
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Expected 1 SQL executions but was 3."));
+			assertTrue(e.getMessage(), e.getMessage().contains("3 x SELECT * FROM person"));
+			try {
+				assertQueryCount(2, capture, "FROM person");
+			} catch (AssertionFailedError e2) {
+				assertTrue(e2.getMessage(), e2.getMessage().startsWith("Expected 2 SQL executions matching |FROM person| but was 3."));
+				return;
+			}
+		}
+		fail("Query count mismatch should fail.");
+	}
+
+	public void testAssertNoQueriesMatching() throws Exception {
+		select(2);
+		assertNoQueriesMatching(capture, "^DELETE");
+		assertNoQueriesMatching(capture, "FROM customer");
+	}
+
+	public void testAssertNoQueriesMatchingFailure() throws Exception {
+		select(2);
+		try {
+			assertNoQueriesMatching(capture, "from PERSON");
+			fail("Matching query should fail.");
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unexpected 2 SQL executions matching |from PERSON|, first:"));
+		}
+	}
+
+	public void testAssertNoQueriesMatchingOverflow() throws Exception {
+		capture = new SqlCapture(2);
+		connection = capture.wrap(connection);
+		select(3);
+		try {
+			// overflowed capture can miss matching queries
+			assertNoQueriesMatching(capture, "^DELETE");
+			fail("Capture overflow should fail.");
+		} catch (AssertionFailedError e) {
+			assertEquals("SQL capture overflow. Increase capture capacity.", e.getMessage());
+		}
+	}
+
+	public void testAssertP99Latency() throws Exception {
+		select(10);
+		assertP99Latency(capture, "FROM person", 10000);
+		// no matching executions
+		assertP99Latency(capture, "FROM customer", 0);
+	}
+
+	public void testAssertP99LatencyFailure() throws Exception {
+		select(10);
+		try {
+			assertP99Latency(capture, "FROM person", 0);
+			fail("Latency over limit should fail.");
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().matches("SQL executions matching \\|FROM person\\| p99 latency is \\d+\\.\\d{3} ms, exceeding 0\\.000 ms limit\\."));
+		}
+	}
+
+	private void select(int count) throws Exception {
+		Statement statement = connection.createStatement();
+		for (int i = 0; i < count; ++i) {
+			statement.executeQuery("SELECT * FROM person").close();
+		}
+	}
+}
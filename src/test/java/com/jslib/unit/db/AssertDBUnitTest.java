@@ -0,0 +1,89 @@
+package com.jslib.unit.db;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+public class AssertDBUnitTest extends TestCase {
+	private Driver driver;
+	private Database database;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("assert");
+		driver.setInitScript("db/schema.sql");
+		database = new Database(driver);
+		database.load("db/data-set.xml");
+	}
+
+	public void testHashFastPath() throws Exception {
+		SqlCapture capture = new SqlCapture();
+		assertDB(capture, "<dataset><customer><id>2</id><name>Jane Doe</name></customer><customer><id>1.0</id><name>John Doe</name></customer></dataset>", 10);
+		assertEquals(1, capture.count("FROM .*CUSTOMER"));
+		assertEquals(0, capture.count("ORDER BY"));
+	}
+
+	public void testMismatchReporting() throws Exception {
+		SqlCapture capture = new SqlCapture();
+		String dataSet = "<dataset><customer><id>1</id><name>John Doe</name></customer><customer><id>2</id><name>Jane</name></customer><customer><id>3</id><name>Extra</name></customer></dataset>";
+		try {
+			assertDB(capture, dataSet, 10);
+			fail("Mismatch not reported.");
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("row with key [2], column name expected <Jane> but was <Jane Doe>"));
+			assertTrue(e.getMessage(), e.getMessage().contains("missing row with key [3]"));
+		}
+		// hash mismatch falls back to rows comparison ordered by primary key
+		assertEquals(1, capture.count("ORDER BY"));
+
+		try {
+			assertDB(new SqlCapture(), dataSet, 1);
+			fail("Mismatch not reported.");
+		} catch (AssertionFailedError e) {
+			assertFalse(e.getMessage(), e.getMessage().contains("missing row"));
+		}
+	}
+
+	public void testUnexpectedRow() throws Exception {
+		try {
+			database.assertMatches(new ByteArrayInputStream("<dataset><customer><id>1</id><name>John Doe</name></customer></dataset>".getBytes("UTF-8")));
+			fail("Unexpected row not reported.");
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("unexpected row with key [2]"));
+		}
+	}
+
+	public void testEmptyStringIsNull() throws Exception {
+		execute("UPDATE customer SET name='' WHERE id=1");
+		execute("UPDATE customer SET name=NULL WHERE id=2");
+		database.assertMatches(new ByteArrayInputStream("<dataset><customer><id>1</id><name></name></customer><customer><id>2</id><name /></customer></dataset>".getBytes("UTF-8")));
+	}
+
+	public void testMaxDifferences() throws Exception {
+		try {
+			database.assertMatches(new ByteArrayInputStream("<dataset />".getBytes("UTF-8")), 0);
+			fail("Not positive maximum differences accepted.");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private void assertDB(SqlCapture capture, String dataSet, int maxDifferences) throws Exception {
+		AssertDB work = new AssertDB(new StreamingDatabaseDescriptor(new ByteArrayInputStream(dataSet.getBytes("UTF-8"))).getRows(), maxDifferences);
+		work.setDriver(driver);
+		work.setListener(new DatabaseListener() {
+		});
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			work.execute(capture.wrap(connection));
+		}
+	}
+
+	private void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			connection.createStatement().executeUpdate(sql);
+		}
+	}
+}
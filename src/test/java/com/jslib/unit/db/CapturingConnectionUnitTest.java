@@ -0,0 +1,155 @@
+package com.jslib.unit.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CapturingConnectionUnitTest extends TestCase {
+	private SqlCapture capture;
+	private Connection connection;
+
+	@Override
+	protected void setUp() throws Exception {
+		capture = new SqlCapture();
+		connection = capture.wrap(stub(Connection.class));
+	}
+
+	public void testPreparedStatement() throws Exception {
+		PreparedStatement statement = connection.prepareStatement("SELECT * FROM customer WHERE id=?");
+		statement.setInt(1, 1);
+		ResultSet rs = statement.executeQuery();
+		while (rs.next()) {
+		}
+		assertSame(statement, rs.getStatement());
+		assertSame(connection, statement.getConnection());
+
+		List<SqlCapture.Entry> entries = capture.getEntries();
+		assertEquals(1, entries.size());
+		assertEquals("SELECT * FROM customer WHERE id=?", entries.get(0).getSQL());
+		assertEquals(1, entries.get(0).getBindCount());
+		assertEquals(2, entries.get(0).getRows());
+	}
+
+	public void testPreparedBatch() throws Exception {
+		PreparedStatement statement = connection.prepareStatement("UPDATE product SET price=? WHERE id=?");
+		for (int i = 0; i < 2; ++i) {
+			statement.setDouble(1, 1.0);
+			statement.setInt(2, i);
+			statement.addBatch();
+		}
+		statement.executeBatch();
+
+		List<SqlCapture.Entry> entries = capture.getEntries();
+		assertEquals(1, entries.size());
+		assertEquals(4, entries.get(0).getBindCount());
+		assertEquals(2, entries.get(0).getBatchSize());
+		assertEquals(3, entries.get(0).getRows());
+	}
+
+	public void testStatementBatch() throws Exception {
+		Statement statement = connection.createStatement();
+		statement.addBatch("DELETE FROM order_item");
+		statement.addBatch("DELETE FROM customer");
+		statement.executeBatch();
+
+		List<SqlCapture.Entry> entries = capture.getEntries();
+		assertEquals(2, entries.size());
+		assertEquals("DELETE FROM order_item", entries.get(0).getSQL());
+		assertEquals(1, entries.get(0).getRows());
+		assertEquals("DELETE FROM customer", entries.get(1).getSQL());
+		assertEquals(2, entries.get(1).getRows());
+		assertEquals(2, entries.get(1).getBatchSize());
+
+		// batch is reset after execution
+		statement.executeUpdate("DELETE FROM product");
+		assertEquals(3, capture.getCount());
+		assertEquals("DELETE FROM product", capture.getEntries().get(2).getSQL());
+		assertEquals(0, capture.getEntries().get(2).getBatchSize());
+	}
+
+	public void testGeneratedKeys() throws Exception {
+		Statement statement = connection.createStatement();
+		assertEquals(3, statement.executeUpdate("INSERT INTO customer(name) VALUES('John Doe')", Statement.RETURN_GENERATED_KEYS));
+		ResultSet rs = statement.getGeneratedKeys();
+		while (rs.next()) {
+		}
+		assertSame(statement, rs.getStatement());
+
+		assertEquals(1, capture.getCount());
+		assertEquals(3, capture.getEntries().get(0).getRows());
+	}
+
+	public void testProxyIdentity() throws Exception {
+		// stub wrapped objects are not equal to themselves
+		assertTrue(connection.equals(connection));
+		assertFalse(connection.equals(capture.wrap(stub(Connection.class))));
+		assertEquals(System.identityHashCode(connection), connection.hashCode());
+
+		Statement statement = connection.createStatement();
+		assertTrue(statement.equals(statement));
+		assertFalse(statement.equals(connection.createStatement()));
+		assertEquals(System.identityHashCode(statement), statement.hashCode());
+
+		ResultSet rs = statement.executeQuery("SELECT * FROM customer");
+		assertTrue(rs.equals(rs));
+		assertEquals(System.identityHashCode(rs), rs.hashCode());
+
+		Set<Object> proxies = new HashSet<>();
+		proxies.add(connection);
+		proxies.add(statement);
+		assertTrue(proxies.contains(connection));
+		assertTrue(proxies.contains(statement));
+		assertEquals(1, capture.getCount());
+	}
+
+	/**
+	 * Stub JDBC object: statements return result sets with two rows, updates report 3 rows and batches report 1 row per
+	 * command, in command order.
+	 */
+	private static <T> T stub(final Class<T> interfaceClass) {
+		return interfaceClass.cast(Proxy.newProxyInstance(CapturingConnectionUnitTest.class.getClassLoader(), new Class<?>[] { interfaceClass }, new InvocationHandler() {
+			private int rows = 2;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				switch (method.getName()) {
+				case "createStatement":
+					return stub(Statement.class);
+				case "prepareStatement":
+					return stub(PreparedStatement.class);
+				case "executeQuery":
+				case "getGeneratedKeys":
+				case "getResultSet":
+					return stub(ResultSet.class);
+				case "executeUpdate":
+					return 3;
+				case "executeBatch":
+					return new int[] { 1, 2 };
+				case "next":
+					return rows-- > 0;
+				case "getStatement":
+					return proxy;
+				case "toString":
+					return "Stub " + interfaceClass.getSimpleName();
+				}
+				Class<?> type = method.getReturnType();
+				if (type == boolean.class) {
+					return false;
+				}
+				if (type == int.class) {
+					return 0;
+				}
+				return null;
+			}
+		}));
+	}
+}
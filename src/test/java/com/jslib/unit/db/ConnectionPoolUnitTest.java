@@ -0,0 +1,124 @@
+package com.jslib.unit.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+import junit.framework.TestCase;
+
+public class ConnectionPoolUnitTest extends TestCase {
+	private Driver driver;
+	private ConnectionPool pool;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("pool");
+		driver.setInitScript("db/schema.sql");
+		new Database(driver).clear();
+		pool = ConnectionPool.getInstance(driver);
+		pool.close();
+	}
+
+	public void testReuse() throws Exception {
+		long acquired = pool.getAcquireCount();
+		long reused = pool.getReuseCount();
+		long created = pool.getCreateCount();
+
+		Connection connection = pool.acquire();
+		pool.release(connection);
+		assertEquals(1, pool.getIdleCount());
+		assertSame(connection, pool.acquire());
+		pool.release(connection);
+
+		assertEquals(acquired + 2, pool.getAcquireCount());
+		assertEquals(reused + 1, pool.getReuseCount());
+		assertEquals(created + 1, pool.getCreateCount());
+		assertSame(pool, ConnectionPool.getInstance(new H2Driver("pool")));
+	}
+
+	public void testSessionPooling() throws Exception {
+		Database database = new Database(driver);
+		database.setConnectionPooling(true);
+		assertSame(pool, database.getConnectionPool());
+		long created = pool.getCreateCount();
+		database.load("db/data-set.xml");
+		database.clear();
+		// works run one after the other and share the same physical connection
+		assertEquals(created + 1, pool.getCreateCount());
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	public void testEvictInvalid() throws Exception {
+		long evicted = pool.getEvictCount();
+		long created = pool.getCreateCount();
+		Connection invalid = stub(false, false);
+		pool.release(invalid);
+
+		Connection connection = pool.acquire();
+		assertNotSame(invalid, connection);
+		assertEquals(evicted + 1, pool.getEvictCount());
+		assertEquals(created + 1, pool.getCreateCount());
+		pool.release(connection);
+
+		connection = pool.acquire();
+		connection.close();
+		pool.release(connection);
+		assertEquals(evicted + 2, pool.getEvictCount());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	public void testLegacyValidation() throws Exception {
+		Connection legacy = stub(true, false);
+		pool.release(legacy);
+		assertSame(legacy, pool.acquire());
+
+		Connection closed = stub(true, true);
+		// closed connections are not pooled on release
+		pool.release(closed);
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	public void testReleaseInTransaction() throws Exception {
+		Connection connection = pool.acquire();
+		connection.setAutoCommit(false);
+		connection.createStatement().executeUpdate("INSERT INTO customer(id, name) VALUES(99, 'Pending')");
+		pool.release(connection);
+
+		connection = pool.acquire();
+		try {
+			assertTrue(connection.getAutoCommit());
+			ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM customer WHERE id=99");
+			assertTrue(rs.next());
+			assertEquals(0, rs.getInt(1));
+		} finally {
+			pool.release(connection);
+		}
+	}
+
+	/** Stub connection with auto-commit enabled; legacy stub throws AbstractMethodError on validation, as JDBC 3 drivers. */
+	private static Connection stub(final boolean legacy, final boolean closed) {
+		return (Connection) Proxy.newProxyInstance(ConnectionPoolUnitTest.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				switch (method.getName()) {
+				case "isValid":
+					if (legacy) {
+						throw new AbstractMethodError();
+					}
+					return false;
+				case "isClosed":
+					return closed;
+				case "getAutoCommit":
+					return true;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				}
+				return null;
+			}
+		});
+	}
+}
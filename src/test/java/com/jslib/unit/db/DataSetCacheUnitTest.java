@@ -0,0 +1,119 @@
+package com.jslib.unit.db;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class DataSetCacheUnitTest extends TestCase {
+	private DataSetCache cache;
+	/** Directory on test class path where generated data sets are stored. */
+	private File directory;
+
+	@Override
+	protected void setUp() throws Exception {
+		cache = new DataSetCache();
+		directory = new File(new File(getClass().getResource("/db/data-set.xml").toURI()).getParentFile(), "cache");
+		directory.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	public void testHitsAndMisses() throws Exception {
+		List<RowDescriptor> rows = cache.getRows("db/data-set.xml");
+		assertEquals(9, rows.size());
+		assertEquals(0, cache.getHitsCount());
+		assertEquals(1, cache.getMissesCount());
+
+		// leading path separator does not change resource identity
+		assertSame(rows, cache.getRows("db/data-set.xml"));
+		assertSame(rows, cache.getRows("/db/data-set.xml"));
+		assertEquals(2, cache.getHitsCount());
+		assertEquals(1, cache.getMissesCount());
+		assertEquals(1, cache.size());
+
+		try {
+			rows.clear();
+			fail("Cached rows should not be modifiable.");
+		} catch (UnsupportedOperationException expected) {
+		}
+	}
+
+	public void testEviction() throws Exception {
+		for (int i = 0; i < 32; ++i) {
+			cache.getRows(dataSet("data-set-" + i, i));
+		}
+		assertEquals(32, cache.size());
+		assertEquals(32, cache.getMissesCount());
+
+		// data set 0 becomes most recently used so data set 1 is evicted
+		cache.getRows(resource("data-set-0"));
+		cache.getRows(dataSet("data-set-32", 32));
+		assertEquals(32, cache.size());
+		assertEquals(1, cache.getHitsCount());
+		assertEquals(33, cache.getMissesCount());
+
+		cache.getRows(resource("data-set-0"));
+		assertEquals(2, cache.getHitsCount());
+		cache.getRows(resource("data-set-1"));
+		assertEquals(34, cache.getMissesCount());
+	}
+
+	public void testMaxSize() throws Exception {
+		for (int i = 0; i < 3; ++i) {
+			cache.getRows(dataSet("data-set-" + i, i));
+		}
+		cache.setMaxSize(1);
+		assertEquals(1, cache.size());
+		cache.getRows(resource("data-set-2"));
+		assertEquals(1, cache.getHitsCount());
+
+		try {
+			cache.setMaxSize(0);
+			fail("Not positive cache size accepted.");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testContentChange() throws Exception {
+		List<RowDescriptor> rows = cache.getRows(dataSet("data-set", 1));
+		assertEquals(1, rows.size());
+
+		// resource with the same name but changed content is parsed again
+		rows = cache.getRows(dataSet("data-set", 2));
+		assertEquals(2, rows.size());
+		assertEquals(0, cache.getHitsCount());
+		assertEquals(2, cache.getMissesCount());
+
+		assertSame(rows, cache.getRows(resource("data-set")));
+		assertEquals(1, cache.getHitsCount());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	/** Write data set with given number of customer rows and return its resource name. */
+	private String dataSet(String name, int rowsCount) throws Exception {
+		StringBuilder dataSet = new StringBuilder("<dataset>");
+		for (int i = 0; i < rowsCount; ++i) {
+			dataSet.append(String.format("<customer><id>%d</id><name>Customer %d</name></customer>", i, i));
+		}
+		dataSet.append("</dataset>");
+		try (OutputStream stream = new FileOutputStream(new File(directory, name + ".xml"))) {
+			stream.write(dataSet.toString().getBytes("UTF-8"));
+		}
+		return resource(name);
+	}
+
+	private static String resource(String name) {
+		return "db/cache/" + name + ".xml";
+	}
+}
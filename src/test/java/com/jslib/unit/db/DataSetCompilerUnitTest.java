@@ -0,0 +1,125 @@
+package com.jslib.unit.db;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+public class DataSetCompilerUnitTest extends TestCase {
+	private static final String DATA_SET = "" + //
+			"<dataset>" + //
+			"	<customer><id>1</id><name>Jöhn Doe</name><code>007</code></customer>" + //
+			"	<customer><id>-2</id><name></name><code>-0</code></customer>" + //
+			"	<picture><id>1</id><data file=\"picture.png\" /><thumbnail resource=\"thumbnail.png\" /></picture>" + //
+			"</dataset>";
+
+	private File dir;
+	private File source;
+	private File target;
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("compiler", "");
+		dir.delete();
+		dir.mkdirs();
+		source = new File(dir, "data-set.xml");
+		target = new File(dir, "data-set.dsb");
+		write(DATA_SET);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	public void testRoundTrip() throws Exception {
+		assertTrue(DataSetCompiler.compile(source, target));
+
+		CompiledDatabaseDescriptor descriptor = new CompiledDatabaseDescriptor(target);
+		try {
+			Iterator<RowDescriptor> rows = descriptor.getRows();
+			RowDescriptor row = rows.next();
+			assertEquals("customer", row.getTableName());
+			Iterator<ColumnDescriptor> columns = row.getColumns();
+			assertColumn("id", "1", columns.next());
+			assertColumn("name", "Jöhn Doe", columns.next());
+			assertColumn("code", "007", columns.next());
+
+			columns = rows.next().getColumns();
+			assertColumn("id", "-2", columns.next());
+			assertColumn("name", "", columns.next());
+			assertColumn("code", "-0", columns.next());
+
+			row = rows.next();
+			assertEquals("picture", row.getTableName());
+			columns = row.getColumns();
+			columns.next();
+			ColumnDescriptor column = columns.next();
+			assertTrue(column.getExternal().isFile());
+			assertEquals("picture.png", column.getExternal().getPath());
+			column = columns.next();
+			assertFalse(column.getExternal().isFile());
+			assertEquals("thumbnail.png", column.getExternal().getPath());
+
+			assertFalse(rows.hasNext());
+		} finally {
+			descriptor.close();
+		}
+	}
+
+	public void testUpToDate() throws Exception {
+		assertTrue(DataSetCompiler.compile(source, target));
+		assertFalse(DataSetCompiler.compile(source, target));
+	}
+
+	public void testContentChangeWithSameLengthAndTime() throws Exception {
+		assertTrue(DataSetCompiler.compile(source, target));
+		long modified = source.lastModified();
+		write(DATA_SET.replace("Doe", "Roe"));
+		source.setLastModified(modified);
+
+		assertTrue(DataSetCompiler.compile(source, target));
+		CompiledDatabaseDescriptor descriptor = new CompiledDatabaseDescriptor(target);
+		try {
+			Iterator<ColumnDescriptor> columns = descriptor.getRows().next().getColumns();
+			columns.next();
+			assertEquals("Jöhn Roe", columns.next().getValue());
+		} finally {
+			descriptor.close();
+		}
+	}
+
+	public void testClose() throws Exception {
+		DataSetCompiler.compile(source, target);
+		CompiledDatabaseDescriptor descriptor = new CompiledDatabaseDescriptor(target);
+		Iterator<RowDescriptor> rows = descriptor.getRows();
+		RowDescriptor row = rows.next();
+		descriptor.close();
+
+		assertEquals("customer", row.getTableName());
+		try {
+			rows.hasNext();
+			fail("Closed descriptor iteration not rejected.");
+		} catch (IllegalStateException expected) {
+		}
+		assertTrue(target.delete());
+	}
+
+	private static void assertColumn(String name, String value, ColumnDescriptor column) {
+		assertEquals(name, column.getName());
+		assertEquals(value, column.getValue());
+	}
+
+	private void write(String content) throws IOException {
+		try (OutputStream stream = new FileOutputStream(source)) {
+			stream.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,583 @@
+package com.jslib.unit.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.jslib.unit.JsUnitException;
+
+import junit.framework.TestCase;
+
+public class DatabaseUnitTest extends TestCase {
+	private Driver driver;
+	private Database database;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("database");
+		driver.setInitScript("db/schema.sql");
+		database = new Database(driver);
+		database.clear();
+	}
+
+	public void testLoad() throws Exception {
+		database.load("db/data-set.xml");
+		assertEquals(2, count("customer"));
+		assertEquals(2, count("product"));
+		assertEquals(2, count("\"ORDER\""));
+		assertEquals(3, count("order_item"));
+		assertEquals(3, database.getLoadReport().getRowsCount("order_item"));
+		assertEquals("Jane Doe", query("SELECT name FROM customer WHERE id=2"));
+		assertEquals("12.50", query("SELECT price FROM product WHERE id=1"));
+	}
+
+	public void testLoadReplacesContent() throws Exception {
+		database.load("db/data-set.xml");
+		execute("INSERT INTO customer(id, name) VALUES(3, 'Extra')");
+		database.load("db/data-set.xml");
+		assertEquals(2, count("customer"));
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testLoadTransactionalRollback() throws Exception {
+		database.load("db/data-set.xml");
+		database.setTransactional(true);
+		try {
+			database.load(new ByteArrayInputStream("<dataset><order_item><id>1</id><order_id>9</order_id></order_item></dataset>".getBytes("UTF-8")));
+			fail("Foreign key violation not detected.");
+		} catch (SQLException expected) {
+		}
+		// failed load is rolled back, clear included
+		assertEquals(2, count("customer"));
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testLoadBatchesAndBulks() throws Exception {
+		database.setBatchSize(2);
+		database.load("db/data-set.xml");
+		assertEquals(3, count("order_item"));
+
+		database.setBulkSize(2);
+		database.load("db/data-set.xml");
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testLoadPlanning() throws Exception {
+		// rows interleaved, not in foreign keys order, with table and columns names in different case and order
+		String dataSet = "<dataset>" + //
+				"<order_item><id>1</id><order_id>1</order_id><product_id>1</product_id><qty>1</qty></order_item>" + //
+				"<ORDER><id>1</id><customer_id>1</customer_id><created>2020-01-02 03:04:05</created></ORDER>" + //
+				"<customer><id>1</id><name>John Doe</name></customer>" + //
+				"<ORDER_ITEM><QTY>3</QTY><PRODUCT_ID>2</PRODUCT_ID><ORDER_ID>1</ORDER_ID><ID>2</ID></ORDER_ITEM>" + //
+				"<product><id>1</id><name>Book</name><price>12.50</price></product>" + //
+				"<CUSTOMER><NAME>Jane Doe</NAME><ID>2</ID></CUSTOMER>" + //
+				"<order_item><qty>10</qty><id>3</id><order_id>1</order_id><product_id>2</product_id></order_item>" + //
+				"<product><price>1.20</price><id>2</id><name>Pen</name></product>" + //
+				"</dataset>";
+		database.setBatchSize(10);
+		database.setLoadPlanning(true);
+		database.load(new ByteArrayInputStream(dataSet.getBytes("UTF-8")));
+		assertEquals(2, count("customer"));
+		assertEquals(2, count("product"));
+		assertEquals(1, count("\"ORDER\""));
+		assertEquals(3, count("order_item"));
+		assertEquals(0, count("customer WHERE id=2 AND name<>'Jane Doe'"));
+		assertEquals(0, count("order_item WHERE id=3 AND qty<>10"));
+
+		// one batch per table, reported with first row table name
+		LoadReport report = database.getLoadReport();
+		assertEquals(1, report.getBatchesCount("customer"));
+		assertEquals(2, report.getRowsCount("customer"));
+		assertEquals(1, report.getBatchesCount("order_item"));
+		assertEquals(3, report.getRowsCount("order_item"));
+		assertEquals(0, report.getRowsCount("ORDER_ITEM"));
+
+		database.setLoadPlanning(false);
+		LoadPlan plan = database.plan(new ByteArrayInputStream(dataSet.getBytes("UTF-8")));
+		assertEquals(4, plan.getSteps().size());
+		assertEquals("CUSTOMER", plan.getSteps().get(0).getTableName());
+		assertEquals(8, plan.getRowsCount());
+		database.load(plan);
+		assertEquals(3, count("order_item"));
+		assertEquals(1, database.getLoadReport().getBatchesCount("order_item"));
+	}
+
+	public void testParallelLoad() throws Exception {
+		database.setParallelism(4);
+		database.load("db/data-set.xml");
+		assertEquals(2, count("customer"));
+		assertEquals(2, count("product"));
+		assertEquals(2, count("\"ORDER\""));
+		assertEquals(3, count("order_item"));
+		assertEquals(3, database.getLoadReport().getRowsCount("order_item"));
+
+		database.setBulkSize(2);
+		database.load("db/data-set.xml");
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testParallelLoadFailure() throws Exception {
+		database.setParallelism(4);
+		try {
+			database.load(new ByteArrayInputStream("<dataset><customer><id>1</id></customer><product><id>1</id><price>abc</price></product></dataset>".getBytes("UTF-8")));
+			fail("Invalid value not rejected.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("|product.price|"));
+		}
+
+		try {
+			database.load(new ByteArrayInputStream("<dataset><customer><id>1</id></customer><order_item><id>1</id><order_id>9</order_id></order_item></dataset>".getBytes("UTF-8")));
+			fail("Foreign key violation not detected.");
+		} catch (SQLException expected) {
+		}
+		// parent level is loaded before failing table
+		assertEquals(1, count("customer"));
+		assertEquals(0, count("order_item"));
+	}
+
+	public void testParallelLoadInsideTransaction() throws Exception {
+		database.setParallelism(2);
+		database.setTransactional(true);
+		try {
+			database.load("db/data-set.xml");
+			fail("Parallel load accepted inside transaction.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	public void testLoadAsync() throws Exception {
+		database.loadAsync(getClass().getResourceAsStream("/db/data-set.xml")).get();
+		assertEquals(2, count("customer"));
+		assertEquals(3, count("order_item"));
+
+		database.clearAsync().get();
+		assertEquals(0, count("customer"));
+	}
+
+	public void testLoadAsyncFailure() throws Exception {
+		CompletableFuture<Void> future = database.loadAsync(new ByteArrayInputStream("<dataset><order_item><id>1</id><order_id>9</order_id></order_item></dataset>".getBytes("UTF-8")));
+		try {
+			future.join();
+			fail("Foreign key violation not detected.");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+
+		// next operation runs after failed one
+		database.loadAsync(getClass().getResourceAsStream("/db/data-set.xml")).get();
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testAsyncInsideTransaction() throws Exception {
+		database.begin();
+		try {
+			database.loadAsync(getClass().getResourceAsStream("/db/data-set.xml"));
+			fail("Asynchronous load accepted inside transaction.");
+		} catch (IllegalStateException expected) {
+		} finally {
+			database.rollback();
+		}
+	}
+
+	public void testPrefetch() throws Exception {
+		Prefetch prefetch = database.prefetch(getClass().getResourceAsStream("/db/data-set.xml"));
+		prefetch.join();
+		assertTrue(prefetch.isDone());
+		assertEquals(3, count("order_item"));
+		try {
+			prefetch.join();
+			fail("Prefetched data set loaded twice.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	public void testPrefetchInsideTransaction() throws Exception {
+		database.begin();
+		try {
+			// meta data is resolved on a detached connection, concurrently with transaction
+			Prefetch prefetch = database.prefetch(getClass().getResourceAsStream("/db/data-set.xml"));
+			prefetch.join();
+			assertEquals(3, query("SELECT COUNT(*) FROM order_item", database.getConnection()));
+		} finally {
+			database.rollback();
+		}
+		assertEquals(0, count("order_item"));
+	}
+
+	public void testPrefetchFailure() throws Exception {
+		Prefetch prefetch = database.prefetch(new ByteArrayInputStream("<dataset><customer><id>1".getBytes("UTF-8")));
+		try {
+			prefetch.join();
+			fail("Malformed data set not rejected.");
+		} catch (JsUnitException expected) {
+		}
+
+		prefetch = database.prefetch(new ByteArrayInputStream("<dataset><order_item><id>1</id><order_id>9</order_id></order_item></dataset>".getBytes("UTF-8")));
+		try {
+			prefetch.join();
+			fail("Foreign key violation not detected.");
+		} catch (SQLException expected) {
+		}
+	}
+
+	public void testIntegerColumnDecimalValue() throws Exception {
+		database.load(new ByteArrayInputStream("<dataset><customer><id>1.0</id><name>John Doe</name></customer></dataset>".getBytes("UTF-8")));
+		assertEquals("1", query("SELECT id FROM customer"));
+	}
+
+	public void testInvalidValue() throws Exception {
+		try {
+			database.load(new ByteArrayInputStream("<dataset><customer><id>1.5</id></customer></dataset>".getBytes("UTF-8")));
+			fail("Invalid integer value not rejected.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("|customer.id|"));
+			assertTrue(e.getMessage(), e.getMessage().contains("|1.5|"));
+		}
+	}
+
+	public void testBooleanValue() throws Exception {
+		database.load(new ByteArrayInputStream(("<dataset>" + //
+				"<account><id>1</id><active>1</active></account>" + //
+				"<account><id>2</id><active>TRUE</active></account>" + //
+				"<account><id>3</id><active>0</active></account>" + //
+				"<account><id>4</id><active>False</active></account>" + //
+				"</dataset>").getBytes("UTF-8")));
+		assertEquals(2, count("account WHERE active"));
+		assertEquals(2, count("account WHERE NOT active"));
+
+		try {
+			database.load(new ByteArrayInputStream("<dataset><account><id>1</id><active>yes</active></account></dataset>".getBytes("UTF-8")));
+			fail("Invalid boolean value not rejected.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("|account.active|"));
+			assertTrue(e.getMessage(), e.getMessage().contains("|yes|"));
+			assertTrue(e.getMessage(), e.getMessage().contains("|BOOLEAN|"));
+		}
+	}
+
+	public void testLargeExternalValue() throws Exception {
+		File file = File.createTempFile("document", ".bin");
+		try {
+			byte[] buffer = new byte[1024 * 1024];
+			try (OutputStream stream = new FileOutputStream(file)) {
+				for (int i = 0; i < 20; ++i) {
+					stream.write(buffer);
+				}
+			}
+			String dataSet = String.format("<dataset><document><id>1</id><content file='%s' /></document><document><id>2</id><content file='%s' /></document></dataset>", file.getPath(), file.getPath());
+
+			database.setBatchSize(2);
+			database.load(new ByteArrayInputStream(dataSet.getBytes("UTF-8")));
+			assertEquals("20971520", query("SELECT LENGTH(content) FROM document WHERE id=2"));
+
+			database.setBulkSize(2);
+			database.load(new ByteArrayInputStream(dataSet.getBytes("UTF-8")));
+			assertEquals("20971520", query("SELECT LENGTH(content) FROM document WHERE id=1"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testExportBinaryRoundTrip() throws Exception {
+		byte[] content = new byte[256];
+		for (int i = 0; i < content.length; ++i) {
+			content[i] = (byte) i;
+		}
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			PreparedStatement statement = connection.prepareStatement("INSERT INTO document(id, content) VALUES(?, ?)");
+			statement.setInt(1, 1);
+			statement.setBytes(2, content);
+			statement.execute();
+			statement.setInt(1, 2);
+			statement.setNull(2, Types.BLOB);
+			statement.execute();
+		}
+
+		try {
+			database.export(Collections.singletonList("document"), new ByteArrayOutputStream());
+			fail("Binary value exported inline.");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("|DOCUMENT.CONTENT|"));
+		}
+
+		File file = File.createTempFile("data-set", ".xml");
+		File filesDir = new File(file.getPath() + ".files");
+		try {
+			database.export(Collections.singletonList("document"), file);
+			database.clear();
+			assertEquals(0, count("document"));
+
+			try (InputStream stream = new FileInputStream(file)) {
+				database.load(stream);
+			}
+			assertEquals(2, count("document"));
+			assertNull(query("SELECT content FROM document WHERE id=2"));
+			try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+				ResultSet rs = connection.createStatement().executeQuery("SELECT content FROM document WHERE id=1");
+				assertTrue(rs.next());
+				assertTrue(Arrays.equals(content, rs.getBytes(1)));
+			}
+		} finally {
+			for (File binaryFile : filesDir.listFiles()) {
+				binaryFile.delete();
+			}
+			filesDir.delete();
+			file.delete();
+		}
+	}
+
+	public void testExportRejectsInvalidXmlCharacters() throws Exception {
+		execute("INSERT INTO customer(id, name) VALUES(1, 'John' || CHAR(1))");
+		try {
+			database.export(Collections.singletonList("customer"), new ByteArrayOutputStream());
+			fail("Invalid XML character not rejected.");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("|CUSTOMER.NAME|"));
+		}
+	}
+
+	public void testDeferredConstraints() throws Exception {
+		database.setDeferredConstraints(true);
+		database.load(new ByteArrayInputStream("<dataset><order_item><id>1</id><order_id>1</order_id></order_item><order><id>1</id><customer_id>1</customer_id></order><customer><id>1</id></customer></dataset>".getBytes("UTF-8")));
+		assertEquals(1, count("order_item"));
+		assertEquals(1, count("\"ORDER\""));
+	}
+
+	public void testDeferredConstraintsViolation() throws Exception {
+		database.setDeferredConstraints(true);
+		try {
+			database.load(new ByteArrayInputStream("<dataset><customer><id>1</id></customer><order_item><id>1</id><order_id>9</order_id></order_item></dataset>".getBytes("UTF-8")));
+			fail("Foreign key violation not detected.");
+		} catch (SQLIntegrityConstraintViolationException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("ORDER_ITEM: 1 rows"));
+		}
+		// violating rows are rolled back, not committed, and foreign keys checking is restored
+		assertEquals(0, count("order_item"));
+		assertEquals(0, count("customer"));
+		try {
+			execute("INSERT INTO order_item(id, order_id) VALUES(1, 9)");
+			fail("Foreign keys checking not restored.");
+		} catch (SQLException expected) {
+		}
+	}
+
+	public void testDeferredConstraintsInsideTransaction() throws Exception {
+		database.setDeferredConstraints(true);
+		database.setTransactional(true);
+		try {
+			database.load("db/data-set.xml");
+			fail("Deferred load accepted inside transaction with driver committing on foreign keys disable.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	public void testDeferredConstraintsGenericDriver() throws Exception {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("connection.url", driver.getUrl());
+		DeferredLoad work = new DeferredLoad(Collections.<RowDescriptor> emptyIterator(), 1, 0, new LoadReport());
+		work.setDriver(new Driver(properties));
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			work.execute(connection);
+			fail("Deferred load accepted by generic driver.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	public void testSqlCapture() throws Exception {
+		SqlCapture capture = new SqlCapture();
+		database.setSqlCapture(capture);
+		database.begin();
+		try {
+			Connection connection = database.getConnection();
+			assertSame(connection, database.getConnection());
+			connection.createStatement().executeQuery("SELECT * FROM customer").close();
+			assertEquals(1, capture.count("FROM customer"));
+		} finally {
+			database.rollback();
+		}
+	}
+
+	public void testClear() throws Exception {
+		database.load("db/data-set.xml");
+		database.clear();
+		assertEquals(0, count("customer"));
+		assertEquals(0, count("product"));
+		assertEquals(0, count("\"ORDER\""));
+		assertEquals(0, count("order_item"));
+	}
+
+	public void testClearStrategies() throws Exception {
+		for (ClearStrategy strategy : ClearStrategy.values()) {
+			database.load("db/data-set.xml");
+			database.setClearStrategy(strategy);
+			database.clear();
+			assertEquals(strategy.toString(), 0, count("order_item"));
+			assertEquals(strategy.toString(), 0, count("customer"));
+		}
+	}
+
+	public void testTruncateInsideTransaction() throws Exception {
+		database.load("db/data-set.xml");
+		database.setClearStrategy(ClearStrategy.TRUNCATE);
+		database.setTransactional(true);
+		try {
+			database.clear();
+			fail("Truncate accepted inside transaction.");
+		} catch (IllegalStateException expected) {
+		}
+		try {
+			database.load("db/data-set.xml");
+			fail("Truncate accepted inside transaction.");
+		} catch (IllegalStateException expected) {
+		}
+
+		database.setTransactional(false);
+		database.begin();
+		try {
+			database.clear();
+			fail("Truncate accepted inside transaction.");
+		} catch (IllegalStateException expected) {
+		} finally {
+			database.rollback();
+		}
+		assertEquals(2, count("customer"));
+		assertEquals(3, count("order_item"));
+
+		// outside transaction truncate is allowed
+		database.clear();
+		assertEquals(0, count("customer"));
+	}
+
+	public void testLoadOnce() throws Exception {
+		database.loadOnce("db/data-set.xml");
+		execute("DELETE FROM order_item WHERE id=3");
+
+		// fixture already committed, not reloaded even from another database instance
+		new Database(driver).loadOnce("db/data-set.xml");
+		assertEquals(2, count("order_item"));
+
+		// clear forgets committed fixture
+		database.clear();
+		database.loadOnce("db/data-set.xml");
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testLoadOnceInsideTransaction() throws Exception {
+		database.begin();
+		try {
+			database.loadOnce("db/data-set.xml");
+			fail("Fixture load inside isolation transaction not rejected.");
+		} catch (IllegalStateException expected) {
+		} finally {
+			database.rollback();
+		}
+	}
+
+	public void testIsolationRollback() throws Exception {
+		database.loadOnce("db/data-set.xml");
+		database.begin();
+		Statement statement = database.getConnection().createStatement();
+		statement.executeUpdate("DELETE FROM order_item");
+		statement.close();
+		database.rollback();
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testThreadIsolation() throws Exception {
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; ++i) {
+			final int customers = i;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						Database worker = new Database(driver, Isolation.THREAD);
+						String table = "\"PUBLIC_" + Isolation.THREAD.getWorkerId() + "\".CUSTOMER";
+						for (int j = 0; j < 10; ++j) {
+							worker.load("db/data-set.xml");
+							assertEquals(2, count(table));
+
+							StringBuilder dataSet = new StringBuilder("<dataset>");
+							for (int k = 0; k < customers; ++k) {
+								dataSet.append(String.format("<customer><id>%d</id></customer>", k));
+							}
+							dataSet.append("</dataset>");
+							worker.load(new ByteArrayInputStream(dataSet.toString().getBytes("UTF-8")));
+							assertEquals(customers, count(table));
+						}
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (!failures.isEmpty()) {
+			throw new AssertionError(failures.get(0));
+		}
+		// shared schema is not touched by workers
+		assertEquals(0, count("customer"));
+	}
+
+	public void testHSQLDB() throws Exception {
+		driver = new HSQLDBDriver("database");
+		driver.setInitScript("db/schema.sql");
+		database = new Database(driver);
+		database.load("db/data-set.xml");
+		assertEquals(2, count("customer"));
+		assertEquals(3, count("order_item"));
+		database.clear();
+		assertEquals(0, count("customer"));
+	}
+
+	private int count(String tableName) throws SQLException {
+		return Integer.parseInt(query("SELECT COUNT(*) FROM " + tableName));
+	}
+
+	private String query(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery(sql);
+			assertTrue(rs.next());
+			return rs.getString(1);
+		}
+	}
+
+	private static int query(String sql, Connection connection) throws SQLException {
+		ResultSet rs = connection.createStatement().executeQuery(sql);
+		assertTrue(rs.next());
+		return rs.getInt(1);
+	}
+
+	private void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			connection.createStatement().executeUpdate(sql);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.jslib.unit.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class DriverUnitTest extends TestCase {
+	public void testMicrosoftSQLWorker() {
+		Driver driver = new MicrosoftSQLDriver("localhost", "test", "sa", "sa").forWorker("T1");
+		assertEquals("test_T1", driver.getCatalog());
+		assertEquals("DBO", driver.getSchema());
+		assertEquals("[test_T1].DBO.PERSON", driver.getQualifiedTableName("PERSON"));
+		assertTrue(driver.requiresInitialization());
+
+		List<String> sql = driver.getCreateSchemaSQL();
+		assertEquals("IF DB_ID('test_T1') IS NOT NULL DROP DATABASE [test_T1]", sql.get(0));
+		assertEquals("CREATE DATABASE [test_T1]", sql.get(1));
+	}
+
+	public void testMicrosoftSQLWorkerForeignKeys() {
+		MicrosoftSQLDriver driver = (MicrosoftSQLDriver) new MicrosoftSQLDriver("localhost", "test", "sa", "sa").forWorker("T1");
+		String sql = driver.getForeignKeysSQL();
+		assertTrue(sql, sql.contains("FROM [test_T1].sys.foreign_keys"));
+		assertTrue(sql, sql.contains("OBJECT_NAME(parent_object_id, DB_ID(?))"));
+		assertTrue(sql, sql.contains("OBJECT_SCHEMA_NAME(parent_object_id, DB_ID(?))"));
+	}
+
+	public void testOracleWorker() {
+		Driver template = new OracleDriver("localhost", "xe", "test", "test");
+		Driver driver = template.forWorker("F2");
+		assertEquals("TEST_F2", driver.getSchema());
+		assertEquals(template.getUrl(), driver.getUrl());
+		assertEquals("\"TEST_F2\".\"PERSON\"", driver.getQualifiedTableName("PERSON"));
+
+		List<String> sql = driver.getCreateSchemaSQL();
+		assertEquals(3, sql.size());
+		assertTrue(sql.get(0).contains("DROP USER \"TEST_F2\" CASCADE"));
+		assertTrue(sql.get(1).startsWith("CREATE USER \"TEST_F2\" IDENTIFIED BY "));
+		assertEquals("GRANT UNLIMITED TABLESPACE TO \"TEST_F2\"", sql.get(2));
+	}
+
+	public void testTruncateTransactional() {
+		assertFalse(new H2Driver("test").isTruncateTransactional());
+		assertTrue(new HSQLDBDriver("test").isTruncateTransactional());
+		assertFalse(new MySQLDriver("localhost", "test", "test", "test").isTruncateTransactional());
+		assertFalse(new OracleDriver("localhost", "xe", "test", "test").isTruncateTransactional());
+		assertTrue(new MicrosoftSQLDriver("localhost", "test", "sa", "sa").isTruncateTransactional());
+	}
+
+	public void testDisableForeignKeysFailure() throws Exception {
+		List<String> executed = new ArrayList<>();
+		Connection connection = connection(3, executed, "ENABLE CONSTRAINT \"FK_2\"");
+		try {
+			new OracleDriver("localhost", "xe", "test", "test").disableForeignKeys(connection);
+			fail("Disable failure not propagated.");
+		} catch (SQLException e) {
+			assertEquals("DISABLE CONSTRAINT \"FK_3\"", e.getMessage());
+			// constraints disabled before failure are enabled back, enable errors suppressed
+			assertEquals(1, e.getSuppressed().length);
+			assertEquals("ENABLE CONSTRAINT \"FK_2\"", e.getSuppressed()[0].getMessage());
+		}
+		assertEquals(5, executed.size());
+		assertTrue(executed.get(3), executed.get(3).endsWith("ENABLE CONSTRAINT \"FK_1\""));
+		assertTrue(executed.get(4), executed.get(4).endsWith("ENABLE CONSTRAINT \"FK_2\""));
+	}
+
+	public void testDisableForeignKeys() throws Exception {
+		List<String> executed = new ArrayList<>();
+		List<String> restore = new MicrosoftSQLDriver("localhost", "test", "sa", "sa").disableForeignKeys(connection(3, executed, null));
+		assertEquals(3, executed.size());
+		assertTrue(executed.get(0), executed.get(0).endsWith("NOCHECK CONSTRAINT [FK_1]"));
+		assertEquals(3, restore.size());
+		assertTrue(restore.get(2), restore.get(2).endsWith("WITH CHECK CHECK CONSTRAINT [FK_3]"));
+	}
+
+	/**
+	 * Stub connection with given number of enabled foreign keys, FK_1 to FK_n. Executed statements are recorded; third
+	 * disable statement and statements ending with given suffix fail with SQL exception having statement suffix as
+	 * message.
+	 */
+	private static Connection connection(final int foreignKeys, final List<String> executed, final String failure) {
+		return stub(Connection.class, new InvocationHandler() {
+			private int row;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				switch (method.getName()) {
+				case "prepareStatement":
+					return stub(PreparedStatement.class, this);
+				case "executeQuery":
+					return stub(ResultSet.class, this);
+				case "next":
+					return row++ < foreignKeys;
+				case "getString":
+					return (Integer) args[0] == 1 ? "PERSON" : "FK_" + row;
+				case "createStatement":
+					return stub(Statement.class, this);
+				case "execute":
+					String sql = (String) args[0];
+					executed.add(sql);
+					if (sql.endsWith("DISABLE CONSTRAINT \"FK_3\"") || (failure != null && sql.endsWith(failure))) {
+						throw new SQLException(sql.substring(sql.indexOf(' ', sql.indexOf("\"PERSON\"")) + 1));
+					}
+					return false;
+				}
+				return null;
+			}
+		});
+	}
+
+	private static <T> T stub(Class<T> interfaceClass, InvocationHandler handler) {
+		return interfaceClass.cast(Proxy.newProxyInstance(DriverUnitTest.class.getClassLoader(), new Class<?>[] { interfaceClass }, handler));
+	}
+}
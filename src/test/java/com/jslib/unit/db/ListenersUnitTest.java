@@ -0,0 +1,110 @@
+package com.jslib.unit.db;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ListenersUnitTest extends TestCase {
+	private Driver driver;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("listeners");
+		driver.setInitScript("db/schema.sql");
+		new Database(driver).clear();
+		TableGraph.invalidate(driver);
+	}
+
+	public void testMetaDataEvents() throws Exception {
+		Counter counter = new Counter();
+		SummaryListener summary = new SummaryListener();
+		Database database = new Database(driver);
+		database.addListener(counter);
+		database.addListener(summary);
+		database.load("db/data-set.xml");
+		// tables graph and column types of the four loaded tables
+		assertEquals(5, counter.metaData);
+		assertTrue(summary.toString(), summary.toString().contains("meta data: 5 queries"));
+		assertEquals(3, counter.rows);
+
+		// new session has no statements cache but meta data is served from tables graph cache
+		database = new Database(driver);
+		database.addListener(counter);
+		database.addListener(summary);
+		database.load("db/data-set.xml");
+		assertEquals(5, counter.metaData);
+		assertTrue(summary.toString(), summary.toString().contains("meta data: 5 queries"));
+		assertEquals(6, counter.rows);
+
+		database.removeListener(counter);
+		database.load("db/data-set.xml");
+		assertEquals(6, counter.rows);
+	}
+
+	public void testSummaryListener() {
+		SummaryListener summary = new SummaryListener();
+		summary.onConnectionAcquire(2000000);
+		summary.onTableClear("CUSTOMER", 1000000);
+		summary.onBatch("CUSTOMER", 10, 1000000);
+		summary.onBatch("CUSTOMER", 20, 1000000);
+		summary.onBatch("PRODUCT", 5, 5000000);
+
+		String report = summary.toString();
+		assertTrue(report, report.contains("connections: 1 acquired in 2.0 ms"));
+		String[] lines = report.split("\r\n");
+		// tables in descending order of total time
+		assertTrue(lines[3], lines[3].startsWith("PRODUCT"));
+		assertTrue(lines[4], lines[4].matches("CUSTOMER\\s+1.0\\s+30\\s+2\\s+20\\s+2.0\\s+15000"));
+
+		summary.printOnShutdown(System.out);
+		summary.printOnShutdown(null);
+		summary.reset();
+		assertFalse(summary.toString().contains("CUSTOMER"));
+	}
+
+	public void testCsvListener() throws Exception {
+		File file = File.createTempFile("events", ".csv");
+		file.delete();
+		try {
+			CsvListener listener = new CsvListener(file);
+			listener.onMetaData(null, 10);
+			listener.onBatch("CUSTOMER", 2, 20);
+			listener.close();
+			listener.onBatch("CUSTOMER", 2, 20);
+
+			// header is written only once, on new file
+			listener = new CsvListener(file);
+			listener.onTableClear("CUSTOMER", 30);
+			listener.close();
+
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			assertEquals(4, lines.size());
+			assertEquals("time,event,table,rows,nanos", lines.get(0));
+			assertTrue(lines.get(1), lines.get(1).endsWith(",metadata,,,10"));
+			assertTrue(lines.get(2), lines.get(2).endsWith(",batch,CUSTOMER,2,20"));
+			assertTrue(lines.get(3), lines.get(3).endsWith(",clear,CUSTOMER,,30"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static class Counter implements DatabaseListener {
+		int metaData;
+		int rows;
+
+		@Override
+		public synchronized void onMetaData(String tableName, long nanos) {
+			++metaData;
+		}
+
+		@Override
+		public synchronized void onBatch(String tableName, int rowsCount, long nanos) {
+			if (tableName.equalsIgnoreCase("order_item")) {
+				rows += rowsCount;
+			}
+		}
+	}
+}
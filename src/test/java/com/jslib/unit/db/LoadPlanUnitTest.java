@@ -0,0 +1,115 @@
+package com.jslib.unit.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class LoadPlanUnitTest extends TestCase {
+	private Driver driver;
+	private TableGraph graph;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("plan");
+		graph = new TableGraph();
+		graph.addTable("ORDER_ITEM");
+		graph.addTable("CUSTOMER");
+		graph.addTable("ORDER");
+		graph.addForeignKey("ORDER_ITEM", "ORDER");
+		graph.addForeignKey("ORDER", "CUSTOMER");
+		graph.sort();
+	}
+
+	public void testTablesOrder() {
+		List<RowDescriptor> rows = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			rows.add(row("order_item", "id", "order_id"));
+			rows.add(row("order", "id", "customer_id"));
+			rows.add(row("customer", "id", "name"));
+			rows.add(row("audit", "id"));
+		}
+
+		LoadPlan plan = new LoadPlan(driver, graph, rows.iterator(), 2, 0);
+		assertEquals(4, plan.getSteps().size());
+		assertEquals("CUSTOMER", plan.getSteps().get(0).getTableName());
+		assertEquals("ORDER", plan.getSteps().get(1).getTableName());
+		assertEquals("ORDER_ITEM", plan.getSteps().get(2).getTableName());
+		assertEquals("AUDIT", plan.getSteps().get(3).getTableName());
+		assertEquals(3, plan.getSteps().get(0).getRowsCount());
+		assertEquals(12, plan.getRowsCount());
+		assertEquals(8, plan.getRoundTrips());
+
+		Iterator<RowDescriptor> it = plan.getRows();
+		assertEquals("customer", it.next().getTableName());
+		assertEquals("customer", it.next().getTableName());
+		assertEquals("customer", it.next().getTableName());
+		assertEquals("order", it.next().getTableName());
+	}
+
+	public void testColumnsGroups() {
+		List<RowDescriptor> rows = new ArrayList<>();
+		rows.add(row("customer", "id", "name"));
+		rows.add(row("customer", "id"));
+		rows.add(row("customer", "name", "id"));
+
+		LoadPlan plan = new LoadPlan(driver, graph, rows.iterator(), 1, 0);
+		assertEquals(2, plan.getSteps().size());
+		assertEquals(Arrays.asList("ID", "NAME"), plan.getSteps().get(0).getColumnNames());
+		assertEquals(2, plan.getSteps().get(0).getRowsCount());
+		assertEquals(Arrays.asList("ID"), plan.getSteps().get(1).getColumnNames());
+		assertEquals(1, plan.getSteps().get(1).getRoundTrips());
+
+		// row with columns in different order is reordered to step columns order
+		Iterator<RowDescriptor> it = plan.getRows();
+		RowDescriptor first = it.next();
+		RowDescriptor second = it.next();
+		assertTrue(first.hasSameShape(second));
+		assertEquals("id", second.getColumns().next().getValue());
+	}
+
+	public void testNamesCase() {
+		List<RowDescriptor> rows = new ArrayList<>();
+		rows.add(row("customer", "id", "name"));
+		rows.add(row("CUSTOMER", "NAME", "ID"));
+		rows.add(row("Customer", "id", "name"));
+
+		LoadPlan plan = new LoadPlan(driver, graph, rows.iterator(), 10, 0);
+		assertEquals(1, plan.getSteps().size());
+		assertEquals(1, plan.getRoundTrips());
+
+		// rows are rebuilt with first row table and columns names
+		Iterator<RowDescriptor> it = plan.getRows();
+		RowDescriptor first = it.next();
+		while (it.hasNext()) {
+			RowDescriptor row = it.next();
+			assertTrue(first.hasSameShape(row));
+			assertEquals("customer", row.getTableName());
+		}
+		it = plan.getRows();
+		it.next();
+		Iterator<ColumnDescriptor> columns = it.next().getColumns();
+		assertEquals("ID", columns.next().getValue());
+		assertEquals("NAME", columns.next().getValue());
+	}
+
+	public void testBulkRoundTrips() {
+		List<RowDescriptor> rows = new ArrayList<>();
+		for (int i = 0; i < 250; ++i) {
+			rows.add(row("customer", "id"));
+		}
+		LoadPlan plan = new LoadPlan(driver, graph, rows.iterator(), 1, 100);
+		assertEquals(3, plan.getRoundTrips());
+		assertTrue(plan.getSteps().get(0).getSQL().startsWith("INSERT INTO "));
+	}
+
+	private static RowDescriptor row(String tableName, String... columnNames) {
+		RowDescriptor row = new RowDescriptor(tableName);
+		for (String columnName : columnNames) {
+			row.addColumnDescritor(new ColumnDescriptor(columnName, null, columnName));
+		}
+		return row;
+	}
+}
@@ -0,0 +1,18 @@
+package com.jslib.unit.db;
+
+import junit.framework.TestCase;
+
+public class MySQLDriverUnitTest extends TestCase {
+	public void testLocalInfileOptIn() {
+		MySQLDriver driver = new MySQLDriver("localhost", "test", "test", "test");
+		assertFalse(driver.getUrl().contains("allowLoadLocalInfile"));
+
+		driver.setLocalInfile(true);
+		assertTrue(driver.getUrl().endsWith("&allowLoadLocalInfile=true"));
+		driver.setLocalInfile(true);
+		assertEquals(driver.getUrl().indexOf("allowLoadLocalInfile"), driver.getUrl().lastIndexOf("allowLoadLocalInfile"));
+
+		driver.setLocalInfile(false);
+		assertFalse(driver.getUrl().contains("allowLoadLocalInfile"));
+	}
+}
@@ -0,0 +1,87 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class RandomTableUnitTest extends TestCase {
+	private Driver driver;
+	private Database database;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("random");
+		driver.setInitScript("db/random-schema.sql");
+		database = new Database(driver);
+		database.clear();
+	}
+
+	public void testAssociationTableRepopulate() throws Exception {
+		database.populate(Arrays.asList("product", "tag"), 3);
+		database.populate(Collections.singletonList("product_tag"), 4);
+		assertEquals(4, count("product_tag"));
+
+		// second populate skips existing combinations instead of failing on duplicated keys
+		database.populate(Collections.singletonList("product_tag"), 4);
+		assertEquals(8, count("product_tag"));
+
+		// only one free combination left
+		database.populate(Collections.singletonList("product_tag"), 4);
+		assertEquals(9, count("product_tag"));
+	}
+
+	public void testCharacterKeys() throws Exception {
+		execute("INSERT INTO tag(code) VALUES('A')");
+		execute("INSERT INTO tag(code) VALUES('zz-x')");
+		database.populate(Collections.singletonList("tag"), 5);
+		assertEquals(7, count("tag"));
+		assertEquals("f", query("SELECT MAX(code) FROM tag WHERE code<>'zz-x'"));
+
+		database.populate(Collections.singletonList("tag"), 5);
+		assertEquals(12, count("tag"));
+	}
+
+	public void testTypes() throws Exception {
+		database.populate(Collections.singletonList("sample"), 100);
+		assertEquals(100, count("sample"));
+		assertTrue(Integer.parseInt(query("SELECT MIN(tiny) FROM sample")) >= 0);
+		assertTrue(Integer.parseInt(query("SELECT MIN(small) FROM sample")) >= 0);
+		assertEquals(100, Integer.parseInt(query("SELECT COUNT(DISTINCT token) FROM sample")));
+		assertEquals(0, Integer.parseInt(query("SELECT COUNT(*) FROM sample WHERE items IS NOT NULL")));
+	}
+
+	public void testNotSupportedType() throws Exception {
+		execute("ALTER TABLE sample ALTER COLUMN items SET NOT NULL");
+		try {
+			database.populate(Collections.singletonList("sample"), 1);
+			fail("Not nullable column without generator not rejected.");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("|ITEMS|"));
+		} finally {
+			execute("ALTER TABLE sample ALTER COLUMN items SET NULL");
+		}
+	}
+
+	private int count(String tableName) throws SQLException {
+		return Integer.parseInt(query("SELECT COUNT(*) FROM " + tableName));
+	}
+
+	private String query(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			ResultSet rs = connection.createStatement().executeQuery(sql);
+			assertTrue(rs.next());
+			return rs.getString(1);
+		}
+	}
+
+	private void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			connection.createStatement().executeUpdate(sql);
+		}
+	}
+}
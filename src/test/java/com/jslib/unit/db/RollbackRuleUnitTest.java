@@ -0,0 +1,123 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+public class RollbackRuleUnitTest extends TestCase {
+	private Driver driver;
+	private Database database;
+	private RollbackRule rule;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("rollback");
+		driver.setInitScript("db/schema.sql");
+		database = new Database(driver);
+		rule = new RollbackRule(database, "db/data-set.xml");
+	}
+
+	public void testRollback() throws Throwable {
+		evaluate(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Connection connection = database.getConnection();
+				connection.createStatement().executeUpdate("DELETE FROM order_item");
+				// commit is ignored by isolated connection
+				connection.commit();
+				assertEquals(0, count("order_item", connection));
+			}
+		});
+		assertEquals(3, count("order_item"));
+		assertEquals(2, count("customer"));
+	}
+
+	public void testTestFailure() throws Throwable {
+		final AssertionError failure = new AssertionError("test failure");
+		try {
+			evaluate(new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					database.getConnection().createStatement().executeUpdate("DELETE FROM order_item");
+					throw failure;
+				}
+			});
+			fail("Test failure not propagated.");
+		} catch (AssertionError e) {
+			assertSame(failure, e);
+			assertEquals(0, e.getSuppressed().length);
+		}
+		assertEquals(3, count("order_item"));
+	}
+
+	public void testRollbackFailureSuppressed() throws Throwable {
+		final AssertionError failure = new AssertionError("test failure");
+		try {
+			evaluate(new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					// ending isolation transaction makes rule rollback fail
+					database.rollback();
+					throw failure;
+				}
+			});
+			fail("Test failure not propagated.");
+		} catch (AssertionError e) {
+			assertSame(failure, e);
+			assertEquals(1, e.getSuppressed().length);
+			assertTrue(e.getSuppressed()[0] instanceof IllegalStateException);
+		}
+	}
+
+	public void testRollbackFailure() throws Throwable {
+		try {
+			evaluate(new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					database.rollback();
+				}
+			});
+			fail("Rollback failure not propagated.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	public void testConnectionIdentity() throws Throwable {
+		evaluate(new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Connection connection = database.getConnection();
+				assertTrue(connection.equals(connection));
+				assertEquals(System.identityHashCode(connection), connection.hashCode());
+				Connection raw = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword());
+				try {
+					assertFalse(connection.equals(raw));
+				} finally {
+					raw.close();
+				}
+			}
+		});
+	}
+
+	private void evaluate(Statement statement) throws Throwable {
+		rule.apply(statement, Description.EMPTY).evaluate();
+	}
+
+	private int count(String tableName) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			return count(tableName, connection);
+		}
+	}
+
+	private static int count(String tableName, Connection connection) throws SQLException {
+		ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM " + tableName);
+		rs.next();
+		return rs.getInt(1);
+	}
+}
@@ -0,0 +1,56 @@
+package com.jslib.unit.db;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SqlCaptureUnitTest extends TestCase {
+	public void testCount() {
+		SqlCapture capture = new SqlCapture(8);
+		capture.record("SELECT * FROM customer WHERE id=?", 1, 0, 1000);
+		capture.record("SELECT * FROM customer WHERE id=?", 1, 0, 1000);
+		capture.record("UPDATE product SET price=?", 1, 0, 1000);
+
+		assertEquals(3, capture.getCount());
+		assertEquals(2, capture.count("from CUSTOMER"));
+		assertEquals(1, capture.count("^update"));
+		assertEquals(0, capture.count("delete"));
+
+		capture.clear();
+		assertEquals(0, capture.getCount());
+		assertTrue(capture.getEntries().isEmpty());
+	}
+
+	public void testRingBuffer() {
+		SqlCapture capture = new SqlCapture(4);
+		for (int i = 0; i < 6; ++i) {
+			capture.record("SELECT " + i, 0, 0, i);
+		}
+
+		assertEquals(6, capture.getCount());
+		assertTrue(capture.isOverflowed());
+		List<SqlCapture.Entry> entries = capture.getEntries();
+		assertEquals(4, entries.size());
+		assertEquals("SELECT 2", entries.get(0).getSQL());
+		assertEquals("SELECT 5", entries.get(3).getSQL());
+
+		try {
+			capture.count("SELECT");
+			fail("Count on overflowed capture should throw.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	public void testLatencyPercentile() {
+		SqlCapture capture = new SqlCapture(200);
+		for (int i = 1; i <= 100; ++i) {
+			capture.record("SELECT 1", 0, 0, i);
+		}
+		capture.record("SELECT 2", 0, 0, 1000);
+
+		assertEquals(99, capture.getLatencyPercentile("SELECT 1", 0.99));
+		assertEquals(50, capture.getLatencyPercentile("SELECT 1", 0.5));
+		assertEquals(1000, capture.getLatencyPercentile("SELECT 2", 0.99));
+		assertEquals(0, capture.getLatencyPercentile("DELETE", 0.99));
+	}
+}
@@ -0,0 +1,33 @@
+package com.jslib.unit.db;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SqlScriptUnitTest extends TestCase {
+	public void testStatements() {
+		SqlScript script = new SqlScript("CREATE TABLE a(id INT);\n\nCREATE TABLE b(id INT)\n;\n;");
+
+		List<String> statements = script.getStatements();
+		assertEquals(2, statements.size());
+		assertEquals("CREATE TABLE a(id INT)", statements.get(0));
+		assertEquals("CREATE TABLE b(id INT)", statements.get(1));
+	}
+
+	public void testComments() {
+		SqlScript script = new SqlScript("-- first; comment\nCREATE TABLE a(id INT); /* block; comment */ CREATE TABLE b(id INT); -- last");
+
+		List<String> statements = script.getStatements();
+		assertEquals(2, statements.size());
+		assertEquals("CREATE TABLE a(id INT)", statements.get(0));
+		assertEquals("CREATE TABLE b(id INT)", statements.get(1));
+	}
+
+	public void testQuotedSeparator() {
+		SqlScript script = new SqlScript("INSERT INTO \"a;b\" VALUES('x;--y');");
+
+		List<String> statements = script.getStatements();
+		assertEquals(1, statements.size());
+		assertEquals("INSERT INTO \"a;b\" VALUES('x;--y')", statements.get(0));
+	}
+}
@@ -0,0 +1,100 @@
+package com.jslib.unit.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+public class SyncDBUnitTest extends TestCase {
+	private Driver driver;
+	private Database database;
+
+	@Override
+	protected void setUp() throws Exception {
+		driver = new H2Driver("sync");
+		driver.setInitScript("db/schema.sql");
+		database = new Database(driver);
+		database.load("db/data-set.xml");
+	}
+
+	public void testSync() throws Exception {
+		database.sync(dataSet("" + //
+				"<customer><id>1</id><name>John Doe</name></customer>" + //
+				"<customer><id>2</id><name>Jane Roe</name></customer>" + //
+				"<product><id>1</id><name>Book</name><price>12.50</price></product>" + //
+				"<product><id>3</id><name>Ink</name><price>3.00</price></product>" + //
+				"<order><id>1</id><customer_id>1</customer_id><created>2020-01-02 03:04:05</created></order>" + //
+				"<order_item><id>1</id><order_id>1</order_id><product_id>3</product_id><qty>1</qty></order_item>"));
+
+		assertEquals("Jane Roe", query("SELECT name FROM customer WHERE id=2"));
+		assertEquals("1", query("SELECT COUNT(*) FROM product WHERE id=3"));
+		assertEquals("0", query("SELECT COUNT(*) FROM product WHERE id=2"));
+		assertEquals("1", query("SELECT COUNT(*) FROM \"ORDER\""));
+		assertEquals("3", query("SELECT product_id FROM order_item"));
+		assertEquals(1, database.getLoadReport().getRowsCount("PRODUCT"));
+	}
+
+	public void testTablesNotInDataSetAreCleared() throws Exception {
+		database.sync(dataSet("<customer><id>1</id><name>John Doe</name></customer>"));
+		assertEquals("1", query("SELECT COUNT(*) FROM customer"));
+		assertEquals("0", query("SELECT COUNT(*) FROM order_item"));
+		assertEquals("0", query("SELECT COUNT(*) FROM product"));
+	}
+
+	public void testUniqueKeyMovedToNewRow() throws Exception {
+		database.sync(dataSet("<account><id>1</id><email>john@doe.com</email></account>"));
+		database.sync(dataSet("<account><id>2</id><email>john@doe.com</email></account>"));
+		assertEquals("2", query("SELECT id FROM account WHERE email='john@doe.com'"));
+		assertEquals("1", query("SELECT COUNT(*) FROM account"));
+	}
+
+	public void testBatchSize() throws Exception {
+		database.setBatchSize(2);
+		StringBuilder accounts = new StringBuilder();
+		for (int i = 1; i <= 5; ++i) {
+			accounts.append(String.format("<account><id>%d</id><email>user%d@doe.com</email></account>", i, i));
+		}
+		database.sync(dataSet(accounts.toString()));
+		assertEquals(3, database.getLoadReport().getBatchesCount("ACCOUNT"));
+		assertEquals(5, database.getLoadReport().getRowsCount("ACCOUNT"));
+
+		database.sync(dataSet("<account><id>6</id><email>user6@doe.com</email></account>"));
+		assertEquals("1", query("SELECT COUNT(*) FROM account"));
+	}
+
+	public void testCharacterKeysNotNormalized() throws Exception {
+		String labels = "" + //
+				"<label><code>007</code><name>%s</name></label>" + //
+				"<label><code>7</code><name>%s</name></label>" + //
+				"<label><code>1.0</code><name>%s</name></label>" + //
+				"<label><code>1</code><name>%s</name></label>";
+		database.sync(dataSet(String.format(labels, "A", "B", "C", "D")));
+		assertEquals("4", query("SELECT COUNT(*) FROM label"));
+
+		// numeric looking character keys are distinct rows, all updated in place
+		database.sync(dataSet(String.format(labels, "E", "F", "G", "H")));
+		assertEquals("4", query("SELECT COUNT(*) FROM label"));
+		assertEquals("E", query("SELECT name FROM label WHERE code='007'"));
+		assertEquals("F", query("SELECT name FROM label WHERE code='7'"));
+		assertEquals("G", query("SELECT name FROM label WHERE code='1.0'"));
+		assertEquals("H", query("SELECT name FROM label WHERE code='1'"));
+		// load report counts inserted rows only
+		assertEquals(0, database.getLoadReport().getRowsCount("LABEL"));
+	}
+
+	private static InputStream dataSet(String rows) throws Exception {
+		return new ByteArrayInputStream(("<dataset>" + rows + "</dataset>").getBytes("UTF-8"));
+	}
+
+	private String query(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			ResultSet rs = connection.createStatement().executeQuery(sql);
+			assertTrue(rs.next());
+			return rs.getString(1);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.jslib.unit.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TableGraphUnitTest extends TestCase {
+	public void testLoadOrder() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("order_item");
+		graph.addTable("customer");
+		graph.addTable("product");
+		graph.addTable("order");
+		graph.addForeignKey("order_item", "order");
+		graph.addForeignKey("order_item", "product");
+		graph.addForeignKey("order", "customer");
+		graph.sort();
+
+		List<String> order = graph.getLoadOrder();
+		assertEquals(4, order.size());
+		assertTrue(order.indexOf("customer") < order.indexOf("order"));
+		assertTrue(order.indexOf("order") < order.indexOf("order_item"));
+		assertTrue(order.indexOf("product") < order.indexOf("order_item"));
+		assertTrue(graph.getCyclicTables().isEmpty());
+	}
+
+	public void testLevels() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("order_item");
+		graph.addTable("customer");
+		graph.addTable("product");
+		graph.addTable("order");
+		graph.addForeignKey("order_item", "order");
+		graph.addForeignKey("order_item", "product");
+		graph.addForeignKey("order", "customer");
+		graph.sort();
+
+		List<List<String>> levels = graph.getLevels();
+		assertEquals(3, levels.size());
+		assertEquals(Arrays.asList("customer", "product"), levels.get(0));
+		assertEquals(Arrays.asList("order"), levels.get(1));
+		assertEquals(Arrays.asList("order_item"), levels.get(2));
+	}
+
+	public void testDeleteOrderIsReversedLoadOrder() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("child");
+		graph.addTable("parent");
+		graph.addForeignKey("child", "parent");
+		graph.sort();
+
+		assertEquals(Arrays.asList("parent", "child"), graph.getLoadOrder());
+		assertEquals(Arrays.asList("child", "parent"), graph.getDeleteOrder());
+		assertTrue(graph.isReferenced("parent"));
+		assertFalse(graph.isReferenced("child"));
+	}
+
+	public void testDeepHierarchy() {
+		TableGraph graph = new TableGraph();
+		for (int i = 0; i < 20; ++i) {
+			graph.addTable("t" + i);
+		}
+		for (int i = 1; i < 20; ++i) {
+			graph.addForeignKey("t" + (i - 1), "t" + i);
+		}
+		graph.sort();
+
+		List<String> order = graph.getDeleteOrder();
+		for (int i = 0; i < 20; ++i) {
+			assertEquals("t" + i, order.get(i));
+		}
+	}
+
+	public void testSelfReference() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("employee");
+		graph.addForeignKey("employee", "employee");
+		graph.sort();
+
+		assertEquals(Arrays.asList("employee"), graph.getLoadOrder());
+		assertTrue(graph.getCyclicTables().isEmpty());
+		assertFalse(graph.isReferenced("employee"));
+	}
+
+	public void testCycle() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("root");
+		graph.addTable("b");
+		graph.addTable("a");
+		graph.addForeignKey("a", "b");
+		graph.addForeignKey("b", "a");
+		graph.addForeignKey("a", "root");
+		graph.sort();
+
+		assertEquals(Arrays.asList("root", "a", "b"), graph.getLoadOrder());
+		assertEquals(2, graph.getCyclicTables().size());
+		assertTrue(graph.getCyclicTables().contains("a"));
+		assertTrue(graph.getCyclicTables().contains("b"));
+		assertEquals(Arrays.asList(Arrays.asList("root"), Arrays.asList("a", "b")), graph.getLevels());
+	}
+
+	public void testCycleDependants() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("a");
+		graph.addTable("b");
+		graph.addTable("child");
+		graph.addTable("grandchild");
+		graph.addForeignKey("a", "b");
+		graph.addForeignKey("b", "a");
+		graph.addForeignKey("child", "a");
+		graph.addForeignKey("grandchild", "child");
+		graph.sort();
+
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.getCyclicTables());
+		assertEquals(Arrays.asList("a", "b", "child", "grandchild"), graph.getLoadOrder());
+		assertEquals(Arrays.asList(Arrays.asList("a", "b", "child", "grandchild")), graph.getLevels());
+	}
+
+	public void testTableNameWildcards() throws Exception {
+		Driver driver = new H2Driver("graph");
+		try (Connection connection = DriverManager.getConnection(driver.getUrl(), driver.getUser(), driver.getPassword())) {
+			Statement statement = connection.createStatement();
+			statement.execute("CREATE TABLE IF NOT EXISTS a_b(id INT PRIMARY KEY, name VARCHAR(20))");
+			statement.execute("CREATE TABLE IF NOT EXISTS axb(code INT PRIMARY KEY, label VARCHAR(20), a_b_id INT REFERENCES a_b(id))");
+
+			TableGraph graph = new TableGraph();
+			DatabaseListener listener = new DatabaseListener() {};
+			assertEquals(2, graph.getColumnTypes(connection, driver, "a_b", listener).size());
+			assertEquals(Arrays.asList("ID"), graph.getPrimaryKey(connection, driver, "a_b", listener));
+			assertEquals(3, graph.getColumnTypes(connection, driver, "axb", listener).size());
+		}
+	}
+
+	public void testMissingForeignTable() {
+		TableGraph graph = new TableGraph();
+		graph.addTable("child");
+		try {
+			graph.addForeignKey("child", "parent");
+			fail("Missing foreign table should rise exception.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+}
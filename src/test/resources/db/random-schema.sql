@@ -0,0 +1,4 @@
+CREATE TABLE product(id INT PRIMARY KEY, name VARCHAR(50) NOT NULL);
+CREATE TABLE tag(code VARCHAR(10) PRIMARY KEY, label VARCHAR(20));
+CREATE TABLE product_tag(product_id INT REFERENCES product(id), tag_code VARCHAR(10) REFERENCES tag(code), PRIMARY KEY(product_id, tag_code));
+CREATE TABLE sample(id INT PRIMARY KEY, tiny TINYINT NOT NULL, small SMALLINT NOT NULL, token UUID NOT NULL, meta JSON NOT NULL, note VARCHAR(3), items INT ARRAY);
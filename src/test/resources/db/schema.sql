@@ -0,0 +1,7 @@
+CREATE TABLE customer(id INT PRIMARY KEY, name VARCHAR(50));
+CREATE TABLE product(id INT PRIMARY KEY, name VARCHAR(50), price DECIMAL(10,2));
+CREATE TABLE "ORDER"(id INT PRIMARY KEY, customer_id INT REFERENCES customer(id), created TIMESTAMP);
+CREATE TABLE order_item(id INT PRIMARY KEY, order_id INT REFERENCES "ORDER"(id), product_id INT REFERENCES product(id), qty INT);
+CREATE TABLE account(id INT PRIMARY KEY, email VARCHAR(50) UNIQUE, active BOOLEAN);
+CREATE TABLE document(id INT PRIMARY KEY, content BLOB);
+CREATE TABLE label(code VARCHAR(10) PRIMARY KEY, name VARCHAR(50));